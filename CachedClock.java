@@ -0,0 +1,115 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A coarse clock which reads the system time once per tick on a background thread.
+ *
+ * currentTimeMillis() is a single volatile read, so time checks on the hot path cost
+ * no system call and no allocation. The time returned may be up to one tick old,
+ * which is fine for checks such as whether a meeting is in the past.
+ *
+ * Every running clock ticks on one shared daemon thread. The thread is started by the
+ * first clock and ends once every clock has been stopped.
+ *
+ * @author Gareth Moore.
+ */
+public class CachedClock implements Clock {
+	/**
+	 * The tick of the shared clock, in milliseconds.
+	 */
+	public static final long SHARED_TICK_MILLIS = 10;
+	/**
+	 * Runs the ticks of every clock, or null while no clock is running.
+	 * Guarded by CachedClock.class, like every other static field.
+	 */
+	private static ScheduledExecutorService ticker = null;
+	/**
+	 * The number of clocks ticking on the ticker.
+	 */
+	private static int running = 0;
+	/**
+	 * The clock returned by shared(), or null if there is none running.
+	 */
+	private static CachedClock shared = null;
+	/**
+	 * The system time at the most recent tick.
+	 * Volatile so that every thread sees the latest tick.
+	 */
+	private volatile long now = System.currentTimeMillis();
+	/**
+	 * This clock's task on the ticker, or null once the clock has been stopped.
+	 * Guarded by CachedClock.class.
+	 */
+	private ScheduledFuture<?> tick;
+
+	/**
+	 * Constructor method. Starts ticking at once.
+	 *
+	 * @param tickMillis the time in milliseconds between reads of the system time.
+	 * @throws IllegalArgumentException if tickMillis is less than one.
+	 */
+	public CachedClock(long tickMillis) throws IllegalArgumentException {
+		if (tickMillis < 1) {
+			throw new IllegalArgumentException();
+		}
+		synchronized (CachedClock.class) {
+			if (ticker == null) {
+				ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable task) {
+						Thread result = new Thread(task, "CachedClock ticker");
+						result.setDaemon(true);
+						return result;
+					}
+				});
+			}
+			tick = ticker.scheduleAtFixedRate(new Runnable() {
+				public void run() {
+					now = System.currentTimeMillis();
+				}
+			}, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+			running++;
+		}
+	}
+
+	/**
+	 * Returns a clock shared by every caller, ticking every SHARED_TICK_MILLIS.
+	 * A new one is started if the last one was stopped.
+	 *
+	 * @return the shared clock.
+	 */
+	public static synchronized CachedClock shared() {
+		if (shared == null) {
+			shared = new CachedClock(SHARED_TICK_MILLIS);
+		}
+		return shared;
+	}
+
+	public long currentTimeMillis() {
+		return now;
+	}
+
+	/**
+	 * Stops the ticks. The clock then keeps returning the time of the last tick.
+	 * The ticker thread ends once the last running clock is stopped.
+	 */
+	public void stop() {
+		synchronized (CachedClock.class) {
+			if (tick == null) {
+				return;
+			}
+			tick.cancel(false);
+			tick = null;
+			if (shared == this) {
+				shared = null;
+			}
+			running--;
+			if (running == 0) {
+				ticker.shutdown();
+				ticker = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,24 @@
+/**
+ * A source of the current time, injected into ContactManagerImpl for its time checks.
+ *
+ * Lets the hot path use a cheap cached clock, and lets tests control the time.
+ *
+ * @author Gareth Moore.
+ */
+public interface Clock {
+	/**
+	 * A clock which reads System.currentTimeMillis() on every call.
+	 */
+	Clock SYSTEM = new Clock() {
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+	};
+
+	/**
+	 * Returns the current time.
+	 *
+	 * @return the current time in epoch milliseconds.
+	 */
+	long currentTimeMillis();
+}
@@ -0,0 +1,107 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the classes CachedClock and FakeClock.
+ *
+ * @author Gareth Moore.
+ */
+public class ClockTest {
+	/**
+	 * A cached clock should stay within a few ticks of the system time, and stop when told to.
+	 */
+	@Test
+	public void shouldFollowSystemTime() throws InterruptedException {
+		CachedClock clock = new CachedClock(1);
+		try {
+			Thread.sleep(50);
+			long difference = System.currentTimeMillis() - clock.currentTimeMillis();
+			assertTrue("Cached clock is " + difference + "ms behind", difference >= 0 && difference < 1000);
+		} finally {
+			clock.stop();
+		}
+		Thread.sleep(20);
+		long stopped = clock.currentTimeMillis();
+		Thread.sleep(20);
+		assertEquals(stopped, clock.currentTimeMillis());
+	}
+
+	/**
+	 * Running clocks should share one daemon ticker thread, which ends once they are all stopped.
+	 */
+	@Test
+	public void shouldShareOneTicker() throws InterruptedException {
+		CachedClock first = new CachedClock(1);
+		CachedClock second = new CachedClock(5);
+		try {
+			assertEquals(1, tickerThreads());
+			for (Thread thread : Thread.getAllStackTraces().keySet()) {
+				if (thread.getName().equals("CachedClock ticker")) {
+					assertTrue(thread.isDaemon());
+				}
+			}
+		} finally {
+			first.stop();
+			second.stop();
+		}
+		for (int i = 0; i < 100 && tickerThreads() > 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, tickerThreads());
+	}
+
+	/**
+	 * A manager made by withCachedClock() should read the shared clock.
+	 */
+	@Test
+	public void shouldGiveSharedClockToManager() {
+		ContactManagerImpl manager = ContactManagerImpl.withCachedClock();
+		try {
+			assertSame(CachedClock.shared(), manager.clock);
+		} finally {
+			CachedClock.shared().stop();
+		}
+	}
+
+	/**
+	 * Counts the live ticker threads.
+	 *
+	 * @return the number of live threads named "CachedClock ticker".
+	 */
+	private int tickerThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("CachedClock ticker") && thread.isAlive()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * A cached clock needs a positive tick.
+	 */
+	@Test
+	public void shouldRejectZeroTick() {
+		boolean exceptionThrown = false;
+		try {
+			new CachedClock(0);
+		} catch (IllegalArgumentException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+	}
+
+	/**
+	 * A fake clock should only move when it is set or advanced.
+	 */
+	@Test
+	public void shouldOnlyMoveWhenTold() {
+		FakeClock clock = new FakeClock(1000L);
+		assertEquals(1000L, clock.currentTimeMillis());
+		clock.advance(500L);
+		assertEquals(1500L, clock.currentTimeMillis());
+		clock.set(42L);
+		assertEquals(42L, clock.currentTimeMillis());
+	}
+}
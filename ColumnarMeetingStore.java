@@ -0,0 +1,760 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * A meeting store which keeps every field of every meeting in parallel primitive arrays.
+ *
+ * The rows are held in chunks of CHUNK_SIZE. Within a chunk, row r holds the meeting ids[r],
+ * dated times[r] in epoch milliseconds in the time zone zoneTable[zones[r]]. Its attendee ids
+ * are attendeeIds[attendeeStart[r]] to attendeeIds[attendeeStart[r + 1] - 1], sorted ascending.
+ * Its notes are the UTF-8 bytes notes[notesStart[r]] onwards, notesLength[r] bytes long;
+ * a notesLength of -1 marks a future meeting. An open-addressing table maps ids to rows,
+ * so ids are never boxed.
+ *
+ * No object is kept per meeting. get() returns a small flyweight view of a row, which
+ * reads the arrays on demand, so a view costs nothing once it is no longer referenced.
+ * A stored meeting takes about 26 bytes, plus 4 per attendee, its notes and its slots in
+ * the id table, against roughly 100 bytes or more for a PastMeetingImpl with its
+ * ContactArraySet of attendees and its slot in an IntHashMap.
+ *
+ * Copying a store only copies its arrays of chunks, and afterwards each of the two stores
+ * copies a chunk the first time it changes it, as IntHashMap does. Rows are only ever
+ * appended. Adding notes appends them to the chunk's notes, leaving the old bytes unused
+ * until the notes are next grown or the chunk is copied.
+ *
+ * @author Gareth Moore.
+ */
+public class ColumnarMeetingStore implements MeetingStore {
+	/**
+	 * log2 of CHUNK_SIZE.
+	 */
+	private static final int CHUNK_BITS = 10;
+	/**
+	 * The most rows, or id table slots, held in one chunk.
+	 */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	/**
+	 * Masks a row or slot index to its position within a chunk.
+	 */
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	/**
+	 * The initial number of rows in a chunk, and of slots in the id table. Must be a power of two.
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+	/**
+	 * The most time zones a store can hold, because each row refers to its zone with a short.
+	 */
+	private static final int MAX_ZONES = 1 << 16;
+	/**
+	 * The chunks of rows.
+	 */
+	private Rows[] rows = new Rows[0];
+	/**
+	 * The number of rows.
+	 */
+	private int size = 0;
+	/**
+	 * The meeting id held in each slot of the id table, by chunk.
+	 */
+	private int[][] idSlots;
+	/**
+	 * The row held in each slot of the id table plus one, by chunk. Zero marks an empty slot.
+	 */
+	private int[][] rowSlots;
+	/**
+	 * The owner of each chunk of the id table. A chunk may only be changed in place if its owner is this store's owner.
+	 */
+	private Object[] slotOwners;
+	/**
+	 * The total number of slots in the id table. Always a power of two.
+	 */
+	private int capacity;
+	/**
+	 * The number of rows at which the id table is doubled, keeping it at most half full.
+	 */
+	private int threshold;
+	/**
+	 * Every time zone used by a row. Never changed once shared; a new zone replaces the array.
+	 */
+	private TimeZone[] zoneTable = new TimeZone[0];
+	/**
+	 * Identifies the chunks this store may change in place.
+	 * Replaced whenever the store is copied, so chunks shared with the copy are no longer owned.
+	 */
+	private Object owner = new Object();
+	/**
+	 * Every contact which may attend a meeting, keyed by contact id. Used to build views' attendee sets.
+	 */
+	private final IntHashMap<Contact> contacts;
+
+	/**
+	 * Constructor method. Creates an empty store.
+	 *
+	 * @param contacts every contact which may attend a meeting, keyed by contact id.
+	 */
+	public ColumnarMeetingStore(IntHashMap<Contact> contacts) {
+		this.contacts = contacts;
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor method which copies another store.
+	 *
+	 * The chunks are shared with other until either store changes them, so this takes
+	 * time proportional to the number of chunks rather than the number of rows.
+	 *
+	 * @param other the store to be copied.
+	 * @param contacts every contact which may attend a meeting, keyed by contact id.
+	 */
+	private ColumnarMeetingStore(ColumnarMeetingStore other, IntHashMap<Contact> contacts) {
+		this.contacts = contacts;
+		rows = other.rows.clone();
+		size = other.size;
+		idSlots = other.idSlots.clone();
+		rowSlots = other.rowSlots.clone();
+		slotOwners = new Object[idSlots.length];
+		capacity = other.capacity;
+		threshold = other.threshold;
+		zoneTable = other.zoneTable;
+		//Every chunk is now shared, so other must copy a chunk before it next changes it.
+		other.owner = new Object();
+	}
+
+	/**
+	 * Adds a copy of an existing meeting.
+	 *
+	 * @param meeting the meeting to be copied.
+	 * @throws IllegalArgumentException if a meeting with the same id is already stored.
+	 */
+	public void add(Meeting meeting) throws IllegalArgumentException {
+		Set<Contact> attendees = meeting.getContacts();
+		int[] attendeeIdArray = new int[attendees.size()];
+		int count = 0;
+		Iterator<Contact> attendeeIterator = attendees.iterator();
+		while (attendeeIterator.hasNext()) {
+			attendeeIdArray[count] = attendeeIterator.next().getId();
+			count++;
+		}
+		String meetingNotes = (meeting instanceof PastMeeting) ? ((PastMeeting) meeting).getNotes() : null;
+		add(meeting.getId(), MeetingImpl.timeOf(meeting), MeetingImpl.zoneOf(meeting), attendeeIdArray, meetingNotes);
+	}
+
+	/**
+	 * Adds a meeting.
+	 *
+	 * @param id the id of the meeting.
+	 * @param time the date of the meeting in epoch milliseconds.
+	 * @param zone the time zone of the Calendars returned by the meeting's views.
+	 * @param attendees the ids of the contacts attending the meeting, in any order. Not kept by the store.
+	 * @param meetingNotes the notes of a past meeting, or null for a future meeting.
+	 * @return the row the meeting was stored in.
+	 * @throws IllegalArgumentException if a meeting with the same id is already stored.
+	 * @throws IllegalStateException if the store already holds MAX_ZONES other time zones.
+	 */
+	public int add(int id, long time, TimeZone zone, int[] attendees, String meetingNotes) throws IllegalArgumentException, IllegalStateException {
+		if (rowOf(id) >= 0) {
+			throw new IllegalArgumentException();
+		}
+		int zoneIndex = zoneIndex(zone);
+		if (size + 1 > threshold) {
+			resize(capacity * 2);
+		}
+		int row = size;
+		int chunk = row >>> CHUNK_BITS;
+		if (chunk == rows.length) {
+			rows = Arrays.copyOf(rows, chunk + 1);
+			rows[chunk] = new Rows(owner);
+		}
+		writableRows(chunk).append(id, time, zoneIndex, attendees, meetingNotes);
+		size++;
+		putSlot(id, row + 1);
+		return row;
+	}
+
+	/**
+	 * Sets the notes of a meeting, making it a past meeting if it was a future one.
+	 * Views already returned keep the notes they were created with.
+	 *
+	 * @param id the id of the meeting.
+	 * @param meetingNotes the new notes.
+	 * @throws IllegalArgumentException if no meeting has the id.
+	 * @throws NullPointerException if meetingNotes is null.
+	 */
+	public void setNotes(int id, String meetingNotes) throws IllegalArgumentException, NullPointerException {
+		if (meetingNotes == null) {
+			throw new NullPointerException();
+		}
+		int row = rowOf(id);
+		if (row < 0) {
+			throw new IllegalArgumentException();
+		}
+		writableRows(row >>> CHUNK_BITS).writeNotes(row & CHUNK_MASK, meetingNotes);
+	}
+
+	/**
+	 * Returns a flyweight view of the meeting with the id.
+	 * The view is a PastMeeting or a FutureMeeting according to the meeting's current state,
+	 * and is never changed by later changes to the store.
+	 *
+	 * @param id the id of the meeting.
+	 * @return a view of the meeting, or null if no meeting has the id.
+	 */
+	public Meeting get(int id) {
+		int row = rowOf(id);
+		if (row < 0) {
+			return null;
+		}
+		Rows chunk = rows[row >>> CHUNK_BITS];
+		int index = row & CHUNK_MASK;
+		TimeZone zone = zoneTable[chunk.zones[index] & 0xFFFF];
+		if (chunk.notesLength[index] < 0) {
+			return new FutureView(chunk, index, zone, contacts);
+		}
+		return new PastView(chunk, index, zone, contacts);
+	}
+
+	public boolean containsKey(int id) {
+		return rowOf(id) >= 0;
+	}
+
+	/**
+	 * Returns the row holding the meeting with the id.
+	 *
+	 * @param id the id of the meeting.
+	 * @return the row, or -1 if no meeting has the id.
+	 */
+	public int rowOf(int id) {
+		int mask = capacity - 1;
+		int slot = slotFor(id, mask);
+		int rowPlusOne;
+		while ((rowPlusOne = rowSlots[slot >>> CHUNK_BITS][slot & CHUNK_MASK]) != 0) {
+			if (idSlots[slot >>> CHUNK_BITS][slot & CHUNK_MASK] == id) {
+				return rowPlusOne - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of meetings in the store.
+	 *
+	 * @return the number of meetings in the store.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Grows the id table so it can hold the expected number of meetings without resizing.
+	 *
+	 * @param expectedSize the number of meetings the store should be able to hold.
+	 */
+	public void ensureCapacity(int expectedSize) {
+		int needed = capacity;
+		while (expectedSize > needed / 2) {
+			needed = needed * 2;
+		}
+		if (needed > capacity) {
+			resize(needed);
+		}
+	}
+
+	public MeetingStore copy(IntHashMap<Contact> contacts) {
+		return new ColumnarMeetingStore(this, contacts);
+	}
+
+	/**
+	 * Returns the id of the meeting in a row.
+	 *
+	 * @param row the row.
+	 * @return the id of the meeting.
+	 */
+	public int getId(int row) {
+		checkRow(row);
+		return rows[row >>> CHUNK_BITS].ids[row & CHUNK_MASK];
+	}
+
+	/**
+	 * Returns the date of the meeting in a row.
+	 *
+	 * @param row the row.
+	 * @return the date in epoch milliseconds.
+	 */
+	public long getTime(int row) {
+		checkRow(row);
+		return rows[row >>> CHUNK_BITS].times[row & CHUNK_MASK];
+	}
+
+	/**
+	 * Tests whether the meeting in a row is a past meeting.
+	 *
+	 * @param row the row.
+	 * @return true if the meeting has notes, so is a past meeting.
+	 */
+	public boolean isPast(int row) {
+		checkRow(row);
+		return rows[row >>> CHUNK_BITS].notesLength[row & CHUNK_MASK] >= 0;
+	}
+
+	/**
+	 * Tests whether a contact attends the meeting in a row.
+	 *
+	 * @param row the row.
+	 * @param contactId the id of the contact.
+	 * @return true if the contact attends the meeting.
+	 */
+	public boolean hasAttendee(int row, int contactId) {
+		checkRow(row);
+		Rows chunk = rows[row >>> CHUNK_BITS];
+		int index = row & CHUNK_MASK;
+		return Arrays.binarySearch(chunk.attendeeIds, chunk.attendeeStart[index], chunk.attendeeStart[index + 1], contactId) >= 0;
+	}
+
+	/**
+	 * Returns the ids of the contacts attending the meeting in a row, sorted ascending.
+	 *
+	 * @param row the row.
+	 * @return a new array holding the attendee ids.
+	 */
+	public int[] getAttendeeIds(int row) {
+		checkRow(row);
+		Rows chunk = rows[row >>> CHUNK_BITS];
+		int index = row & CHUNK_MASK;
+		return Arrays.copyOfRange(chunk.attendeeIds, chunk.attendeeStart[index], chunk.attendeeStart[index + 1]);
+	}
+
+	/**
+	 * Returns the notes of the meeting in a row.
+	 *
+	 * @param row the row.
+	 * @return the notes, or null if the meeting is a future meeting.
+	 */
+	public String getNotes(int row) {
+		checkRow(row);
+		Rows chunk = rows[row >>> CHUNK_BITS];
+		int index = row & CHUNK_MASK;
+		if (chunk.notesLength[index] < 0) {
+			return null;
+		}
+		return new String(chunk.notes, chunk.notesStart[index], chunk.notesLength[index], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the number of bytes taken by the arrays, including unused capacity.
+	 * Array headers are counted as 16 bytes each, and the shared TimeZones are not counted.
+	 *
+	 * @return the approximate heap footprint of the store in bytes.
+	 */
+	public long footprintBytes() {
+		long result = 16L * (5 + 2 * idSlots.length) + 4L * rows.length + 4L * zoneTable.length + 4L * slotOwners.length;
+		for (int i = 0; i < rows.length; i++) {
+			result += rows[i].footprintBytes();
+		}
+		result += 8L * capacity;
+		return result;
+	}
+
+	/**
+	 * Throws an exception if a row does not exist.
+	 *
+	 * @param row the row.
+	 * @throws IndexOutOfBoundsException if the row does not exist.
+	 */
+	private void checkRow(int row) throws IndexOutOfBoundsException {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	/**
+	 * Returns the index of a time zone in zoneTable, adding a copy of it if it is new.
+	 * MeetingImpl shares one instance of each standard zone, so the zone is normally found by identity.
+	 *
+	 * @param zone the time zone.
+	 * @return the index of an equal zone in zoneTable.
+	 * @throws IllegalStateException if the table already holds MAX_ZONES zones.
+	 */
+	private int zoneIndex(TimeZone zone) throws IllegalStateException {
+		for (int i = 0; i < zoneTable.length; i++) {
+			if (zoneTable[i] == zone || zoneTable[i].equals(zone)) {
+				return i;
+			}
+		}
+		if (zoneTable.length == MAX_ZONES) {
+			throw new IllegalStateException();
+		}
+		//The table may be shared with a copy, so a new one is made rather than changing it.
+		zoneTable = Arrays.copyOf(zoneTable, zoneTable.length + 1);
+		zoneTable[zoneTable.length - 1] = (TimeZone) zone.clone();
+		return zoneTable.length - 1;
+	}
+
+	/**
+	 * Copies a chunk of rows if it is shared with another store, so it can be changed in place.
+	 *
+	 * @param chunk the index of the chunk about to be changed.
+	 * @return the chunk, owned by this store.
+	 */
+	private Rows writableRows(int chunk) {
+		if (rows[chunk].owner != owner) {
+			rows[chunk] = new Rows(rows[chunk], owner);
+		}
+		return rows[chunk];
+	}
+
+	/**
+	 * Puts an id into the first free slot of its probe sequence.
+	 *
+	 * @param id the id of the meeting.
+	 * @param rowPlusOne the row holding the meeting, plus one.
+	 */
+	private void putSlot(int id, int rowPlusOne) {
+		int mask = capacity - 1;
+		int slot = slotFor(id, mask);
+		while (rowSlots[slot >>> CHUNK_BITS][slot & CHUNK_MASK] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		int chunk = slot >>> CHUNK_BITS;
+		if (slotOwners[chunk] != owner) {
+			idSlots[chunk] = idSlots[chunk].clone();
+			rowSlots[chunk] = rowSlots[chunk].clone();
+			slotOwners[chunk] = owner;
+		}
+		idSlots[chunk][slot & CHUNK_MASK] = id;
+		rowSlots[chunk][slot & CHUNK_MASK] = rowPlusOne;
+	}
+
+	/**
+	 * Rebuilds the id table at the new capacity from the rows.
+	 *
+	 * @param newCapacity the new number of slots. Must be a power of two.
+	 */
+	private void resize(int newCapacity) {
+		allocate(newCapacity);
+		for (int row = 0; row < size; row++) {
+			putSlot(rows[row >>> CHUNK_BITS].ids[row & CHUNK_MASK], row + 1);
+		}
+	}
+
+	/**
+	 * Creates an empty id table of the given total capacity, owned by this store.
+	 *
+	 * @param newCapacity the number of slots. Must be a power of two.
+	 */
+	private void allocate(int newCapacity) {
+		int chunkLength = Math.min(newCapacity, CHUNK_SIZE);
+		int chunkCount = newCapacity / chunkLength;
+		idSlots = new int[chunkCount][chunkLength];
+		rowSlots = new int[chunkCount][chunkLength];
+		slotOwners = new Object[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			slotOwners[i] = owner;
+		}
+		capacity = newCapacity;
+		threshold = newCapacity / 2;
+	}
+
+	/**
+	 * Returns the home slot of an id. Scrambled in the same way as IntHashMap.
+	 *
+	 * @param id the id.
+	 * @param mask the mask used to wrap slot indexes.
+	 * @return the home slot of the id.
+	 */
+	private static int slotFor(int id, int mask) {
+		int hash = id * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * A chunk of up to CHUNK_SIZE rows, held column by column.
+	 * The per-row arrays start small and double until they hold CHUNK_SIZE rows.
+	 */
+	private static class Rows {
+		/**
+		 * The id of the meeting in each row.
+		 */
+		private int[] ids;
+		/**
+		 * The date of the meeting in each row, in epoch milliseconds.
+		 */
+		private long[] times;
+		/**
+		 * The index in zoneTable of each row's time zone, read as unsigned.
+		 */
+		private short[] zones;
+		/**
+		 * The position in attendeeIds of each row's first attendee.
+		 * Holds one more entry than there are rows, so the end of the last row is known.
+		 */
+		private int[] attendeeStart;
+		/**
+		 * Every row's attendee ids, one row after another.
+		 */
+		private int[] attendeeIds;
+		/**
+		 * The position in notes of each row's notes.
+		 */
+		private int[] notesStart;
+		/**
+		 * The length in bytes of each row's notes, or -1 if the row is a future meeting.
+		 */
+		private int[] notesLength;
+		/**
+		 * Every row's notes as UTF-8 bytes. Bytes already written are never changed,
+		 * so views can keep reading an array after the chunk has moved on to a new one.
+		 */
+		private byte[] notes;
+		/**
+		 * The number of bytes of notes in use, including notes which have been replaced.
+		 */
+		private int notesSize = 0;
+		/**
+		 * The number of rows in the chunk.
+		 */
+		private int count = 0;
+		/**
+		 * The owner which may change the chunk in place.
+		 */
+		private final Object owner;
+
+		/**
+		 * Constructor method. Creates an empty chunk.
+		 *
+		 * @param owner the owner which may change the chunk in place.
+		 */
+		private Rows(Object owner) {
+			ids = new int[DEFAULT_CAPACITY];
+			times = new long[DEFAULT_CAPACITY];
+			zones = new short[DEFAULT_CAPACITY];
+			attendeeStart = new int[DEFAULT_CAPACITY + 1];
+			attendeeIds = new int[DEFAULT_CAPACITY * 2];
+			notesStart = new int[DEFAULT_CAPACITY];
+			notesLength = new int[DEFAULT_CAPACITY];
+			notes = new byte[DEFAULT_CAPACITY * 16];
+			this.owner = owner;
+		}
+
+		/**
+		 * Constructor method which copies another chunk, leaving out replaced notes.
+		 *
+		 * @param other the chunk to be copied.
+		 * @param owner the owner which may change the new chunk in place.
+		 */
+		private Rows(Rows other, Object owner) {
+			ids = other.ids.clone();
+			times = other.times.clone();
+			zones = other.zones.clone();
+			attendeeStart = other.attendeeStart.clone();
+			attendeeIds = other.attendeeIds.clone();
+			notesStart = other.notesStart.clone();
+			notesLength = other.notesLength.clone();
+			count = other.count;
+			this.owner = owner;
+			repackNotes(other.notes, 0);
+		}
+
+		/**
+		 * Appends a row.
+		 *
+		 * @param id the id of the meeting.
+		 * @param time the date of the meeting in epoch milliseconds.
+		 * @param zoneIndex the index in zoneTable of the meeting's time zone.
+		 * @param attendees the ids of the contacts attending the meeting, in any order.
+		 * @param meetingNotes the notes of a past meeting, or null for a future meeting.
+		 */
+		private void append(int id, long time, int zoneIndex, int[] attendees, String meetingNotes) {
+			if (count == ids.length) {
+				int rowCapacity = ids.length * 2;
+				ids = Arrays.copyOf(ids, rowCapacity);
+				times = Arrays.copyOf(times, rowCapacity);
+				zones = Arrays.copyOf(zones, rowCapacity);
+				attendeeStart = Arrays.copyOf(attendeeStart, rowCapacity + 1);
+				notesStart = Arrays.copyOf(notesStart, rowCapacity);
+				notesLength = Arrays.copyOf(notesLength, rowCapacity);
+			}
+			int index = count;
+			ids[index] = id;
+			times[index] = time;
+			zones[index] = (short) zoneIndex;
+			int start = attendeeStart[index];
+			if (start + attendees.length > attendeeIds.length) {
+				attendeeIds = Arrays.copyOf(attendeeIds, Math.max(attendeeIds.length * 2, start + attendees.length));
+			}
+			System.arraycopy(attendees, 0, attendeeIds, start, attendees.length);
+			//Sorted, so a membership test is a binary search.
+			Arrays.sort(attendeeIds, start, start + attendees.length);
+			attendeeStart[index + 1] = start + attendees.length;
+			writeNotes(index, meetingNotes);
+			count++;
+		}
+
+		/**
+		 * Appends notes to the notes array and points a row at them.
+		 *
+		 * @param index the row within the chunk.
+		 * @param meetingNotes the notes, or null to mark a future meeting.
+		 */
+		private void writeNotes(int index, String meetingNotes) {
+			if (meetingNotes == null) {
+				notesStart[index] = 0;
+				notesLength[index] = -1;
+				return;
+			}
+			byte[] bytes = meetingNotes.getBytes(StandardCharsets.UTF_8);
+			if (notesSize + bytes.length > notes.length) {
+				//Replaced notes are dropped whenever the array has to grow anyway.
+				notesLength[index] = -1;
+				repackNotes(notes, bytes.length);
+			}
+			System.arraycopy(bytes, 0, notes, notesSize, bytes.length);
+			notesStart[index] = notesSize;
+			notesLength[index] = bytes.length;
+			notesSize += bytes.length;
+		}
+
+		/**
+		 * Copies every row's current notes into a new array, one after another.
+		 * The new array has room for the live notes and extra bytes, at least twice over.
+		 *
+		 * @param from the array the rows' notes are read from.
+		 * @param extra the number of bytes about to be appended.
+		 */
+		private void repackNotes(byte[] from, int extra) {
+			int live = 0;
+			for (int i = 0; i < count; i++) {
+				live += Math.max(notesLength[i], 0);
+			}
+			notes = new byte[Math.max(DEFAULT_CAPACITY * 16, (live + extra) * 2)];
+			notesSize = 0;
+			for (int i = 0; i < count; i++) {
+				if (notesLength[i] > 0) {
+					System.arraycopy(from, notesStart[i], notes, notesSize, notesLength[i]);
+					notesStart[i] = notesSize;
+					notesSize += notesLength[i];
+				}
+			}
+		}
+
+		/**
+		 * Returns the number of bytes taken by the chunk's arrays, including unused capacity.
+		 *
+		 * @return the approximate heap footprint of the chunk in bytes.
+		 */
+		private long footprintBytes() {
+			long result = 16L * 9;
+			result += 4L * ids.length + 8L * times.length + 2L * zones.length + 4L * attendeeStart.length;
+			result += 4L * attendeeIds.length + 4L * notesStart.length + 4L * notesLength.length + notes.length;
+			return result;
+		}
+	}
+
+	/**
+	 * A view of one row. Holds the chunk and the row's place in it, and reads the chunk's arrays
+	 * on demand. The id, date and attendees of a row never change once it is written.
+	 */
+	private abstract static class RowView implements Meeting {
+		/**
+		 * The chunk holding the row.
+		 */
+		final Rows chunk;
+		/**
+		 * The row within the chunk.
+		 */
+		final int index;
+		/**
+		 * The time zone of the meeting. Never changed.
+		 */
+		private final TimeZone zone;
+		/**
+		 * Every contact which may attend the meeting, keyed by contact id.
+		 */
+		private final IntHashMap<Contact> contacts;
+
+		/**
+		 * Constructor method.
+		 *
+		 * @param chunk the chunk holding the row.
+		 * @param index the row within the chunk.
+		 * @param zone the time zone of the meeting.
+		 * @param contacts every contact which may attend the meeting, keyed by contact id.
+		 */
+		RowView(Rows chunk, int index, TimeZone zone, IntHashMap<Contact> contacts) {
+			this.chunk = chunk;
+			this.index = index;
+			this.zone = zone;
+			this.contacts = contacts;
+		}
+
+		public int getId() {
+			return chunk.ids[index];
+		}
+
+		public Calendar getDate() {
+			//The zone is cloned because the store's instance must never be changed through a Calendar.
+			Calendar result = new GregorianCalendar((TimeZone) zone.clone());
+			result.setTimeInMillis(chunk.times[index]);
+			return result;
+		}
+
+		public Set<Contact> getContacts() {
+			int start = chunk.attendeeStart[index];
+			int end = chunk.attendeeStart[index + 1];
+			Contact[] result = new Contact[end - start];
+			int found = 0;
+			for (int i = start; i < end; i++) {
+				Contact attendee = contacts.get(chunk.attendeeIds[i]);
+				if (attendee != null) {
+					result[found] = attendee;
+					found++;
+				}
+			}
+			return new ContactArraySet(found == result.length ? result : Arrays.copyOf(result, found));
+		}
+	}
+
+	/**
+	 * A view of a row holding a future meeting.
+	 */
+	private static class FutureView extends RowView implements FutureMeeting {
+		FutureView(Rows chunk, int index, TimeZone zone, IntHashMap<Contact> contacts) {
+			super(chunk, index, zone, contacts);
+		}
+	}
+
+	/**
+	 * A view of a row holding a past meeting.
+	 * Keeps the notes array and the place of the notes in it, so later notes are not seen.
+	 */
+	private static class PastView extends RowView implements PastMeeting {
+		/**
+		 * The array holding the notes when the view was created.
+		 */
+		private final byte[] notes;
+		/**
+		 * The position of the notes in the array.
+		 */
+		private final int notesStart;
+		/**
+		 * The length of the notes in bytes.
+		 */
+		private final int notesLength;
+
+		PastView(Rows chunk, int index, TimeZone zone, IntHashMap<Contact> contacts) {
+			super(chunk, index, zone, contacts);
+			notes = chunk.notes;
+			notesStart = chunk.notesStart[index];
+			notesLength = chunk.notesLength[index];
+		}
+
+		public String getNotes() {
+			return new String(notes, notesStart, notesLength, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Compares the heap taken by a HashMeetingStore, the meeting store of a default
+ * ContactManagerImpl, with the heap taken by a ColumnarMeetingStore holding the same meetings.
+ *
+ * Each store is given the same past meetings, with two of ten contacts attending and
+ * short notes each. The heap in use is read after a garbage collection before and after
+ * the meetings are added, so the figures are approximate. The date and attendee indexes
+ * of a ContactManagerImpl are the same whichever store it uses, so they are left out.
+ *
+ * Run with: java ColumnarMeetingStoreBenchmark
+ *
+ * @author Gareth Moore.
+ */
+public class ColumnarMeetingStoreBenchmark {
+	/**
+	 * The number of meetings added to each store.
+	 */
+	private static final int MEETINGS = 500000;
+
+	/**
+	 * Measures both meeting stores and prints the bytes taken per meeting by each.
+	 *
+	 * @param args not used.
+	 */
+	public static void main(String[] args) {
+		IntHashMap<Contact> contacts = new IntHashMap<Contact>();
+		for (int i = 0; i < 10; i++) {
+			contacts.put(i + 1, new ContactImpl(i + 1, "Contact " + i, ""));
+		}
+		long hashBytes = measure(new HashMeetingStore(), contacts);
+		long columnarBytes = measure(new ColumnarMeetingStore(contacts), contacts);
+		System.out.println("HashMeetingStore: " + (hashBytes / MEETINGS) + " bytes per meeting");
+		System.out.println("ColumnarMeetingStore: " + (columnarBytes / MEETINGS) + " bytes per meeting");
+	}
+
+	/**
+	 * Adds the meetings to an empty store and measures the heap they take.
+	 *
+	 * @param store the empty store.
+	 * @param contacts the contacts attending the meetings, keyed by contact id.
+	 * @return the growth of the heap in bytes.
+	 */
+	private static long measure(MeetingStore store, IntHashMap<Contact> contacts) {
+		Set<Contact> attendees = new ContactArraySet(new Contact[] {contacts.get(1), contacts.get(2)});
+		TimeZone zone = TimeZone.getDefault();
+		long before = usedHeap();
+		for (int i = 0; i < MEETINGS; i++) {
+			store.add(new PastMeetingImpl(i + 1, new ContactArraySet(attendees), 1000L * i, zone, "Met " + (i % 100)));
+		}
+		long result = usedHeap() - before;
+		//Keeps the store reachable until the heap has been measured.
+		if (store.size() != MEETINGS) {
+			throw new IllegalStateException();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the heap in use after a garbage collection.
+	 *
+	 * @return the heap in use in bytes.
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
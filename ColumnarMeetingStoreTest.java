@@ -0,0 +1,224 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Tests the class ColumnarMeetingStore, and ContactManagerImpl using it.
+ *
+ * @author Gareth Moore.
+ */
+public class ColumnarMeetingStoreTest {
+	ColumnarMeetingStore myStore; // A store to be used in testing.
+	IntHashMap<Contact> contacts; // The contacts which attend the stored meetings.
+	TimeZone zone; // The time zone of most stored meetings.
+
+	@Before
+	public void buildUp() {
+		contacts = new IntHashMap<Contact>();
+		for (int i = 1; i <= 5; i++) {
+			contacts.put(i, new ContactImpl(i, "Contact " + i, ""));
+		}
+		myStore = new ColumnarMeetingStore(contacts);
+		zone = TimeZone.getTimeZone("Europe/London");
+	}
+
+	/**
+	 * A future meeting should be returned as a FutureMeeting view holding the same fields.
+	 */
+	@Test
+	public void shouldReturnFutureMeetingView() {
+		myStore.add(7, 1000L, zone, new int[] {3, 1}, null);
+		Meeting view = myStore.get(7);
+		assertTrue(view instanceof FutureMeeting);
+		assertEquals(7, view.getId());
+		assertEquals(1000L, view.getDate().getTimeInMillis());
+		Set<Contact> expected = new HashSet<Contact>();
+		expected.add(contacts.get(1));
+		expected.add(contacts.get(3));
+		assertEquals(expected, view.getContacts());
+		assertNull(myStore.get(8));
+	}
+
+	/**
+	 * Setting notes should turn a future meeting into a past meeting,
+	 * without changing views already returned.
+	 */
+	@Test
+	public void shouldConvertToPastMeeting() {
+		myStore.add(7, 1000L, zone, new int[] {1}, null);
+		Meeting future = myStore.get(7);
+		myStore.setNotes(7, "First");
+		PastMeeting first = (PastMeeting) myStore.get(7);
+		myStore.setNotes(7, "Replaced \u00e9");
+		Meeting view = myStore.get(7);
+		assertTrue(view instanceof PastMeeting);
+		assertEquals("Replaced \u00e9", ((PastMeeting) view).getNotes());
+		assertTrue(future instanceof FutureMeeting);
+		assertEquals("First", first.getNotes());
+	}
+
+	/**
+	 * Replaced notes should be dropped when the notes grow, leaving every row's current notes intact.
+	 */
+	@Test
+	public void shouldKeepNotesWhenReplacedOften() {
+		for (int id = 1; id <= 50; id++) {
+			myStore.add(id, id, zone, new int[] {1}, "Notes " + id);
+		}
+		for (int round = 0; round < 20; round++) {
+			for (int id = 1; id <= 50; id += 7) {
+				myStore.setNotes(id, "Round " + round + " of " + id);
+			}
+		}
+		for (int id = 1; id <= 50; id++) {
+			String expected = ((id - 1) % 7 == 0) ? "Round 19 of " + id : "Notes " + id;
+			assertEquals(expected, ((PastMeeting) myStore.get(id)).getNotes());
+		}
+	}
+
+	/**
+	 * Attendee ids should be sorted, so membership is found by binary search.
+	 */
+	@Test
+	public void shouldFindAttendees() {
+		int row = myStore.add(1, 0L, zone, new int[] {5, 2, 4}, "Notes");
+		assertTrue(myStore.hasAttendee(row, 4));
+		assertFalse(myStore.hasAttendee(row, 3));
+		assertArrayEquals(new int[] {2, 4, 5}, myStore.getAttendeeIds(row));
+	}
+
+	/**
+	 * Copying a MeetingImpl should keep every field, including its time zone.
+	 */
+	@Test
+	public void shouldCopyExistingMeeting() {
+		Set<Contact> attendees = new HashSet<Contact>();
+		attendees.add(contacts.get(2));
+		Calendar date = new GregorianCalendar(TimeZone.getTimeZone("Asia/Tokyo"));
+		date.set(2014, 5, 1, 9, 0, 0);
+		PastMeeting original = new PastMeetingImpl(attendees, date, "Cave");
+		myStore.add(original);
+		int row = myStore.rowOf(original.getId());
+		assertEquals(original.getId(), myStore.getId(row));
+		assertEquals(original.getDate().getTimeInMillis(), myStore.getTime(row));
+		assertEquals("Cave", myStore.getNotes(row));
+		Calendar copied = myStore.get(original.getId()).getDate();
+		assertEquals("Asia/Tokyo", copied.getTimeZone().getID());
+		assertEquals(9, copied.get(Calendar.HOUR_OF_DAY));
+		MeetingImpl.iDCounter.set(0);
+	}
+
+	/**
+	 * Each meeting should keep its own time zone, and changing a returned Calendar should not change it.
+	 */
+	@Test
+	public void shouldKeepEachMeetingsTimeZone() {
+		myStore.add(1, 0L, zone, new int[] {1}, null);
+		myStore.add(2, 0L, TimeZone.getTimeZone("America/New_York"), new int[] {1}, null);
+		myStore.add(3, 0L, TimeZone.getTimeZone("Europe/London"), new int[] {1}, null);
+		Calendar date = myStore.get(1).getDate();
+		date.getTimeZone().setRawOffset(12345);
+		assertEquals("Europe/London", myStore.get(1).getDate().getTimeZone().getID());
+		assertEquals(0, myStore.get(1).getDate().getTimeZone().getRawOffset());
+		assertEquals("America/New_York", myStore.get(2).getDate().getTimeZone().getID());
+		assertEquals("Europe/London", myStore.get(3).getDate().getTimeZone().getID());
+	}
+
+	/**
+	 * Changes made to a store after it is copied should not be seen by the copy, or the other way round.
+	 */
+	@Test
+	public void shouldNotShareChangesWithCopy() {
+		for (int id = 1; id <= 3000; id++) {
+			myStore.add(id, id, zone, new int[] {1 + (id % 5)}, null);
+		}
+		MeetingStore copy = myStore.copy(contacts);
+		myStore.setNotes(10, "Original");
+		myStore.add(3001, 0L, zone, new int[] {1}, null);
+		copy.setNotes(20, "Copy");
+		copy.add(new FutureMeetingImpl(3002, new ContactArraySet(new Contact[] {contacts.get(2)}), 0L, zone));
+		assertTrue(copy.get(10) instanceof FutureMeeting);
+		assertFalse(copy.containsKey(3001));
+		assertEquals(3001, copy.size());
+		assertEquals("Copy", ((PastMeeting) copy.get(20)).getNotes());
+		assertTrue(copy.get(3002).getContacts().contains(contacts.get(2)));
+		assertEquals("Original", ((PastMeeting) myStore.get(10)).getNotes());
+		assertTrue(myStore.get(20) instanceof FutureMeeting);
+		assertFalse(myStore.containsKey(3002));
+		assertEquals(3001, myStore.size());
+	}
+
+	/**
+	 * Many meetings should all be found by id, and stored in far fewer bytes than MeetingImpls.
+	 */
+	@Test
+	public void shouldStoreManyMeetingsCompactly() {
+		int total = 100000;
+		myStore.ensureCapacity(total);
+		for (int i = 0; i < total; i++) {
+			myStore.add(total - i, i * 60000L, zone, new int[] {1 + (i % 5), 1 + ((i + 1) % 5)}, (i % 2 == 0) ? "Met" : null);
+		}
+		assertEquals(total, myStore.size());
+		for (int id = 1; id <= total; id++) {
+			assertEquals(id, myStore.get(id).getId());
+		}
+		//About 26 bytes per row, 8 for two attendees, a few bytes of notes and two id table slots.
+		//A PastMeetingImpl alone takes about 40 bytes, its ContactArraySet about 40 more,
+		//and its two IntHashMap slots another 16, before any notes or Calendar.
+		long perMeeting = myStore.footprintBytes() / total;
+		assertTrue("Columnar store takes " + perMeeting + " bytes per meeting", perMeeting < 64);
+	}
+
+	/**
+	 * A duplicate id should be rejected.
+	 */
+	@Test
+	public void shouldRejectDuplicateId() {
+		boolean exceptionThrown = false;
+		myStore.add(1, 0L, zone, new int[] {1}, null);
+		try {
+			myStore.add(1, 0L, zone, new int[] {2}, null);
+		} catch (IllegalArgumentException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+	}
+
+	/**
+	 * A ContactManager made by withColumnarMeetings() should add, convert and return meetings
+	 * as the default ContactManager does, and keep its snapshots unchanged.
+	 */
+	@Test
+	public void shouldRunContactManagerOnColumnarStore() {
+		FakeClock clock = new FakeClock(new GregorianCalendar(2015, 0, 1).getTimeInMillis());
+		ContactManagerImpl manager = ContactManagerImpl.withColumnarMeetings(clock);
+		assertTrue(manager.meetingIndex instanceof ColumnarMeetingStore);
+		manager.addNewContact("Alice", "");
+		manager.addNewContact("Bob", "");
+		Set<Contact> attendees = manager.getContacts("Alice");
+		Contact alice = attendees.iterator().next();
+		manager.addNewPastMeeting(attendees, new GregorianCalendar(2014, 5, 1), "Lunch");
+		int futureId = manager.addFutureMeeting(manager.getContacts("Bob"), new GregorianCalendar(2015, 0, 2));
+		int laterId = manager.addFutureMeeting(attendees, new GregorianCalendar(2015, 5, 1));
+		ContactManager before = manager.snapshot();
+
+		clock.advance(2L * 24 * 60 * 60 * 1000);
+		manager.addMeetingNotes(futureId, "Done");
+		assertEquals("Done", manager.getPastMeeting(futureId).getNotes());
+		assertNotNull(before.getFutureMeeting(futureId));
+		assertEquals(laterId, manager.getFutureMeeting(laterId).getId());
+		List<PastMeeting> past = manager.getPastMeetingList(alice);
+		assertEquals(1, past.size());
+		assertEquals("Lunch", past.get(0).getNotes());
+		assertEquals(alice, past.get(0).getContacts().iterator().next());
+		assertEquals(3, manager.getMeetingList(new GregorianCalendar(2014, 0, 1), new GregorianCalendar(2016, 0, 1)).size());
+		MeetingImpl.iDCounter.set(0);
+		ContactImpl.iDCounter.set(0);
+	}
+}
@@ -0,0 +1,450 @@
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.io.IOException;
+
+/**
+ * A thread-safe implementation of the interface ContactManager.
+ *
+ * Wraps a ContactManagerImpl and guards it with two read-write locks:
+ * one for the contacts and one for the meetings. Any number of readers
+ * may hold a lock at once, so lookups proceed in parallel, and adding a
+ * contact does not block meeting lookups.
+ *
+ * When both locks are needed, the contact lock is always taken first,
+ * so the two locks can never deadlock.
+ *
+ * @author Gareth Moore.
+ */
+public class ConcurrentContactManagerImpl implements ContactManager {
+	/**
+	 * The wrapped ContactManager. Only accessed while holding the relevant lock.
+	 */
+	private final ContactManagerImpl manager;
+	/**
+	 * Guards the contacts and their indexes. Package-private so tests can hold it.
+	 */
+	final ReadWriteLock contactLock = new ReentrantReadWriteLock();
+	/**
+	 * Guards the meetings and their indexes. Package-private so tests can hold it.
+	 */
+	final ReadWriteLock meetingLock = new ReentrantReadWriteLock();
+	/**
+	 * Stops two threads writing the contacts file at the same time.
+	 */
+	private final Lock flushLock = new ReentrantLock();
+	/**
+	 * Moves due future meetings into the past at a fixed rate, or null if not started.
+	 */
+	private ScheduledExecutorService migrator = null;
+
+	/**
+	 * Constructor method. Creates an empty ContactManager.
+	 */
+	public ConcurrentContactManagerImpl() {
+		this(new ContactManagerImpl());
+	}
+
+	/**
+	 * Constructor method. Creates an empty ContactManager which reads the time from a clock.
+	 *
+	 * @param clock the clock used to tell whether a meeting is in the past.
+	 */
+	public ConcurrentContactManagerImpl(Clock clock) {
+		this(new ContactManagerImpl(clock));
+	}
+
+	/**
+	 * Constructor method which wraps an existing ContactManagerImpl.
+	 * The wrapped manager must not be used directly once it has been wrapped.
+	 *
+	 * @param manager the ContactManagerImpl to be made thread-safe.
+	 */
+	ConcurrentContactManagerImpl(ContactManagerImpl manager) {
+		this.manager = manager;
+		//Reads only hold read locks, so they must not migrate; migrateIfDue() does it first.
+		manager.migrateOnRead = false;
+	}
+
+	public int addFutureMeeting(Set<Contact> contacts, Calendar date) throws IllegalArgumentException {
+		contactLock.readLock().lock();
+		meetingLock.writeLock().lock();
+		try {
+			return manager.addFutureMeeting(contacts, date);
+		} finally {
+			meetingLock.writeLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	public PastMeeting getPastMeeting(int id) throws IllegalArgumentException {
+		migrateIfDue();
+		meetingLock.readLock().lock();
+		try {
+			return manager.getPastMeeting(id);
+		} finally {
+			meetingLock.readLock().unlock();
+		}
+	}
+
+	public FutureMeeting getFutureMeeting(int id) throws IllegalArgumentException {
+		migrateIfDue();
+		meetingLock.readLock().lock();
+		try {
+			return manager.getFutureMeeting(id);
+		} finally {
+			meetingLock.readLock().unlock();
+		}
+	}
+
+	public Meeting getMeeting(int id) {
+		migrateIfDue();
+		meetingLock.readLock().lock();
+		try {
+			return manager.getMeeting(id);
+		} finally {
+			meetingLock.readLock().unlock();
+		}
+	}
+
+	public List<Meeting> getFutureMeetingList(Contact contact) throws IllegalArgumentException {
+		migrateIfDue();
+		contactLock.readLock().lock();
+		meetingLock.readLock().lock();
+		try {
+			return manager.getFutureMeetingList(contact);
+		} finally {
+			meetingLock.readLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	public List<Meeting> getFutureMeetingList(Calendar date) {
+		migrateIfDue();
+		meetingLock.readLock().lock();
+		try {
+			return manager.getFutureMeetingList(date);
+		} finally {
+			meetingLock.readLock().unlock();
+		}
+	}
+
+	public List<Meeting> getMeetingList(Calendar from, Calendar to) {
+		migrateIfDue();
+		meetingLock.readLock().lock();
+		try {
+			return manager.getMeetingList(from, to);
+		} finally {
+			meetingLock.readLock().unlock();
+		}
+	}
+
+	public List<Meeting> getMeetingList(Calendar day, TimeZone zone) {
+		migrateIfDue();
+		meetingLock.readLock().lock();
+		try {
+			return manager.getMeetingList(day, zone);
+		} finally {
+			meetingLock.readLock().unlock();
+		}
+	}
+
+	public List<PastMeeting> getPastMeetingList(Contact contact) throws IllegalArgumentException {
+		migrateIfDue();
+		contactLock.readLock().lock();
+		meetingLock.readLock().lock();
+		try {
+			return manager.getPastMeetingList(contact);
+		} finally {
+			meetingLock.readLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns an iterator over the past meetings with a contact, in chronological order.
+	 *
+	 * The iterator is detached from the wrapped manager while the locks are held, so it
+	 * needs no lock and is not disturbed by later changes. Only the contact's posting list
+	 * and the meeting index are shared with it, so the next change copies at most a chunk
+	 * of the meeting index. See ContactManagerImpl.detachedMeetings(). Detaching marks them
+	 * as shared, which several readers may do at once, because each only gives up ownership
+	 * and the next writer sees the result once it takes a write lock.
+	 *
+	 * @param contact one of the stored contacts.
+	 * @return an iterator over the past meetings with the contact.
+	 * @throws IllegalArgumentException if the contact is not stored.
+	 */
+	public Iterator<PastMeeting> getPastMeetings(Contact contact) throws IllegalArgumentException {
+		migrateIfDue();
+		contactLock.readLock().lock();
+		meetingLock.readLock().lock();
+		try {
+			return manager.<PastMeeting>detachedMeetings(contact, PastMeeting.class);
+		} finally {
+			meetingLock.readLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns an iterator over the future meetings with a contact, in chronological order.
+	 * See getPastMeetings().
+	 *
+	 * @param contact one of the stored contacts.
+	 * @return an iterator over the future meetings with the contact.
+	 * @throws IllegalArgumentException if the contact is not stored.
+	 */
+	public Iterator<Meeting> getFutureMeetings(Contact contact) throws IllegalArgumentException {
+		migrateIfDue();
+		contactLock.readLock().lock();
+		meetingLock.readLock().lock();
+		try {
+			return manager.<Meeting>detachedMeetings(contact, FutureMeeting.class);
+		} finally {
+			meetingLock.readLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	public void addNewPastMeeting(Set<Contact> contacts, Calendar date, String text) throws IllegalArgumentException, NullPointerException {
+		contactLock.readLock().lock();
+		meetingLock.writeLock().lock();
+		try {
+			manager.addNewPastMeeting(contacts, date, text);
+		} finally {
+			meetingLock.writeLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	public void addMeetingNotes(int id, String text) throws IllegalArgumentException, NullPointerException, IllegalStateException {
+		//The contact lock is taken as well so that no two writers ever run at once.
+		//A journaled manager may compact during any write, which reads every contact and meeting.
+		contactLock.readLock().lock();
+		meetingLock.writeLock().lock();
+		try {
+			manager.addMeetingNotes(id, text);
+		} finally {
+			meetingLock.writeLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	public void addNewContact(String name, String notes) throws NullPointerException {
+		contactLock.writeLock().lock();
+		try {
+			manager.addNewContact(name, notes);
+		} finally {
+			contactLock.writeLock().unlock();
+		}
+	}
+
+	public int[] addNewContacts(String[] names, String[] notes) throws NullPointerException, IllegalArgumentException {
+		contactLock.writeLock().lock();
+		try {
+			return manager.addNewContacts(names, notes);
+		} finally {
+			contactLock.writeLock().unlock();
+		}
+	}
+
+	public int[] addFutureMeetings(List<Set<Contact>> contacts, List<Calendar> dates) throws IllegalArgumentException, NullPointerException {
+		contactLock.readLock().lock();
+		meetingLock.writeLock().lock();
+		try {
+			return manager.addFutureMeetings(contacts, dates);
+		} finally {
+			meetingLock.writeLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	public int[] addNewPastMeetings(List<Set<Contact>> contacts, List<Calendar> dates, List<String> texts) throws IllegalArgumentException, NullPointerException {
+		contactLock.readLock().lock();
+		meetingLock.writeLock().lock();
+		try {
+			return manager.addNewPastMeetings(contacts, dates, texts);
+		} finally {
+			meetingLock.writeLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	public Set<Contact> getContacts(int... ids) throws IllegalArgumentException {
+		contactLock.readLock().lock();
+		try {
+			return manager.getContacts(ids);
+		} finally {
+			contactLock.readLock().unlock();
+		}
+	}
+
+	public Set<Contact> getContacts(String name) throws NullPointerException {
+		contactLock.readLock().lock();
+		try {
+			return manager.getContacts(name);
+		} finally {
+			contactLock.readLock().unlock();
+		}
+	}
+
+	public List<Contact> getContactsByPrefix(String prefix, int limit) throws NullPointerException, IllegalArgumentException {
+		contactLock.readLock().lock();
+		try {
+			return manager.getContactsByPrefix(prefix, limit);
+		} finally {
+			contactLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns a ticket for the durability of every change made so far.
+	 * See ContactManagerImpl.sync().
+	 *
+	 * @return a Future completed once every change made so far is in the journal on disk.
+	 */
+	public Future<Void> sync() {
+		//Writers are held off so that the ticket covers every change which has returned.
+		contactLock.readLock().lock();
+		meetingLock.readLock().lock();
+		try {
+			return manager.sync();
+		} finally {
+			meetingLock.readLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the current state to the contacts file on a background thread.
+	 * See ContactManagerImpl.flushInBackground().
+	 *
+	 * Writers are only held off while the state is frozen, which copies no entries,
+	 * rather than for the whole time the file is being written.
+	 *
+	 * @return a Future completed once the file has been written.
+	 */
+	public Future<Void> flushInBackground() {
+		flushLock.lock();
+		contactLock.readLock().lock();
+		meetingLock.readLock().lock();
+		try {
+			return manager.flushInBackground();
+		} finally {
+			meetingLock.readLock().unlock();
+			contactLock.readLock().unlock();
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Moves every future meeting whose date has passed into the past.
+	 * See ContactManagerImpl.migrateDueMeetings().
+	 *
+	 * @return the number of meetings moved into the past.
+	 */
+	public int migrateDueMeetings() {
+		contactLock.readLock().lock();
+		meetingLock.writeLock().lock();
+		try {
+			return manager.migrateDueMeetings();
+		} finally {
+			meetingLock.writeLock().unlock();
+			contactLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Moves due meetings into the past before meetings are read, so a due meeting is never
+	 * returned as future. Only takes the write locks if a meeting is due, so reads between
+	 * due dates share the read lock as before.
+	 */
+	private void migrateIfDue() {
+		boolean due;
+		meetingLock.readLock().lock();
+		try {
+			due = manager.hasDueMeetings();
+		} finally {
+			meetingLock.readLock().unlock();
+		}
+		if (due) {
+			migrateDueMeetings();
+		}
+	}
+
+	/**
+	 * Starts moving due future meetings into the past on a background thread, at a fixed rate.
+	 * The meeting write lock is only held while a batch of due meetings is moved.
+	 * Has no effect if migration has already been started.
+	 *
+	 * @param period the time between migrations.
+	 * @param unit the unit of period.
+	 */
+	public synchronized void startMigration(long period, TimeUnit unit) {
+		if (migrator != null) {
+			return;
+		}
+		migrator = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread result = new Thread(task, "ContactManager migrator");
+				result.setDaemon(true);
+				return result;
+			}
+		});
+		migrator.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				migrateDueMeetings();
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Stops background migration, then closes the wrapped ContactManagerImpl.
+	 * See ContactManagerImpl.close().
+	 *
+	 * @throws IOException if the journal cannot be closed.
+	 */
+	public void close() throws IOException {
+		synchronized (this) {
+			if (migrator != null) {
+				migrator.shutdownNow();
+				migrator = null;
+			}
+		}
+		flushLock.lock();
+		contactLock.writeLock().lock();
+		meetingLock.writeLock().lock();
+		try {
+			manager.close();
+		} finally {
+			meetingLock.writeLock().unlock();
+			contactLock.writeLock().unlock();
+			flushLock.unlock();
+		}
+	}
+
+	public void flush() {
+		flushLock.lock();
+		contactLock.readLock().lock();
+		meetingLock.readLock().lock();
+		try {
+			manager.flush();
+		} finally {
+			meetingLock.readLock().unlock();
+			contactLock.readLock().unlock();
+			flushLock.unlock();
+		}
+	}
+}
@@ -0,0 +1,228 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.After;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the class ConcurrentContactManagerImpl.
+ *
+ * @author Gareth Moore.
+ */
+public class ConcurrentContactManagerTest {
+	static final int THREADS = 8; //The number of threads used in each test.
+	static final int PER_THREAD = 1000; //The number of operations performed by each thread.
+	ContactManager myContactManager; //A ContactManager object to be used in testing.
+
+	/**
+	 * Creates an empty thread-safe ContactManager.
+	 */
+	@Before
+	public void buildUp() {
+		myContactManager = new ConcurrentContactManagerImpl();
+	}
+
+	/**
+	 * Resets the static id counters after each test.
+	 */
+	@After
+	public void cleanUp() {
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+	}
+
+	/**
+	 * Runs the same task on several threads at once and waits for them all to finish.
+	 *
+	 * @param task the task to be run on every thread.
+	 */
+	private void runOnThreads(Runnable task) throws InterruptedException {
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < THREADS; i++) {
+			threads[i] = new Thread(task);
+			threads[i].start();
+		}
+		for (int i = 0; i < THREADS; i++) {
+			threads[i].join();
+		}
+	}
+
+	/**
+	 * Tests addNewContact() from several threads.
+	 *
+	 * Every contact should receive a unique id, so ids 1 to THREADS * PER_THREAD should all exist.
+	 */
+	@Test
+	public void shouldAssignUniqueContactIdsAcrossThreads() throws InterruptedException {
+		runOnThreads(new Runnable() {
+			public void run() {
+				for (int i = 0; i < PER_THREAD; i++) {
+					myContactManager.addNewContact("Wally West", "Kid Flash");
+				}
+			}
+		});
+		int total = THREADS * PER_THREAD;
+		int[] ids = new int[total];
+		for (int i = 0; i < total; i++) {
+			ids[i] = i + 1;
+		}
+		Set<Contact> testSet = myContactManager.getContacts(ids);
+		assertEquals(total, testSet.size());
+	}
+
+	/**
+	 * Tests addNewPastMeeting() and getPastMeetingList() from several threads.
+	 *
+	 * Readers run alongside writers, and every meeting should be recorded once.
+	 */
+	@Test
+	public void shouldRecordEveryMeetingAcrossThreads() throws InterruptedException {
+		myContactManager.addNewContact("Barry Allen", "The Fastest Man Alive");
+		final Set<Contact> attendees = myContactManager.getContacts(1);
+		final Contact flash = attendees.iterator().next();
+		runOnThreads(new Runnable() {
+			public void run() {
+				for (int i = 0; i < PER_THREAD; i++) {
+					myContactManager.addNewPastMeeting(attendees, new GregorianCalendar(2014, 0, 1 + (i % 28)), "Speed Force");
+					myContactManager.getPastMeetingList(flash);
+				}
+			}
+		});
+		List<PastMeeting> testList = myContactManager.getPastMeetingList(flash);
+		assertEquals(THREADS * PER_THREAD, testList.size());
+	}
+
+	/**
+	 * Tests getPastMeetings().
+	 *
+	 * An iterator should not see meetings added after it was created.
+	 */
+	@Test
+	public void shouldIterateStateAtCreation() {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		Set<Contact> batman = myContactManager.getContacts(1);
+		myContactManager.addNewPastMeeting(batman, new GregorianCalendar(2014, 1, 1), "First");
+		Iterator<PastMeeting> iterator = myContactManager.getPastMeetings(batman.iterator().next());
+		myContactManager.addNewPastMeeting(batman, new GregorianCalendar(2013, 1, 1), "Earlier");
+		assertEquals("First", iterator.next().getNotes());
+		assertFalse(iterator.hasNext());
+		assertEquals(2, myContactManager.getPastMeetingList(batman.iterator().next()).size());
+	}
+
+	/**
+	 * Tests startMigration().
+	 *
+	 * A future meeting should be moved into the past in the background once its date has passed.
+	 */
+	@Test
+	public void shouldMigrateInBackground() throws Exception {
+		ConcurrentContactManagerImpl manager = (ConcurrentContactManagerImpl) myContactManager;
+		manager.addNewContact("Bruce Wayne", "Batman");
+		Calendar soon = Calendar.getInstance();
+		soon.add(Calendar.MILLISECOND, 200);
+		int id = manager.addFutureMeeting(manager.getContacts(1), soon);
+		manager.startMigration(20, TimeUnit.MILLISECONDS);
+		//Reads would migrate the meeting themselves, so none is made until it should have been moved.
+		Thread.sleep(1200);
+		assertEquals(0, manager.migrateDueMeetings());
+		manager.close();
+		assertTrue(manager.getMeeting(id) instanceof PastMeeting);
+		assertEquals("", manager.getPastMeeting(id).getNotes());
+	}
+
+	/**
+	 * Tests getFutureMeetings().
+	 *
+	 * An iterator should not see future meetings added after it was created,
+	 * and should skip the contact's past meetings.
+	 */
+	@Test
+	public void shouldIterateFutureStateAtCreation() {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		Set<Contact> batman = myContactManager.getContacts(1);
+		for (int day = 1; day <= 28; day++) {
+			myContactManager.addNewPastMeeting(batman, new GregorianCalendar(2014, 1, day), "Patrol");
+		}
+		Calendar nextYear = Calendar.getInstance();
+		nextYear.add(Calendar.YEAR, 1);
+		int id = myContactManager.addFutureMeeting(batman, nextYear);
+		Iterator<Meeting> iterator = myContactManager.getFutureMeetings(batman.iterator().next());
+		Calendar nextMonth = Calendar.getInstance();
+		nextMonth.add(Calendar.MONTH, 1);
+		myContactManager.addFutureMeeting(batman, nextMonth);
+		assertEquals(id, iterator.next().getId());
+		assertFalse(iterator.hasNext());
+		assertEquals(2, myContactManager.getFutureMeetingList(batman.iterator().next()).size());
+	}
+
+	/**
+	 * Tests getFutureMeetingList() and getPastMeetingList().
+	 *
+	 * A future meeting whose date has passed should be read as past, without waiting for a migration.
+	 */
+	@Test
+	public void shouldMigrateBeforeReading() {
+		FakeClock clock = new FakeClock(0L);
+		ContactManager manager = new ConcurrentContactManagerImpl(clock);
+		manager.addNewContact("Bruce Wayne", "Batman");
+		Contact batman = manager.getContacts(1).iterator().next();
+		int id = manager.addFutureMeeting(manager.getContacts(1), new GregorianCalendar(2000, 0, 1));
+		assertEquals(1, manager.getFutureMeetingList(batman).size());
+		clock.set(new GregorianCalendar(2000, 0, 2).getTimeInMillis());
+		assertEquals(0, manager.getFutureMeetingList(batman).size());
+		assertEquals(id, manager.getPastMeetingList(batman).get(0).getId());
+		assertFalse(manager.getFutureMeetings(batman).hasNext());
+	}
+
+	/**
+	 * Contacts should be read while a writer holds the meeting lock, and meetings
+	 * should be read while a writer holds the contact lock.
+	 */
+	@Test
+	public void shouldReadWhileOtherLockIsWritten() throws InterruptedException {
+		final ConcurrentContactManagerImpl manager = new ConcurrentContactManagerImpl(new FakeClock(0L));
+		manager.addNewContact("Bruce Wayne", "Batman");
+		final int id = manager.addFutureMeeting(manager.getContacts(1), new GregorianCalendar(2000, 0, 1));
+		manager.meetingLock.writeLock().lock();
+		try {
+			assertTrue(finishes(new Runnable() {
+				public void run() {
+					manager.getContacts(1);
+					manager.getContacts("Bruce");
+					manager.getContactsByPrefix("Br", 5);
+				}
+			}));
+		} finally {
+			manager.meetingLock.writeLock().unlock();
+		}
+		manager.contactLock.writeLock().lock();
+		try {
+			assertTrue(finishes(new Runnable() {
+				public void run() {
+					manager.getFutureMeeting(id);
+					manager.getMeeting(id);
+				}
+			}));
+		} finally {
+			manager.contactLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Runs a task on another thread and waits a while for it to finish.
+	 *
+	 * @param task the task to be run.
+	 * @return true if the task finished within five seconds.
+	 */
+	private boolean finishes(Runnable task) throws InterruptedException {
+		Thread reader = new Thread(task);
+		reader.start();
+		reader.join(5000);
+		return !reader.isAlive();
+	}
+}
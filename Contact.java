@@ -33,7 +33,11 @@ public interface Contact {
 	/**
 	 * Add notes about the contact.
 	 *
+	 * Contacts returned by a ContactManager are the ones it stores, not
+	 * copies, so they cannot be changed and refuse new notes.
+	 *
 	 * @param note the notes to be added
+	 * @throws UnsupportedOperationException if the contact is stored by a ContactManager
 	 */
 	void addNotes(String note);
 
@@ -0,0 +1,147 @@
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An unmodifiable set of contacts held in an array sorted by id.
+ *
+ * Used for the attendees of a meeting. An array costs four bytes per contact, where a
+ * HashSet costs a table slot and an entry object for each one. Membership is found by
+ * binary search on the id, then confirmed with equals(), so the set behaves like any
+ * other Set of Contacts.
+ *
+ * @author Gareth Moore.
+ */
+public class ContactArraySet extends AbstractSet<Contact> {
+	/**
+	 * Orders contacts by id.
+	 */
+	private static final Comparator<Contact> BY_ID = new Comparator<Contact>() {
+		public int compare(Contact left, Contact right) {
+			return Integer.compare(left.getId(), right.getId());
+		}
+	};
+	/**
+	 * The contacts in the set, sorted by id. Never changed once the set is created.
+	 */
+	private final Contact[] contacts;
+
+	/**
+	 * Constructor method. Copies a collection of contacts.
+	 *
+	 * @param source the contacts to be held in the set. Duplicates are held once.
+	 */
+	public ContactArraySet(Collection<? extends Contact> source) {
+		this(source.toArray(new Contact[source.size()]));
+	}
+
+	/**
+	 * Constructor method which takes ownership of an array of contacts.
+	 * The array is sorted in place and must not be changed by the caller afterwards.
+	 *
+	 * @param source the contacts to be held in the set. Duplicates are held once.
+	 */
+	ContactArraySet(Contact[] source) {
+		Arrays.sort(source, BY_ID);
+		int size = 0;
+		for (int i = 0; i < source.length; i++) {
+			if (indexOf(source, size, source[i]) < 0) {
+				source[size] = source[i];
+				size++;
+			}
+		}
+		contacts = (size == source.length) ? source : Arrays.copyOf(source, size);
+	}
+
+	/**
+	 * Tests whether the set holds a contact with the given id.
+	 *
+	 * @param id the id of the contact.
+	 * @return true if a contact in the set has the id.
+	 */
+	public boolean containsId(int id) {
+		int position = firstWithId(contacts, contacts.length, id);
+		return position < contacts.length && contacts[position].getId() == id;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Contact)) {
+			return false;
+		}
+		return indexOf(contacts, contacts.length, (Contact) o) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return contacts.length;
+	}
+
+	@Override
+	public Iterator<Contact> iterator() {
+		return new Iterator<Contact>() {
+			private int next = 0;
+
+			public boolean hasNext() {
+				return next < contacts.length;
+			}
+
+			public Contact next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Contact result = contacts[next];
+				next++;
+				return result;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Finds a contact equal to the given one among the first size entries of a sorted array.
+	 * Contacts with the same id but different fields are not equal, so every entry with the id is checked.
+	 *
+	 * @param sorted the array, sorted by id.
+	 * @param size the number of entries in use.
+	 * @param contact the contact to be found.
+	 * @return the position of an equal contact, or -1 if there is none.
+	 */
+	private static int indexOf(Contact[] sorted, int size, Contact contact) {
+		int id = contact.getId();
+		for (int i = firstWithId(sorted, size, id); i < size && sorted[i].getId() == id; i++) {
+			if (sorted[i].equals(contact)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the first position whose contact id is not less than id.
+	 *
+	 * @param sorted the array, sorted by id.
+	 * @param size the number of entries in use.
+	 * @param id the id to be found.
+	 * @return the first position whose id is at least id, or size if there is none.
+	 */
+	private static int firstWithId(Contact[] sorted, int size, int id) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sorted[middle].getId() < id) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,104 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests the class ContactArraySet.
+ *
+ * @author Gareth Moore.
+ */
+public class ContactArraySetTest {
+	List<Contact> source; // The contacts copied into the set, in no particular order.
+	ContactArraySet mySet; // A set to be used in testing.
+
+	@Before
+	public void buildUp() {
+		source = new ArrayList<Contact>();
+		source.add(new ContactImpl(5, "Bruce Wayne", "Batman"));
+		source.add(new ContactImpl(2, "Dick Grayson", "Robin"));
+		source.add(new ContactImpl(9, "Selina Kyle", ""));
+		mySet = new ContactArraySet(source);
+	}
+
+	/**
+	 * The set should be equal to a HashSet of the same contacts, in both directions.
+	 */
+	@Test
+	public void shouldEqualHashSet() {
+		Set<Contact> expected = new HashSet<Contact>(source);
+		assertEquals(3, mySet.size());
+		assertEquals(expected, mySet);
+		assertEquals(mySet, expected);
+		assertEquals(expected.hashCode(), mySet.hashCode());
+	}
+
+	/**
+	 * The contacts should be iterated in order of id.
+	 */
+	@Test
+	public void shouldIterateById() {
+		Iterator<Contact> iterator = mySet.iterator();
+		assertEquals(2, iterator.next().getId());
+		assertEquals(5, iterator.next().getId());
+		assertEquals(9, iterator.next().getId());
+		assertFalse(iterator.hasNext());
+	}
+
+	/**
+	 * contains() should need an equal contact, not just a matching id.
+	 */
+	@Test
+	public void shouldCompareWholeContact() {
+		assertTrue(mySet.contains(new ContactImpl(5, "Bruce Wayne", "Batman")));
+		assertFalse(mySet.contains(new ContactImpl(5, "Bruce Wayne", "Not Batman")));
+		assertFalse(mySet.contains(new ContactImpl(6, "Bruce Wayne", "Batman")));
+		assertFalse(mySet.contains("Bruce Wayne"));
+		assertTrue(mySet.containsId(9));
+		assertFalse(mySet.containsId(3));
+		assertFalse(mySet.containsId(10));
+	}
+
+	/**
+	 * Duplicate contacts should be held once.
+	 */
+	@Test
+	public void shouldDropDuplicates() {
+		source.add(new ContactImpl(2, "Dick Grayson", "Robin"));
+		source.add(source.get(0));
+		ContactArraySet duplicated = new ContactArraySet(source);
+		assertEquals(3, duplicated.size());
+		assertEquals(mySet, duplicated);
+		assertEquals(0, new ContactArraySet(new ArrayList<Contact>()).size());
+	}
+
+	/**
+	 * The set should not be changed by its source, nor by any caller.
+	 */
+	@Test
+	public void shouldBeUnmodifiable() {
+		source.clear();
+		assertEquals(3, mySet.size());
+		boolean exceptionThrown = false;
+		try {
+			mySet.add(new ContactImpl(1, "Alfred Pennyworth", ""));
+		} catch (UnsupportedOperationException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		exceptionThrown = false;
+		try {
+			Iterator<Contact> iterator = mySet.iterator();
+			iterator.next();
+			iterator.remove();
+		} catch (UnsupportedOperationException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		assertEquals(3, mySet.size());
+	}
+}
@@ -0,0 +1,441 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Restores a ContactManagerImpl from a file written by ContactFileWriter.
+ *
+ * Each section of the file is memory-mapped and parsed on a pool of threads.
+ * Contact sections are parsed first, so that meeting sections can look up their
+ * attendees while they are parsed. The parsed records are then stored on the calling
+ * thread, because the indexes of ContactManagerImpl are not thread-safe. Meetings are
+ * stored in date order, so each one is appended to the end of its posting lists.
+ *
+ * The time taken by the last call to read() is kept as a startup metric.
+ *
+ * @author Gareth Moore.
+ */
+public class ContactFileReader {
+	/**
+	 * The most bytes the file header can take: magic, version and two five-byte varints.
+	 */
+	private static final int HEADER_SIZE = 15;
+	/**
+	 * Orders meetings by date alone, so a stable sort keeps meetings at the same instant in file order.
+	 */
+	private static final Comparator<Meeting> BY_DATE = new Comparator<Meeting>() {
+		public int compare(Meeting left, Meeting right) {
+			return Long.compare(MeetingImpl.timeOf(left), MeetingImpl.timeOf(right));
+		}
+	};
+	/**
+	 * The file being read.
+	 */
+	private final File file;
+	/**
+	 * The number of threads used to parse sections.
+	 */
+	private final int threads;
+	/**
+	 * The clock given to each ContactManagerImpl read.
+	 */
+	private final Clock clock;
+	/**
+	 * The time in nanoseconds taken by the last successful call to read(), or -1 if there was none.
+	 */
+	private long elapsedNanos = -1;
+
+	/**
+	 * Constructor method. Parses sections on one thread per available processor.
+	 *
+	 * @param file the file to be read.
+	 */
+	public ContactFileReader(File file) {
+		this(file, Clock.SYSTEM);
+	}
+
+	/**
+	 * Constructor method. Parses sections on one thread per available processor.
+	 *
+	 * @param file the file to be read.
+	 * @param clock the clock used by the ContactManagerImpl read to tell whether a meeting is in the past.
+	 */
+	public ContactFileReader(File file, Clock clock) {
+		this(file, Runtime.getRuntime().availableProcessors(), clock);
+	}
+
+	/**
+	 * Constructor method.
+	 *
+	 * @param file the file to be read.
+	 * @param threads the number of threads used to parse sections.
+	 * @throws IllegalArgumentException if threads is less than one.
+	 */
+	public ContactFileReader(File file, int threads) throws IllegalArgumentException {
+		this(file, threads, Clock.SYSTEM);
+	}
+
+	/**
+	 * Constructor method.
+	 *
+	 * @param file the file to be read.
+	 * @param threads the number of threads used to parse sections.
+	 * @param clock the clock used by the ContactManagerImpl read to tell whether a meeting is in the past.
+	 * @throws IllegalArgumentException if threads is less than one.
+	 */
+	public ContactFileReader(File file, int threads, Clock clock) throws IllegalArgumentException {
+		if (threads < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.file = file;
+		this.threads = threads;
+		this.clock = clock;
+	}
+
+	/**
+	 * Reads every contact and meeting in the file into a new ContactManagerImpl.
+	 * Sets the ContactImpl and MeetingImpl id counters to the values saved in the file.
+	 * Future meetings are read as they were saved, even if they are now due;
+	 * ContactManagerImpl.load() moves those into the past.
+	 *
+	 * @return a ContactManagerImpl holding the saved contacts and meetings.
+	 * @throws IOException if the file cannot be read, is not a contacts file or is corrupt.
+	 */
+	public ContactManagerImpl read() throws IOException {
+		long start = System.nanoTime();
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_SIZE));
+			int contactIdCounter;
+			int meetingIdCounter;
+			byte version;
+			try {
+				if (header.getInt() != ContactFileWriter.MAGIC) {
+					throw new IOException("Not a contacts file: " + file);
+				}
+				version = header.get();
+				if (version < 1 || version > ContactFileWriter.VERSION) {
+					throw new IOException("Unsupported contacts file version: " + file);
+				}
+				contactIdCounter = readVarint(header);
+				meetingIdCounter = readVarint(header);
+			} catch (BufferUnderflowException ex) {
+				throw new IOException("Truncated contacts file: " + file, ex);
+			}
+			List<MappedByteBuffer> contactSections = new ArrayList<MappedByteBuffer>();
+			List<MappedByteBuffer> meetingSections = new ArrayList<MappedByteBuffer>();
+			mapSections(channel, header.position(), contactSections, meetingSections);
+
+			ContactManagerImpl result = new ContactManagerImpl(clock);
+			result.contactIndex.ensureCapacity(countRecords(contactSections));
+			List<Future<Contact[]>> parsedContacts = new ArrayList<Future<Contact[]>>();
+			for (int i = 0; i < contactSections.size(); i++) {
+				parsedContacts.add(pool.submit(new ContactParser(contactSections.get(i))));
+			}
+			for (int i = 0; i < parsedContacts.size(); i++) {
+				Contact[] section = await(parsedContacts.get(i));
+				for (int j = 0; j < section.length; j++) {
+					result.insertContact(section[j]);
+				}
+			}
+
+			//The contact index is complete and no longer changes, so the parsers can share it.
+			int meetingCount = countRecords(meetingSections);
+			result.meetingIndex.ensureCapacity(meetingCount);
+			List<Future<Meeting[]>> parsedMeetings = new ArrayList<Future<Meeting[]>>();
+			for (int i = 0; i < meetingSections.size(); i++) {
+				parsedMeetings.add(pool.submit(new MeetingParser(meetingSections.get(i), result.contactIndex, version >= 2)));
+			}
+			Meeting[] meetings = new Meeting[meetingCount];
+			int parsed = 0;
+			for (int i = 0; i < parsedMeetings.size(); i++) {
+				Meeting[] section = await(parsedMeetings.get(i));
+				System.arraycopy(section, 0, meetings, parsed, section.length);
+				parsed += section.length;
+			}
+			//Files written by flush() are already in date order, which the sort checks in linear time.
+			//Older files are in no particular order, and inserting them as read would shift every posting list.
+			Arrays.sort(meetings, BY_DATE);
+			for (int i = 0; i < meetings.length; i++) {
+				result.insertMeeting(meetings[i]);
+			}
+
+			ContactImpl.iDCounter.set(contactIdCounter);
+			MeetingImpl.iDCounter.set(meetingIdCounter);
+			elapsedNanos = System.nanoTime() - start;
+			return result;
+		} finally {
+			pool.shutdownNow();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the time taken by the last successful call to read().
+	 *
+	 * @return the time in nanoseconds, or -1 if read() has not succeeded.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Walks the section headers and maps the body of every section.
+	 * Sections of an unknown type are skipped.
+	 *
+	 * @param channel the channel being read.
+	 * @param position the file position of the first section.
+	 * @param contactSections the list to which contact sections are added.
+	 * @param meetingSections the list to which meeting sections are added.
+	 */
+	private void mapSections(FileChannel channel, long position, List<MappedByteBuffer> contactSections,
+			List<MappedByteBuffer> meetingSections) throws IOException {
+		long size = channel.size();
+		long next = position;
+		ByteBuffer sectionHeader = ByteBuffer.allocate(5);
+		while (next < size) {
+			sectionHeader.clear();
+			while (sectionHeader.hasRemaining()) {
+				if (channel.read(sectionHeader, next + sectionHeader.position()) < 0) {
+					throw new IOException("Truncated contacts file: " + file);
+				}
+			}
+			sectionHeader.flip();
+			byte type = sectionHeader.get();
+			int length = sectionHeader.getInt();
+			long body = next + 5;
+			if (length < 4 || body + length > size) {
+				throw new IOException("Corrupt section at position " + next + " of " + file);
+			}
+			if (type == ContactFileWriter.CONTACT_SECTION) {
+				contactSections.add(channel.map(FileChannel.MapMode.READ_ONLY, body, length));
+			} else if (type == ContactFileWriter.MEETING_SECTION) {
+				meetingSections.add(channel.map(FileChannel.MapMode.READ_ONLY, body, length));
+			}
+			next = body + length;
+		}
+	}
+
+	/**
+	 * Adds up the record counts of a list of sections.
+	 *
+	 * @param sections the mapped sections.
+	 * @return the total number of records in the sections.
+	 */
+	private static int countRecords(List<MappedByteBuffer> sections) {
+		int result = 0;
+		for (int i = 0; i < sections.size(); i++) {
+			//Absolute get, so the section's position is left at the start.
+			result += sections.get(i).getInt(0);
+		}
+		return result;
+	}
+
+	/**
+	 * Waits for a parser to finish and returns its records.
+	 *
+	 * @param parsed the parser's result.
+	 * @return the parsed records.
+	 * @throws IOException if the parser failed or the wait was interrupted.
+	 */
+	private <T> T await(Future<T> parsed) throws IOException {
+		try {
+			return parsed.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			//A record ran past the end of its section.
+			throw new IOException("Corrupt contacts file: " + file, cause);
+		}
+	}
+
+	/**
+	 * Reads a varint written by ContactFileWriter.
+	 *
+	 * @param buffer the buffer to read from.
+	 * @return the value of the varint.
+	 */
+	static int readVarint(ByteBuffer buffer) {
+		int result = 0;
+		int shift = 0;
+		byte next;
+		do {
+			next = buffer.get();
+			result |= (next & 0x7F) << shift;
+			shift += 7;
+		} while ((next & 0x80) != 0 && shift < 35);
+		return result;
+	}
+
+	/**
+	 * Reads a string written by ContactFileWriter.
+	 *
+	 * @param buffer the buffer to read from.
+	 * @return the string.
+	 */
+	static String readString(ByteBuffer buffer) {
+		int length = readVarint(buffer);
+		if (length == 0) {
+			return "";
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a string written by ContactFileWriter, sharing it with equal strings read through the same pool.
+	 *
+	 * @param buffer the buffer to read from.
+	 * @param strings the pool of strings read so far.
+	 * @return the shared string.
+	 */
+	static String readString(ByteBuffer buffer, StringPool strings) {
+		return strings.intern(readString(buffer));
+	}
+
+	/**
+	 * Parses one contact section.
+	 */
+	private static class ContactParser implements Callable<Contact[]> {
+		/**
+		 * The body of the section, starting at its record count.
+		 */
+		private final ByteBuffer section;
+		/**
+		 * Shares repeated names and notes within the section. Dropped once the section is parsed.
+		 */
+		private final StringPool strings = new StringPool();
+
+		/**
+		 * Constructor method.
+		 *
+		 * @param section the body of the section, starting at its record count.
+		 */
+		ContactParser(ByteBuffer section) {
+			this.section = section;
+		}
+
+		public Contact[] call() {
+			Contact[] result = new Contact[section.getInt()];
+			for (int i = 0; i < result.length; i++) {
+				int id = readVarint(section);
+				String name = readString(section, strings);
+				String notes = readString(section, strings);
+				result[i] = new ContactImpl(id, name, notes);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Parses one meeting section.
+	 * Attendees are looked up in a contact index which must not change while parsing.
+	 */
+	private static class MeetingParser implements Callable<Meeting[]> {
+		/**
+		 * The body of the section, starting at its record count.
+		 */
+		private final ByteBuffer section;
+		/**
+		 * Every stored contact, keyed by contact id.
+		 */
+		private final IntHashMap<Contact> contactIndex;
+		/**
+		 * Shares repeated notes within the section. Dropped once the section is parsed.
+		 */
+		private final StringPool strings = new StringPool();
+		/**
+		 * Set if each record holds its time zone, as in version 2 files.
+		 */
+		private final boolean zoned;
+		/**
+		 * The time zones met so far in the section, in the order they were introduced.
+		 */
+		private final List<TimeZone> zones = new ArrayList<TimeZone>();
+
+		/**
+		 * Constructor method.
+		 *
+		 * @param section the body of the section, starting at its record count.
+		 * @param contactIndex every stored contact, keyed by contact id.
+		 * @param zoned true if each record holds its time zone.
+		 */
+		MeetingParser(ByteBuffer section, IntHashMap<Contact> contactIndex, boolean zoned) {
+			this.section = section;
+			this.contactIndex = contactIndex;
+			this.zoned = zoned;
+		}
+
+		public Meeting[] call() throws IOException {
+			//Older files hold instants only, so their meetings are restored in the default time zone.
+			TimeZone zone = TimeZone.getDefault();
+			Meeting[] result = new Meeting[section.getInt()];
+			for (int i = 0; i < result.length; i++) {
+				byte kind = section.get();
+				int id = readVarint(section);
+				long time = section.getLong();
+				if (zoned) {
+					zone = readZone(id);
+				}
+				int attendeeCount = readVarint(section);
+				Contact[] attendees = new Contact[attendeeCount];
+				for (int j = 0; j < attendeeCount; j++) {
+					int contactId = readVarint(section);
+					attendees[j] = contactIndex.get(contactId);
+					if (attendees[j] == null) {
+						throw new IOException("Meeting " + id + " refers to unknown contact " + contactId);
+					}
+				}
+				if (kind == ContactFileWriter.PAST) {
+					result[i] = new PastMeetingImpl(id, new ContactArraySet(attendees), time, zone, readString(section, strings));
+				} else if (kind == ContactFileWriter.FUTURE) {
+					result[i] = new FutureMeetingImpl(id, new ContactArraySet(attendees), time, zone);
+				} else {
+					throw new IOException("Unknown kind of meeting " + id);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Reads a time zone written by ContactFileWriter, as an index into the zones met so
+		 * far or as a new zone id.
+		 *
+		 * @param id the id of the meeting being read.
+		 * @return the shared time zone.
+		 * @throws IOException if the index refers to no zone.
+		 */
+		private TimeZone readZone(int id) throws IOException {
+			int index = readVarint(section);
+			if (index == zones.size()) {
+				zones.add(MeetingImpl.zoneFor(readString(section, strings)));
+			} else if (index < 0 || index > zones.size()) {
+				throw new IOException("Meeting " + id + " refers to unknown time zone " + index);
+			}
+			return zones.get(index);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Times ContactManagerImpl.load() on files of different sizes.
+ *
+ * Ten contacts share every meeting, so each posting list is long, and the meetings are
+ * saved with their ids shuffled. Loading should take time linear in the number of
+ * meetings; inserting into the middle of the posting lists would make a load of eight
+ * times as many meetings take around sixty-four times as long.
+ *
+ * Run with: java ContactFileReaderBenchmark
+ *
+ * @author Gareth Moore.
+ */
+public class ContactFileReaderBenchmark {
+	/**
+	 * Loads a smaller and a larger file, and prints the time taken per meeting by each.
+	 *
+	 * @param args not used.
+	 * @throws IOException if a file cannot be written or read.
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(ContactManagerImpl.FILE_NAME);
+		try {
+			//The first load also compiles the loading code, so it is not reported.
+			timeLoad(file, 20000);
+			int[] sizes = {20000, 160000};
+			for (int i = 0; i < sizes.length; i++) {
+				long nanos = timeLoad(file, sizes[i]);
+				System.out.println(sizes[i] + " meetings: " + (nanos / 1000000) + "ms, "
+						+ (nanos / sizes[i]) + "ns per meeting");
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Saves meetings shared between ten contacts, then times loading them.
+	 *
+	 * @param file the file written by flush().
+	 * @param meetings the number of meetings to be saved.
+	 * @return the time load() took to read the file, in nanoseconds.
+	 * @throws IOException if the file cannot be written or read.
+	 */
+	private static long timeLoad(File file, int meetings) throws IOException {
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+		ContactManagerImpl manager = new ContactManagerImpl();
+		manager.snapshotFile = file;
+		saveShuffledMeetings(manager, meetings);
+		return ContactManagerImpl.load(file).getLoadNanos();
+	}
+
+	/**
+	 * Adds ten contacts and meetings shared between them to an empty ContactManager, then flushes it.
+	 * The meetings are added in date order, but their ids are shuffled, so the
+	 * meeting index holds them in no particular date order.
+	 *
+	 * @param manager the empty ContactManager to be filled and flushed.
+	 * @param meetings the number of meetings to be saved.
+	 */
+	static void saveShuffledMeetings(ContactManagerImpl manager, int meetings) {
+		for (int i = 0; i < 10; i++) {
+			manager.insertContact(new ContactImpl(i + 1, "Contact " + i, ""));
+		}
+		Set<Contact> attendees = manager.getContacts(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+		int[] ids = new int[meetings];
+		for (int i = 0; i < meetings; i++) {
+			ids[i] = i + 1;
+		}
+		Random random = new Random(meetings);
+		for (int i = meetings - 1; i > 0; i--) {
+			int other = random.nextInt(i + 1);
+			int swapped = ids[i];
+			ids[i] = ids[other];
+			ids[other] = swapped;
+		}
+		for (int i = 0; i < meetings; i++) {
+			manager.insertMeeting(new PastMeetingImpl(ids[i], attendees, 1000L * i, TimeZone.getDefault(), ""));
+		}
+		manager.flush();
+	}
+}
@@ -0,0 +1,236 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.After;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Tests the class ContactFileReader and ContactManagerImpl.load().
+ *
+ * @author Gareth Moore.
+ */
+public class ContactFileReaderTest {
+	ContactManagerImpl myContactManager; // The ContactManager which is flushed and read back.
+	File contactsFile; // The file written by flush().
+
+	@Before
+	public void buildUp() {
+		myContactManager = new ContactManagerImpl();
+		contactsFile = new File(ContactManagerImpl.FILE_NAME);
+		contactsFile.delete();
+	}
+
+	/**
+	 * iDCounter is a static variable so may interfere with test results.
+	 * To avoid this problem, both counters are reset to 0 after each test.
+	 */
+	@After
+	public void cleanUp() {
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+		contactsFile.delete();
+	}
+
+	/**
+	 * A missing file should give an empty ContactManager.
+	 */
+	@Test
+	public void shouldLoadEmptyManagerWhenFileIsMissing() throws IOException {
+		ContactManagerImpl loaded = ContactManagerImpl.load(contactsFile);
+		assertTrue(loaded.getContacts("").isEmpty());
+	}
+
+	/**
+	 * Contacts, meetings and notes should survive a flush and load.
+	 */
+	@Test
+	public void shouldRestoreContactsAndMeetings() throws IOException {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		myContactManager.addNewContact("Dick Grayson", "Robin");
+		myContactManager.addNewContact("Selina Kyle", "");
+		Set<Contact> attendees = myContactManager.getContacts(1, 2);
+		Calendar future = Calendar.getInstance();
+		future.add(Calendar.DAY_OF_MONTH, 1);
+		myContactManager.addFutureMeeting(attendees, future);
+		myContactManager.addNewPastMeeting(myContactManager.getContacts(2, 3), new GregorianCalendar(2014, 5, 1), "Rooftops");
+		myContactManager.flush();
+
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+		ContactManagerImpl loaded = ContactManagerImpl.load(contactsFile);
+
+		assertEquals(3, loaded.getContacts("").size());
+		assertEquals("Batman", loaded.getContacts(1).iterator().next().getNotes());
+		FutureMeeting futureMeeting = loaded.getFutureMeeting(1);
+		assertEquals(future.getTimeInMillis(), futureMeeting.getDate().getTimeInMillis());
+		assertEquals(attendees, futureMeeting.getContacts());
+		PastMeeting pastMeeting = loaded.getPastMeeting(2);
+		assertEquals("Rooftops", pastMeeting.getNotes());
+		List<PastMeeting> robinsMeetings = loaded.getPastMeetingList(loaded.getContacts(2).iterator().next());
+		assertEquals(1, robinsMeetings.size());
+		assertEquals(1, loaded.getFutureMeetingList(loaded.getContacts(1).iterator().next()).size());
+		assertEquals(1, loaded.getContactsByPrefix("Sel", 5).size());
+	}
+
+	/**
+	 * The id counters should be restored, so new objects do not reuse a saved id.
+	 */
+	@Test
+	public void shouldRestoreIdCounters() throws IOException {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		myContactManager.addNewContact("Dick Grayson", "Robin");
+		myContactManager.addNewPastMeeting(myContactManager.getContacts(1), new GregorianCalendar(2014, 5, 1), "Cave");
+		myContactManager.flush();
+
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+		ContactManagerImpl loaded = ContactManagerImpl.load(contactsFile);
+		loaded.addNewContact("Selina Kyle", "");
+		loaded.addNewPastMeeting(loaded.getContacts(3), new GregorianCalendar(2014, 6, 1), "Museum");
+
+		assertEquals("Selina Kyle", loaded.getContacts(3).iterator().next().getName());
+		assertEquals("Museum", loaded.getPastMeeting(2).getNotes());
+	}
+
+	/**
+	 * Contacts spread over several sections should all be read, whatever the number of threads.
+	 */
+	@Test
+	public void shouldReadEverySection() throws IOException {
+		int total = ContactFileWriter.SECTION_RECORDS + 10;
+		for (int i = 0; i < total; i++) {
+			myContactManager.insertContact(new ContactImpl(i + 1, "Contact " + i, ""));
+		}
+		myContactManager.flush();
+
+		ContactFileReader reader = new ContactFileReader(contactsFile, 3);
+		ContactManagerImpl loaded = reader.read();
+		assertEquals(total, loaded.contactIndex.size());
+		assertEquals("Contact " + (total - 1), loaded.getContacts(total).iterator().next().getName());
+		assertTrue(reader.getElapsedNanos() > 0);
+	}
+
+	/**
+	 * A ContactManager loaded with a clock should read the time from it.
+	 * The clock is set to 1970, so a meeting in 2000 is only in the future by its time.
+	 */
+	@Test
+	public void shouldGiveClockToLoadedManager() throws IOException {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		myContactManager.flush();
+		FakeClock clock = new FakeClock(0L);
+
+		ContactManagerImpl loaded = ContactManagerImpl.load(contactsFile, clock);
+		assertSame(clock, loaded.clock);
+		loaded.addFutureMeeting(loaded.getContacts(1), new GregorianCalendar(2000, 0, 1));
+		assertSame(clock, new ContactFileReader(contactsFile, 2, clock).read().clock);
+		contactsFile.delete();
+		assertSame(clock, ContactManagerImpl.load(contactsFile, clock).clock);
+	}
+
+	/**
+	 * Each meeting should be read back in the time zone it was created with,
+	 * including zones first met part way through a section.
+	 */
+	@Test
+	public void shouldRestoreTimeZones() throws IOException {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		Calendar chatham = new GregorianCalendar(TimeZone.getTimeZone("Pacific/Chatham"));
+		chatham.set(2014, 5, 1, 10, 0);
+		Calendar london = new GregorianCalendar(TimeZone.getTimeZone("Europe/London"));
+		london.set(2014, 5, 2, 10, 0);
+		myContactManager.addNewPastMeeting(myContactManager.getContacts(1), chatham, "Chatham");
+		myContactManager.addNewPastMeeting(myContactManager.getContacts(1), london, "London");
+		myContactManager.addNewPastMeeting(myContactManager.getContacts(1), chatham, "Chatham again");
+		myContactManager.flush();
+
+		ContactManagerImpl loaded = ContactManagerImpl.load(contactsFile);
+		assertEquals("Pacific/Chatham", loaded.getPastMeeting(1).getDate().getTimeZone().getID());
+		assertEquals("Europe/London", loaded.getPastMeeting(2).getDate().getTimeZone().getID());
+		assertEquals("Pacific/Chatham", loaded.getPastMeeting(3).getDate().getTimeZone().getID());
+		assertEquals(10, loaded.getPastMeeting(3).getDate().get(Calendar.HOUR_OF_DAY));
+	}
+
+	/**
+	 * load() should move future meetings whose dates have passed since the file was written into the past.
+	 */
+	@Test
+	public void shouldMigrateOnLoad() throws IOException {
+		FakeClock clock = new FakeClock(0L);
+		ContactManagerImpl source = new ContactManagerImpl(clock);
+		source.addNewContact("Bruce Wayne", "Batman");
+		int id = source.addFutureMeeting(source.getContacts(1), new GregorianCalendar(2000, 0, 1));
+		source.flush();
+		clock.set(new GregorianCalendar(2000, 0, 2).getTimeInMillis());
+
+		ContactManagerImpl loaded = ContactManagerImpl.load(contactsFile, clock);
+		assertEquals(0, loaded.migrateDueMeetings());
+		assertEquals("", loaded.getPastMeeting(id).getNotes());
+	}
+
+	/**
+	 * Meetings whose ids are in no particular date order should be loaded into date order,
+	 * and the manager should report how long the load took.
+	 * ContactFileReaderBenchmark checks that such loads take linear time.
+	 */
+	@Test
+	public void shouldLoadShuffledMeetingsInDateOrder() throws IOException {
+		int meetings = 20000;
+		ContactFileReaderBenchmark.saveShuffledMeetings(myContactManager, meetings);
+		ContactManagerImpl loaded = ContactManagerImpl.load(contactsFile);
+		List<PastMeeting> pastMeetings = loaded.getPastMeetingList(loaded.getContacts(1).iterator().next());
+		assertEquals(meetings, pastMeetings.size());
+		for (int i = 1; i < meetings; i++) {
+			assertTrue(pastMeetings.get(i - 1).getDate().getTimeInMillis() <= pastMeetings.get(i).getDate().getTimeInMillis());
+		}
+		assertTrue(loaded.getLoadNanos() > 0);
+		assertEquals(-1, myContactManager.getLoadNanos());
+	}
+
+	/**
+	 * A file which is not a contacts file should be rejected.
+	 */
+	@Test
+	public void shouldRejectWrongMagic() throws IOException {
+		boolean exceptionThrown = false;
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(contactsFile));
+		out.writeInt(0x12345678);
+		out.writeByte(ContactFileWriter.VERSION);
+		out.writeShort(0);
+		out.close();
+		try {
+			ContactManagerImpl.load(contactsFile);
+		} catch (IOException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+	}
+
+	/**
+	 * A file whose last section is cut short should be rejected.
+	 */
+	@Test
+	public void shouldRejectTruncatedFile() throws IOException {
+		boolean exceptionThrown = false;
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		myContactManager.flush();
+		RandomAccessFile truncated = new RandomAccessFile(contactsFile, "rw");
+		truncated.setLength(truncated.length() - 3);
+		truncated.close();
+		try {
+			ContactManagerImpl.load(contactsFile);
+		} catch (IOException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+	}
+}
@@ -0,0 +1,307 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes contacts and meetings to a file in a compact, versioned binary format.
+ *
+ * The file starts with a header:
+ * the int MAGIC, the byte VERSION, then the ContactImpl and MeetingImpl id counters as varints.
+ *
+ * The header is followed by sections. Each section starts with a type byte, an int holding
+ * the length in bytes of the rest of the section, and an int record count. Long lists are
+ * split across several sections of at most SECTION_RECORDS records, so a reader can skip
+ * from section to section and parse them in parallel.
+ *
+ * A contact record is a varint id, then the name and the notes as strings.
+ * A meeting record is a kind byte (FUTURE or PAST), a varint id, the date as a long in
+ * epoch milliseconds, the time zone, a varint attendee count and a varint id for each
+ * attendee. A past meeting record ends with its notes as a string. The time zone is a
+ * varint index into the zone ids met so far in the section; an index equal to their
+ * number introduces a new zone, and is followed by its id as a string. Version 1 files
+ * have no time zones, and their meetings are read in the default zone.
+ *
+ * Varints hold seven bits per byte, lowest bits first, with the top bit set on every byte
+ * but the last. Strings are a varint byte length followed by UTF-8 bytes. Ints and longs
+ * are big-endian.
+ *
+ * @author Gareth Moore.
+ */
+public class ContactFileWriter {
+	/**
+	 * Identifies a contacts file. The bytes spell "CMGF".
+	 */
+	public static final int MAGIC = 0x434D4746;
+	/**
+	 * The version of the format written by this class.
+	 */
+	public static final byte VERSION = 2;
+	/**
+	 * The type byte of a section holding contacts.
+	 */
+	public static final byte CONTACT_SECTION = 1;
+	/**
+	 * The type byte of a section holding meetings.
+	 */
+	public static final byte MEETING_SECTION = 2;
+	/**
+	 * The kind byte of a future meeting record.
+	 */
+	public static final byte FUTURE = 0;
+	/**
+	 * The kind byte of a past meeting record.
+	 */
+	public static final byte PAST = 1;
+	/**
+	 * The most records held in one section.
+	 */
+	public static final int SECTION_RECORDS = 65536;
+	/**
+	 * The size of the buffer used to batch writes to the channel.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/**
+	 * The channel being written to.
+	 */
+	private final FileChannel channel;
+	/**
+	 * Holds bytes until there are enough to be worth writing to the channel.
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	/**
+	 * The file position of the open section's length, or -1 if no section is open.
+	 */
+	private long sectionStart = -1;
+	/**
+	 * The index of each time zone id written in the open meeting section.
+	 */
+	private final Map<String, Integer> sectionZones = new HashMap<String, Integer>();
+
+	/**
+	 * Constructor method. Creates or truncates the file.
+	 *
+	 * @param file the file to be written.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public ContactFileWriter(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Writes the file header.
+	 *
+	 * @param contactIdCounter the current value of ContactImpl's id counter.
+	 * @param meetingIdCounter the current value of MeetingImpl's id counter.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void writeHeader(int contactIdCounter, int meetingIdCounter) throws IOException {
+		ensure(5);
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+		writeVarint(contactIdCounter);
+		writeVarint(meetingIdCounter);
+	}
+
+	/**
+	 * Writes every contact, split into sections of at most SECTION_RECORDS contacts.
+	 *
+	 * @param contactIterator the contacts to be written.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void writeContacts(Iterator<Contact> contactIterator) throws IOException {
+		int count = 0;
+		while (contactIterator.hasNext()) {
+			if (count == 0) {
+				startSection(CONTACT_SECTION);
+			}
+			Contact temp = contactIterator.next();
+			writeVarint(temp.getId());
+			writeString(temp.getName());
+			writeString(temp.getNotes());
+			count++;
+			if (count == SECTION_RECORDS) {
+				endSection(count);
+				count = 0;
+			}
+		}
+		if (count > 0) {
+			endSection(count);
+		}
+	}
+
+	/**
+	 * Writes every meeting, split into sections of at most SECTION_RECORDS meetings.
+	 *
+	 * @param meetingIterator the meetings to be written.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void writeMeetings(Iterator<? extends Meeting> meetingIterator) throws IOException {
+		int count = 0;
+		while (meetingIterator.hasNext()) {
+			if (count == 0) {
+				startSection(MEETING_SECTION);
+				sectionZones.clear();
+			}
+			Meeting temp = meetingIterator.next();
+			boolean past = (temp instanceof PastMeeting);
+			ensure(1);
+			buffer.put(past ? PAST : FUTURE);
+			writeVarint(temp.getId());
+			ensure(8);
+			buffer.putLong(MeetingImpl.timeOf(temp));
+			writeZone(MeetingImpl.zoneOf(temp).getID());
+			writeAttendees(temp.getContacts());
+			if (past) {
+				writeString(((PastMeeting) temp).getNotes());
+			}
+			count++;
+			if (count == SECTION_RECORDS) {
+				endSection(count);
+				count = 0;
+			}
+		}
+		if (count > 0) {
+			endSection(count);
+		}
+	}
+
+	/**
+	 * Writes any buffered bytes, forces them to disk and closes the file.
+	 *
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void close() throws IOException {
+		try {
+			drain();
+			channel.force(false);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes the attendee count followed by the id of each attendee.
+	 *
+	 * @param attendees the contacts attending a meeting.
+	 */
+	private void writeAttendees(Set<Contact> attendees) throws IOException {
+		writeVarint(attendees.size());
+		Iterator<Contact> attendeeIterator = attendees.iterator();
+		while (attendeeIterator.hasNext()) {
+			writeVarint(attendeeIterator.next().getId());
+		}
+	}
+
+	/**
+	 * Writes a time zone id, as the index of the same id earlier in the section if there is one.
+	 *
+	 * @param id the id of a meeting's time zone.
+	 */
+	private void writeZone(String id) throws IOException {
+		Integer index = sectionZones.get(id);
+		if (index != null) {
+			writeVarint(index);
+		} else {
+			writeVarint(sectionZones.size());
+			writeString(id);
+			sectionZones.put(id, sectionZones.size());
+		}
+	}
+
+	/**
+	 * Opens a section. Its length and record count are only known once it is full,
+	 * so placeholders are written and filled in by endSection().
+	 *
+	 * @param type the type byte of the section.
+	 */
+	private void startSection(byte type) throws IOException {
+		ensure(9);
+		buffer.put(type);
+		sectionStart = channel.position() + buffer.position();
+		buffer.putInt(0); //Placeholder for the section length.
+		buffer.putInt(0); //Placeholder for the record count.
+	}
+
+	/**
+	 * Closes the open section by filling in its length and record count.
+	 *
+	 * @param count the number of records in the section.
+	 */
+	private void endSection(int count) throws IOException {
+		drain();
+		long sectionEnd = channel.position();
+		ByteBuffer header = ByteBuffer.allocate(8);
+		header.putInt((int) (sectionEnd - sectionStart - 4));
+		header.putInt(count);
+		header.flip();
+		long next = sectionStart;
+		while (header.hasRemaining()) {
+			next += channel.write(header, next);
+		}
+		sectionStart = -1;
+	}
+
+	/**
+	 * Writes an int as a varint.
+	 *
+	 * @param value the value to be written. Negative values take five bytes.
+	 */
+	private void writeVarint(int value) throws IOException {
+		ensure(5);
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0) {
+			buffer.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining = remaining >>> 7;
+		}
+		buffer.put((byte) remaining);
+	}
+
+	/**
+	 * Writes a string as a varint byte length followed by its UTF-8 bytes.
+	 * A null string is written as an empty string.
+	 *
+	 * @param value the string to be written.
+	 */
+	private void writeString(String value) throws IOException {
+		byte[] bytes = (value == null) ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		int offset = 0;
+		while (offset < bytes.length) {
+			//Strings longer than the buffer are written in several pieces.
+			ensure(1);
+			int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	/**
+	 * Makes sure the buffer has room for the given number of bytes, writing it out if not.
+	 *
+	 * @param bytes the number of bytes about to be put into the buffer.
+	 */
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			drain();
+		}
+	}
+
+	/**
+	 * Writes every buffered byte to the channel and empties the buffer.
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
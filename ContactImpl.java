@@ -1,3 +1,6 @@
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Implements the Contact interface.
  *
@@ -19,13 +22,19 @@ public class ContactImpl implements Contact {
 	 * If not relevaant, a null value is held.
 	 */
 	private String notes;
+	/**
+	 * Set once the contact is stored by a ContactManager, after which it cannot be changed.
+	 * Stored contacts are then handed to callers as they are, without a defensive copy.
+	 */
+	private volatile boolean sealed = false;
 	/**
 	 * A static counter which tracks the most recently used id.
 	 * Each time a constructor is called, a nextId() call increments the counter.
 	 * When the ContactManager application is restarted,
 	 * the value is reassigned.
+	 * An AtomicInteger so that contacts created on different threads never share an id.
 	 */
-	public static int iDCounter = 0;
+	public static final AtomicInteger iDCounter = new AtomicInteger(0);
 
 
 	/**
@@ -69,15 +78,73 @@ public class ContactImpl implements Contact {
 		return result;
 	}
 
-	public void addNotes(String note) {
+	/**
+	 * Adds notes about the contact.
+	 *
+	 * @param note the notes to be added.
+	 * @throws UnsupportedOperationException if the contact is stored by a ContactManager.
+	 */
+	public void addNotes(String note) throws UnsupportedOperationException {
+		if (sealed) {
+			throw new UnsupportedOperationException();
+		}
 		this.notes = note;
 	}
 
+	/**
+	 * Stops the contact from being changed. Called when a ContactManager stores the contact.
+	 */
+	void seal() {
+		sealed = true;
+	}
+
+	/**
+	 * Tests whether the contact can still be changed.
+	 *
+	 * @return true if the contact has been sealed.
+	 */
+	boolean isSealed() {
+		return sealed;
+	}
+
+	/**
+	 * Two contacts are equal if they have the same id, name and notes.
+	 *
+	 * The id identifies the contact. The name and notes act as a version check,
+	 * so a copy whose notes have since changed is not equal to the stored contact.
+	 *
+	 * @param other the object to be compared with this contact.
+	 * @return true if other is a Contact with the same id, name and notes.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		} else if (!(other instanceof Contact)) {
+			return false;
+		}
+		Contact otherContact = (Contact) other;
+		return id == otherContact.getId()
+				&& Objects.equals(name, otherContact.getName())
+				&& getNotes().equals(otherContact.getNotes());
+	}
+
+	/**
+	 * Only the id is hashed, because the notes can change
+	 * while the contact is held in a HashSet.
+	 *
+	 * @return the hash code of this contact.
+	 */
+	@Override
+	public int hashCode() {
+		return id;
+	}
+
 	/**
 	 * Increments the iDCounter by 1.
+	 * The increment is atomic, so no lock is needed.
 	 */
 	private int nextId() {
-		iDCounter++;
-		return iDCounter;
+		return iDCounter.incrementAndGet();
 	}
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 import java.util.Calendar;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.TimeZone;
 
 /**
 * A class to manage your contacts and meetings.
@@ -70,6 +72,34 @@ public interface ContactManager {
 	 */
 	List<Meeting> getFutureMeetingList(Calendar date);
 
+	/**
+	 * Returns the list of past and future meetings whose dates fall
+	 * within the specified range.
+	 *
+	 * If there are none, the returned list will be empty. Otherwise,
+	 * the list will be chronologically sorted and will not contain any
+	 * duplicates.
+	 *
+	 * @param from the start of the range, inclusive
+	 * @param to the end of the range, exclusive
+	 * @return the list of meetings
+	 */
+	List<Meeting> getMeetingList(Calendar from, Calendar to);
+
+	/**
+	 * Returns the list of past and future meetings held on the calendar
+	 * day containing the specified date, as seen in the specified time zone.
+	 *
+	 * If there are none, the returned list will be empty. Otherwise,
+	 * the list will be chronologically sorted and will not contain any
+	 * duplicates.
+	 *
+	 * @param day any instant within the day
+	 * @param zone the time zone in which the day begins and ends
+	 * @return the list of meetings
+	 */
+	List<Meeting> getMeetingList(Calendar day, TimeZone zone);
+
 	/**
 	 * Returns the list of past meetings in which this contact has participated.
 	 *
@@ -83,6 +113,33 @@ public interface ContactManager {
 	 */
 	List<PastMeeting> getPastMeetingList(Contact contact);
 
+	/**
+	 * Returns an iterator over the past meetings in which this contact
+	 * has participated, in chronological order.
+	 *
+	 * Unlike getPastMeetingList(), the meetings are found one at a time
+	 * as the iterator is advanced, so a caller which only reads the first
+	 * few does not pay for the rest. The iterator does not support remove().
+	 *
+	 * @param contact one of the users contacts
+	 * @return an iterator over the past meeting(s) with this contact (maybe empty).
+	 * @throws IllegalArgumentException if the contact does not exist
+	 */
+	Iterator<PastMeeting> getPastMeetings(Contact contact);
+
+	/**
+	 * Returns an iterator over the future meetings scheduled with this
+	 * contact, in chronological order.
+	 *
+	 * The meetings are found one at a time as the iterator is advanced.
+	 * The iterator does not support remove().
+	 *
+	 * @param contact one of the users contacts
+	 * @return an iterator over the future meeting(s) with this contact (maybe empty).
+	 * @throws IllegalArgumentException if the contact does not exist
+	 */
+	Iterator<Meeting> getFutureMeetings(Contact contact);
+
 	/**
 	 * Create a new record for a meeting that took place in the past.
   	 *
@@ -120,9 +177,58 @@ public interface ContactManager {
 	 */
 	void addNewContact(String name, String notes);
 
+	/**
+	 * Create a new contact for each of the specified names and notes.
+	 *
+	 * The whole batch is validated before any contact is created,
+	 * so either every contact is created or none is.
+	 *
+	 * @param names the name of each contact.
+	 * @param notes notes to be added about each contact, in the same order as the names.
+	 * @return the IDs of the new contacts, in the same order as the names.
+	 * @throws NullPointerException if any argument or any name or notes is null
+	 * @throws IllegalArgumentException if the arrays differ in length
+	 */
+	int[] addNewContacts(String[] names, String[] notes);
+
+	/**
+	 * Add a batch of new meetings to be held in the future.
+	 *
+	 * The whole batch is validated before any meeting is created,
+	 * so either every meeting is created or none is.
+	 *
+	 * @param contacts the participants of each meeting
+	 * @param dates the date of each meeting, in the same order
+	 * @return the IDs of the new meetings, in the same order
+	 * @throws IllegalArgumentException if the lists differ in length, any
+	 * meeting is set for a time in the past, has no participants, or any
+	 * of its participants is unknown / non-existent
+	 * @throws NullPointerException if any argument or element is null
+	 */
+	int[] addFutureMeetings(List<Set<Contact>> contacts, List<Calendar> dates);
+
+	/**
+	 * Create records for a batch of meetings that took place in the past.
+	 *
+	 * The whole batch is validated before any meeting is created,
+	 * so either every meeting is created or none is.
+	 *
+	 * @param contacts the participants of each meeting
+	 * @param dates the date on which each meeting took place, in the same order
+	 * @param texts messages to be added about each meeting, in the same order
+	 * @return the IDs of the new meetings, in the same order
+	 * @throws IllegalArgumentException if the lists differ in length, or any
+	 * meeting has no participants or any of its participants does not exist
+	 * @throws NullPointerException if any argument or element is null
+	 */
+	int[] addNewPastMeetings(List<Set<Contact>> contacts, List<Calendar> dates, List<String> texts);
+
 	/**
 	 * Returns a list containing the contacts that correspond to the IDs.
 	 *
+	 * The contacts are the ones stored by the ContactManager, not copies,
+	 * so calling addNotes() on them throws UnsupportedOperationException.
+	 *
 	 * @param ids an arbitrary number of contact IDs
 	 * @return a list containing the contacts that correspond to the IDs.
 	 * @throws IllegalArgumentException if any of the IDs does not correspond to a real contact
@@ -132,12 +238,29 @@ public interface ContactManager {
 	/**
 	 * Returns a list with the contacts whose name contains that string.
 	 *
+	 * The contacts are the ones stored by the ContactManager, not copies,
+	 * so calling addNotes() on them throws UnsupportedOperationException.
+	 *
 	 * @param name the string to search for
 	 * @return a list with the contacts whose name contains that string.
 	 * @throws NullPointerException if the parameter is null
 	 */
 	Set<Contact> getContacts(String name);
 
+	/**
+	 * Returns the contacts whose names start with that string,
+	 * for use when completing a name as it is typed.
+	 *
+	 * The list is sorted by name and contains at most limit contacts.
+	 *
+	 * @param prefix the start of the names to search for
+	 * @param limit the maximum number of contacts to return
+	 * @return a list of up to limit contacts whose names start with that string.
+	 * @throws NullPointerException if the prefix is null
+	 * @throws IllegalArgumentException if the limit is negative
+	 */
+	List<Contact> getContactsByPrefix(String prefix, int limit);
+
 	/**
 	 * Save all data to disk.
 	 *
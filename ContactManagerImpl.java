@@ -1,13 +1,24 @@
 import java.util.Calendar;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Set;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.io.PrintWriter;
+import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.io.File;
 import java.io.IOException;
-import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Implements the interface ContactManager.
@@ -16,24 +27,370 @@ import java.io.FileNotFoundException;
  */
 public class ContactManagerImpl implements ContactManager {
 	/**
-	 * A data structure to store contacts.
+	 * The file written by flush().
 	 */
-	Set<Contact> contacts = new HashSet<Contact>();
+	static final String FILE_NAME = "./contacts.dat";
 	/**
-	 * A data structure to store future meetings.
-	 * Using FutureMeetinImpl instead of PastMeeting because
-	 * FutureMeeting does not contain instance variables.
+	 * Stores every contact, keyed by contact id.
 	 */
-	List<FutureMeeting> futureMeetings = new ArrayList<FutureMeeting>();
+	IntHashMap<Contact> contactIndex = new IntHashMap<Contact>();
 	/**
-	 * A data structure to store past meetings.
-	 * Using PastMeetinImpl instead of PastMeeting because
-	 * PastMeeting does not contain instance variables.
+	 * An index of contact names by trigram, used to answer getContacts(String).
 	 */
-	List<PastMeeting> pastMeetings = new ArrayList<PastMeeting>();
+	TrigramIndex nameIndex = new TrigramIndex();
+	/**
+	 * An index of contact names in sorted order, used to answer getContactsByPrefix().
+	 */
+	PrefixIndex prefixIndex = new PrefixIndex();
+	/**
+	 * Stores every past and future meeting, keyed by meeting id.
+	 * Whether a meeting is past or future is told by its class, so no separate
+	 * lists are kept, and adding notes changes the meeting's entry in constant time.
+	 * A HashMeetingStore unless withColumnarMeetings() chose a ColumnarMeetingStore.
+	 */
+	MeetingStore meetingIndex = new HashMeetingStore();
+	/**
+	 * An inverted index from contact id to the ids of the meetings the contact attends.
+	 * Each list is held in date order, so per-contact queries need no sorting.
+	 * Past and future meetings share one list; meetingIndex tells them apart,
+	 * so converting a meeting from future to past does not change the list.
+	 */
+	IntHashMap<PostingList> contactMeetings = new IntHashMap<PostingList>();
+	/**
+	 * An index of every past and future meeting id, keyed by the meeting's date in epoch milliseconds.
+	 * Meetings at the same instant share one PostingList, in the order they were added.
+	 */
+	TreapMap<Long, PostingList> meetingsByDate = new TreapMap<Long, PostingList>();
+	/**
+	 * The ids of every future meeting, keyed by date, so the meetings which have become due
+	 * are found at the start without scanning. A meeting converted by addMeetingNotes() is
+	 * left in place and skipped when its date is reached.
+	 */
+	TreapMap<Long, PostingList> dueMeetings = new TreapMap<Long, PostingList>();
+	/**
+	 * Set when this ContactManager has been published as a snapshot.
+	 * A read-only ContactManager rejects every method which would change it.
+	 */
+	boolean readOnly = false;
+	/**
+	 * Set when the methods which read meetings first move due meetings into the past.
+	 * Cleared by wrappers which read under a shared lock, because they migrate under
+	 * their own write lock instead.
+	 */
+	boolean migrateOnRead = true;
+	/**
+	 * The file written by flush().
+	 */
+	File snapshotFile = new File(FILE_NAME);
+	/**
+	 * The time in nanoseconds load() took to read the snapshot file, or -1 if it was not read.
+	 */
+	private long loadNanos = -1;
+	/**
+	 * The journal every change is appended to, or null if changes are only saved by flush().
+	 */
+	Journal journal = null;
+	/**
+	 * The number of journal records at which flush() is called to compact the journal.
+	 * Zero if the journal is only compacted by calling flush().
+	 */
+	int compactEvery = 0;
+	/**
+	 * Identifies the posting lists this ContactManager may change in place.
+	 * Replaced whenever it is copied, so lists shared with the copy are no longer owned.
+	 */
+	private Object owner = new Object();
+	/**
+	 * The clock used to tell whether a meeting is in the past.
+	 */
+	Clock clock = Clock.SYSTEM;
+	/**
+	 * Shares one String between equal names and notes added to this ContactManager.
+	 * Carried over to copies, which are either read-only or take over the writing,
+	 * so the pool is only ever added to by one writer at a time.
+	 */
+	StringPool strings = new StringPool();
+	/**
+	 * Writes background flushes one at a time. Created by the first background flush.
+	 */
+	private ExecutorService flusher = null;
+
+	/**
+	 * Constructor method. Creates an empty ContactManager.
+	 */
+	public ContactManagerImpl() {
+	}
+
+	/**
+	 * Constructor method. Creates an empty ContactManager which reads the time from a clock.
+	 *
+	 * @param clock the clock used to tell whether a meeting is in the past.
+	 */
+	public ContactManagerImpl(Clock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Creates an empty ContactManager which reads the time from the shared CachedClock,
+	 * so its time checks cost no system call.
+	 *
+	 * @return an empty ContactManager using CachedClock.shared().
+	 */
+	public static ContactManagerImpl withCachedClock() {
+		return new ContactManagerImpl(CachedClock.shared());
+	}
+
+	/**
+	 * Creates an empty ContactManager which keeps its meetings in a ColumnarMeetingStore.
+	 *
+	 * A meeting then takes a few dozen bytes in primitive arrays rather than a Meeting object
+	 * and its attendee set, at the cost of a small view being created each time it is read.
+	 * Views are never changed, but two reads of the same meeting return different objects.
+	 *
+	 * @param clock the clock used to tell whether a meeting is in the past.
+	 * @return an empty ContactManager using a ColumnarMeetingStore.
+	 */
+	public static ContactManagerImpl withColumnarMeetings(Clock clock) {
+		ContactManagerImpl result = new ContactManagerImpl(clock);
+		result.meetingIndex = new ColumnarMeetingStore(result.contactIndex);
+		return result;
+	}
+
+	/**
+	 * Creates a ContactManager holding the contacts and meetings saved in a file by flush().
+	 *
+	 * The ContactImpl and MeetingImpl id counters are restored from the file,
+	 * so new contacts and meetings do not reuse a saved id. Future meetings whose
+	 * dates have passed since the file was written are moved into the past.
+	 * If the file does not exist, an empty ContactManager is returned.
+	 *
+	 * @param file the file written by flush().
+	 * @return a ContactManager holding the saved contacts and meetings.
+	 * @throws IOException if the file cannot be read or is not a contacts file.
+	 */
+	public static ContactManagerImpl load(File file) throws IOException {
+		return load(file, Clock.SYSTEM);
+	}
+
+	/**
+	 * Creates a ContactManager holding the contacts and meetings saved in a file by flush(),
+	 * which reads the time from a clock. See load(File).
+	 *
+	 * @param file the file written by flush().
+	 * @param clock the clock used to tell whether a meeting is in the past.
+	 * @return a ContactManager holding the saved contacts and meetings.
+	 * @throws IOException if the file cannot be read or is not a contacts file.
+	 */
+	public static ContactManagerImpl load(File file, Clock clock) throws IOException {
+		ContactManagerImpl result;
+		if (!file.exists()) {
+			result = new ContactManagerImpl(clock);
+		} else {
+			ContactFileReader reader = new ContactFileReader(file, clock);
+			result = reader.read();
+			result.loadNanos = reader.getElapsedNanos();
+		}
+		result.snapshotFile = file;
+		result.migrateDueMeetings();
+		return result;
+	}
+
+	/**
+	 * Returns the time load() or open() took to read the snapshot file, as a startup metric.
+	 * The time taken to replay a journal is not included.
+	 *
+	 * @return the time in nanoseconds, or -1 if this ContactManager was not read from a file.
+	 */
+	public long getLoadNanos() {
+		return loadNanos;
+	}
+
+	/**
+	 * Creates a ContactManager which appends every change to a journal.
+	 *
+	 * The snapshot is loaded and the journal is replayed over it, so the result holds every
+	 * change made before the last shutdown. Future meetings whose dates have passed are then
+	 * moved into the past, as migrateDueMeetings() did before the shutdown, because the
+	 * migration itself is not journaled. Afterwards each change is appended to the journal
+	 * before it is applied, rather than waiting for flush() to rewrite the whole snapshot.
+	 * flush() saves a new snapshot and empties the journal. This compaction also happens
+	 * automatically once the journal holds compactEvery records.
+	 *
+	 * @param snapshotFile the file written by flush().
+	 * @param journalFile the journal file.
+	 * @param compactEvery the number of records after which the journal is compacted, or 0 to only compact on flush().
+	 * @return a ContactManager holding every saved change.
+	 * @throws IOException if either file cannot be read, or the journal does not match the snapshot.
+	 * @throws IllegalArgumentException if compactEvery is negative.
+	 */
+	public static ContactManagerImpl open(File snapshotFile, File journalFile, int compactEvery) throws IOException, IllegalArgumentException {
+		return open(snapshotFile, journalFile, compactEvery, 0, 1, Clock.SYSTEM);
+	}
+
+	/**
+	 * Creates a ContactManager which appends every change to a journal and reads the time
+	 * from a clock. See open(File, File, int).
+	 *
+	 * @param snapshotFile the file written by flush().
+	 * @param journalFile the journal file.
+	 * @param compactEvery the number of records after which the journal is compacted, or 0 to only compact on flush().
+	 * @param clock the clock used to tell whether a meeting is in the past.
+	 * @return a ContactManager holding every saved change.
+	 * @throws IOException if either file cannot be read, or the journal does not match the snapshot.
+	 * @throws IllegalArgumentException if compactEvery is negative.
+	 */
+	public static ContactManagerImpl open(File snapshotFile, File journalFile, int compactEvery, Clock clock) throws IOException, IllegalArgumentException {
+		return open(snapshotFile, journalFile, compactEvery, 0, 1, clock);
+	}
+
+	/**
+	 * Creates a ContactManager which appends every change to a journal using group commit.
+	 *
+	 * As open(File, File, int), except that changes are queued for a background thread
+	 * rather than forced to disk before each method returns. The thread forces a whole
+	 * batch to disk with a single fsync once commitBatch changes are waiting, or once the
+	 * oldest has waited commitInterval milliseconds. Call sync() to wait until every change
+	 * made so far is durable.
+	 *
+	 * @param snapshotFile the file written by flush().
+	 * @param journalFile the journal file.
+	 * @param compactEvery the number of records after which the journal is compacted, or 0 to only compact on flush().
+	 * @param commitInterval the longest time in milliseconds a change waits to be forced to disk,
+	 * or 0 to force every change to disk before its method returns.
+	 * @param commitBatch the number of waiting changes which are forced to disk at once.
+	 * @return a ContactManager holding every saved change.
+	 * @throws IOException if either file cannot be read, or the journal does not match the snapshot.
+	 * @throws IllegalArgumentException if compactEvery or commitInterval is negative, or commitBatch is less than one.
+	 */
+	public static ContactManagerImpl open(File snapshotFile, File journalFile, int compactEvery, long commitInterval,
+			int commitBatch) throws IOException, IllegalArgumentException {
+		return open(snapshotFile, journalFile, compactEvery, commitInterval, commitBatch, Clock.SYSTEM);
+	}
+
+	/**
+	 * Creates a ContactManager which appends every change to a journal using group commit,
+	 * and reads the time from a clock. See open(File, File, int, long, int).
+	 *
+	 * @param snapshotFile the file written by flush().
+	 * @param journalFile the journal file.
+	 * @param compactEvery the number of records after which the journal is compacted, or 0 to only compact on flush().
+	 * @param commitInterval the longest time in milliseconds a change waits to be forced to disk,
+	 * or 0 to force every change to disk before its method returns.
+	 * @param commitBatch the number of waiting changes which are forced to disk at once.
+	 * @param clock the clock used to tell whether a meeting is in the past.
+	 * @return a ContactManager holding every saved change.
+	 * @throws IOException if either file cannot be read, or the journal does not match the snapshot.
+	 * @throws IllegalArgumentException if compactEvery or commitInterval is negative, or commitBatch is less than one.
+	 */
+	public static ContactManagerImpl open(File snapshotFile, File journalFile, int compactEvery, long commitInterval,
+			int commitBatch, Clock clock) throws IOException, IllegalArgumentException {
+		if (compactEvery < 0) {
+			throw new IllegalArgumentException();
+		}
+		ContactManagerImpl result = load(snapshotFile, clock);
+		Journal journal = new Journal(journalFile, commitInterval, commitBatch);
+		try {
+			journal.replay(result);
+		} catch (IOException ex) {
+			journal.close();
+			throw ex;
+		}
+		result.journal = journal;
+		result.compactEvery = compactEvery;
+		//The journal may hold future meetings which have fallen due since it was written.
+		result.migrateDueMeetings();
+		return result;
+	}
+
+	/**
+	 * Constructor method which copies another ContactManagerImpl without copying its contents.
+	 *
+	 * Every index is shared with other. The hash indexes are held in fixed-size chunks and
+	 * the sorted indexes in trees, so the copy only takes a chunk table per hash index, and
+	 * afterwards each of the two copies a chunk or a tree path the first time it changes it.
+	 * Posting lists are appended to without copying; see PostingList. A change therefore
+	 * copies what it touches rather than whole indexes, and changes to one are never seen
+	 * by the other. The Contact and Meeting objects are always shared, because they are
+	 * never changed once added. The copy is never read-only, and does not share other's
+	 * journal. other must not be changed while it is being copied, though it may be read.
+	 *
+	 * @param other the ContactManagerImpl to be copied.
+	 */
+	ContactManagerImpl(ContactManagerImpl other) {
+		snapshotFile = other.snapshotFile;
+		clock = other.clock;
+		strings = other.strings;
+		contactIndex = new IntHashMap<Contact>(other.contactIndex);
+		nameIndex = new TrigramIndex(other.nameIndex);
+		prefixIndex = new PrefixIndex(other.prefixIndex);
+		meetingIndex = other.meetingIndex.copy(contactIndex);
+		contactMeetings = new IntHashMap<PostingList>(other.contactMeetings);
+		meetingsByDate = new TreapMap<Long, PostingList>(other.meetingsByDate);
+		dueMeetings = new TreapMap<Long, PostingList>(other.dueMeetings);
+		//Every posting list is now shared, so other must copy a list before it next changes it.
+		other.owner = new Object();
+	}
+
+	/**
+	 * Returns a consistent, read-only view of every contact and meeting.
+	 *
+	 * The view shares this ContactManager's indexes, and takes time proportional to the
+	 * number of chunks in its hash indexes rather than the number of entries. Each later
+	 * change copies only the chunks and tree paths it touches, so it is never seen by the
+	 * view. The view can be read, or flushed, on any thread while this ContactManager
+	 * keeps changing.
+	 *
+	 * @return a read-only ContactManager holding the current state.
+	 */
+	public ContactManager snapshot() {
+		ContactManagerImpl result = new ContactManagerImpl(this);
+		result.readOnly = true;
+		return result;
+	}
+
+	/**
+	 * Writes a snapshot of the current state to the contacts file on a background thread.
+	 *
+	 * The state is frozen by snapshot(), so this method returns almost at once and changes
+	 * can continue while the file is written. Background flushes are written one at a time,
+	 * in the order they were requested. The journal, if there is one, is not emptied,
+	 * because it may already hold changes made after the state was frozen; flush() compacts it.
+	 *
+	 * @return a Future completed once the file has been written.
+	 */
+	public Future<Void> flushInBackground() {
+		final ContactManagerImpl frozen = (ContactManagerImpl) snapshot();
+		if (flusher == null) {
+			flusher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread result = new Thread(task, "ContactManager flusher");
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return flusher.submit(new Callable<Void>() {
+			public Void call() throws IOException {
+				frozen.writeSnapshot();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Throws an exception if this ContactManager is a read-only snapshot.
+	 *
+	 * @throws UnsupportedOperationException if this ContactManager is read-only.
+	 */
+	private void checkWritable() throws UnsupportedOperationException {
+		if (readOnly) {
+			throw new UnsupportedOperationException();
+		}
+	}
 
 	public int addFutureMeeting(Set<Contact> contacts, Calendar date) throws IllegalArgumentException {
-		if (date.compareTo(Calendar.getInstance()) < 0) { //Compares the provided date to the current date and time.
+		checkWritable();
+		if (date.getTimeInMillis() < clock.currentTimeMillis()) { //Compares the provided date to the current date and time.
 			throw new IllegalArgumentException();
 		} else if (!this.containsAll(contacts) || contacts.isEmpty()) {
 			//Validates the supplied sets of contacts.
@@ -41,242 +398,232 @@ public class ContactManagerImpl implements ContactManager {
 			//If the set empty, an exception is also thrown.
 			throw new IllegalArgumentException();
 		} else {
-			FutureMeeting newMeeting = new FutureMeetingImpl(contacts, date);
-			futureMeetings.add(newMeeting);
+			FutureMeeting newMeeting = new FutureMeetingImpl(storedAttendees(contacts), date);
+			journalMeeting(newMeeting);
+			insertMeeting(newMeeting);
+			compactIfDue();
 			int result = newMeeting.getId();
 			return result;
 		}
 	}
 
 	/**
-	 * Verfies whether the Meeting id exists in the pastMeetings list.
+	 * Verfies whether the Meeting id belongs to a PastMeeting.
 	 *
 	 * @param id, id to be verfied.
-	 * @return true if the meeting is contained within the list.
+	 * @return true if the meeting is a PastMeeting.
 	 */
 	private boolean containsPastMeetingId(int id) {
-		boolean result = false;
-		Iterator<PastMeeting> listIterator = pastMeetings.iterator();
-		boolean finished = false;
-		while (!finished) {
-			if (listIterator.hasNext()) { //Tests whether the end of the list has been reached.
-				PastMeeting temp = listIterator.next();
-				if (temp.getId() == id) { //Tests whether the current iteration's id matches parameter.
-					result = true;
-					finished = true;
-				}
-			} else {
-				finished = true;
-			}
-		}
-		return result;
+		return meetingIndex.get(id) instanceof PastMeeting;
 	}
 
 	/**
-	 * Verfies whether the Meeting id exists in the futureMeetings list.
+	 * Verfies whether the Meeting id belongs to a FutureMeeting.
 	 *
 	 * @param id, id to be verfied.
-	 * @return true if the meeting is contained within the list.
+	 * @return true if the meeting is a FutureMeeting.
 	 */
 	private boolean containsFutureMeetingId(int id) {
-		boolean result = false;
-		Iterator<FutureMeeting> listIterator = futureMeetings.iterator();
-		boolean finished = false;
-		while (!finished) {
-			if (listIterator.hasNext()) {
-				//Tests whether the end of the list has been reached.
-				FutureMeeting temp = listIterator.next();
-				if (temp.getId() == id) {
-					//Tests whether the current iteration's id matches parameter.
-					result = true;
-					finished = true;
-				}
-			} else {
-				finished = true;
-			}
-		}
-		return result;
+		return meetingIndex.get(id) instanceof FutureMeeting;
 	}
 
 	public PastMeeting getPastMeeting(int id) throws IllegalArgumentException {
-		PastMeeting result = null;
-		if (containsFutureMeetingId(id)) {
+		migrateBeforeRead();
+		Meeting result = meetingIndex.get(id);
+		if (result instanceof FutureMeeting) {
 			//Checks if the requested meeting id is a FutureMeeting
 			throw new IllegalArgumentException();
-		} else {
-			Iterator<PastMeeting> listIterator = pastMeetings.iterator();
-			boolean finished = false;
-			while (!finished) {
-				if(listIterator.hasNext()) {
-					//Tests whether the end of the list has been reached.
-					PastMeeting temp = listIterator.next();
-					if (temp.getId() == id) {
-						//Tests whether the current iteration's id matches parameter.
-						result = temp;
-						finished = true;
-					}
-				} else {
-					finished = true;
-				}
-			}
 		}
-		return result;
+		return (PastMeeting) result;
 	}
 
 	public FutureMeeting getFutureMeeting(int id) {
-		FutureMeeting result = null;
-		if (containsPastMeetingId(id)) {
+		migrateBeforeRead();
+		Meeting result = meetingIndex.get(id);
+		if (result instanceof PastMeeting) {
 			//Checks if the requested meeting id is a PastMeeting
 			throw new IllegalArgumentException();
-		} else {
-			Iterator<FutureMeeting> listIterator = futureMeetings.iterator();
-			boolean finished = false;
-			while (!finished) {
-				if(listIterator.hasNext()) {
-					//Tests whether the end of the list has been reached.
-					FutureMeeting temp = listIterator.next();
-					if (temp.getId() == id) {
-						//Tests whether the current iteration's id matches parameter.
-						result = temp;
-						finished = true;
-					}
-				} else {
-					finished = true;
-				}
-			}
 		}
-		return result;
+		return (FutureMeeting) result;
 	}
 
 	public Meeting getMeeting(int id) {
-		Meeting result = null;
-		try {
-			if (containsPastMeetingId(id)) {
-				result = getPastMeeting(id);
-			} else if (containsFutureMeetingId(id)) {
-				result = getFutureMeeting(id);
-			}
-		} catch (IllegalArgumentException ex) {
-			ex.printStackTrace();
-		}
-		return result;
+		migrateBeforeRead();
+		return meetingIndex.get(id);
 	}
 
 	public List<Meeting> getFutureMeetingList(Contact contact) throws IllegalArgumentException  {
+		migrateBeforeRead();
 		if (!contains(contact)) { //Checks whether the contact is a member of the set contacts.
 			throw new IllegalArgumentException();
 		} else {
 			List<Meeting> result = new ArrayList<Meeting>();
-			Iterator<FutureMeeting> listIterator = futureMeetings.iterator();
-			while (listIterator.hasNext()) {
-				Meeting tempMeeting = listIterator.next();
-				Set<Contact> tempSet = tempMeeting.getContacts();
-				if (contains(tempSet, contact)) { //Checks whether the contact is attending this meeting
-					result.add(tempMeeting); //If contact is attending the meeting, the meeting is added to our list.
+			PostingList meetingIds = contactMeetings.get(contact.getId());
+			int size = (meetingIds == null) ? 0 : meetingIds.size();
+			for (int i = 0; i < size; i++) {
+				//Only the meetings this contact attends are visited.
+				//The list is held in date order, so the result needs no sorting.
+				Meeting tempMeeting = meetingIndex.get(meetingIds.get(i));
+				if (tempMeeting instanceof FutureMeeting) {
+					result.add(tempMeeting); //If the meeting is still in the future, the meeting is added to our list.
 				}
 			}
-			if (!result.isEmpty()) { //Tests to see if the list is empty. If false, the list is ordered by date.
-				result = ContactManagerImpl.bubbleSortMeetingByDate(result);
-			}
 			return result;
 		}
 	}
 
-	/**
-	 * Takes a List of Meetings and orders the elements by date.
-	 * Uses bubble sort.
-	 * Not compatible with PastMeeting.
-	 *
-	 * @param list the list to be ordered.
-	 * @return a list in chronological order.
-	 */
-	private static List<Meeting> bubbleSortMeetingByDate(List<Meeting> list) {
-		List<Meeting> result = list;
-		int listSize = result.size();
-		for (int i = 0; i < listSize; i++) {
-			for (int j = 1; j < (listSize - i); j++) {
-				Meeting left = result.get(j-1);
-				Calendar leftDate = left.getDate();
-				Meeting right = result.get(j);
-				Calendar rightDate = right.getDate();
-				if (leftDate.after(rightDate)) {
-					//If the left date is greater than the right, the elements are swapped.
-					right = result.remove(j);
-					left = result.remove(j-1);
-					result.add((j-1), right);
-					result.add(j, left);
-				}
-			}
-		}
-		return result;
+	public List<Meeting> getFutureMeetingList(Calendar date) {
+		//Returns every meeting on the same calendar day as date, in date's own time zone.
+		return getMeetingList(date, date.getTimeZone());
 	}
 
-	/**
-	 * Takes a List of PastMeetings and orders the elements by date.
-	 * Uses bubble sort.
-	 * Not compatible with FutureMeeting or Meeting.
-	 *
-	 * @param list the list to be ordered.
-	 * @return a list in chronological order.
-	 */
-	private static List<PastMeeting> bubbleSortPastMeetingByDate(List<PastMeeting> list) {
-		List<PastMeeting> result = list;
-		int listSize = result.size();
-		for (int i = 0; i < (listSize); i++) {
-			for (int j = 1; j < (listSize - i); j++) {
-				PastMeeting left = result.get(j-1);
-				Calendar leftDate = left.getDate();
-				PastMeeting right = result.get(j);
-				Calendar rightDate = right.getDate();
-				if (leftDate.after(rightDate)) {
-					//If the left value is greater than the right, the element are swapped.
-					right = result.remove(j);
-					left = result.remove(j-1);
-					list.add((j-1), right);
-					list.add(j, left);
-				}
-			}
-		}
-		return result;
+	public List<Meeting> getMeetingList(Calendar from, Calendar to) {
+		return getMeetingList(from.getTimeInMillis(), to.getTimeInMillis());
 	}
 
-	public List<Meeting> getFutureMeetingList(Calendar date) {
+	public List<Meeting> getMeetingList(Calendar day, TimeZone zone) {
+		//Finds midnight at the start of the day, as seen in zone.
+		Calendar start = Calendar.getInstance(zone);
+		start.setTimeInMillis(day.getTimeInMillis());
+		start.set(Calendar.HOUR_OF_DAY, 0);
+		start.set(Calendar.MINUTE, 0);
+		start.set(Calendar.SECOND, 0);
+		start.set(Calendar.MILLISECOND, 0);
+		long from = start.getTimeInMillis();
+		start.add(Calendar.DAY_OF_MONTH, 1); //Days are not always 24 hours long, so the calendar works out the next midnight.
+		return getMeetingList(from, start.getTimeInMillis());
+	}
+
+	/**
+	 * Returns the meetings whose dates fall within a range, in chronological order.
+	 * Reads the range straight from meetingsByDate, so no sorting is required.
+	 *
+	 * @param from the start of the range in epoch milliseconds, inclusive.
+	 * @param to the end of the range in epoch milliseconds, exclusive.
+	 * @return the list of meetings within the range (maybe empty).
+	 */
+	private List<Meeting> getMeetingList(long from, long to) {
+		migrateBeforeRead();
 		List<Meeting> result = new ArrayList<Meeting>();
-		Iterator<FutureMeeting> listIterator = futureMeetings.iterator();
-		while (listIterator.hasNext()) {
-			FutureMeeting tempMeeting = listIterator.next();
-			Calendar tempDate = tempMeeting.getDate();
-			if (tempDate.equals(date)) { //Tests if the parameter matches the date of this meeting
-				result.add(tempMeeting); //If dates match, the meeting is added to the list.
-			}
+		if (from >= to) {
+			return result;
 		}
-		if (!result.isEmpty()) { //Tests to see if the list is empty. If false, the list is ordered by date.
-			result = ContactManagerImpl.bubbleSortMeetingByDate(result);
+		Iterator<Map.Entry<Long, PostingList>> dateIterator = meetingsByDate.entriesFrom(from);
+		boolean finished = false;
+		while (!finished && dateIterator.hasNext()) {
+			Map.Entry<Long, PostingList> entry = dateIterator.next();
+			finished = (entry.getKey() >= to);
+			PostingList meetingIds = entry.getValue();
+			for (int i = 0; i < meetingIds.size() && !finished; i++) {
+				result.add(meetingIndex.get(meetingIds.get(i)));
+			}
 		}
 		return result;
 	}
 
 	public List<PastMeeting> getPastMeetingList(Contact contact) throws IllegalArgumentException {
+		migrateBeforeRead();
 		if (!contains(contact)) { //Checks whether the contact is a member of the set contacts.
 			throw new IllegalArgumentException();
 		} else {
 			List<PastMeeting> result = new ArrayList<PastMeeting>();
-			Iterator<PastMeeting> listIterator = pastMeetings.iterator();
-			while (listIterator.hasNext()) {
-				PastMeeting tempMeeting = listIterator.next();
-				Set<Contact> tempSet = tempMeeting.getContacts();
-				if (contains(tempSet, contact)) { //Checks whether the contact is attending this meeting
-					result.add(tempMeeting); //If contact is attending the meeting, the meeting is added to the list.
+			PostingList meetingIds = contactMeetings.get(contact.getId());
+			int size = (meetingIds == null) ? 0 : meetingIds.size();
+			for (int i = 0; i < size; i++) {
+				//Only the meetings this contact attends are visited.
+				//The list is held in date order, so the result needs no sorting.
+				Meeting tempMeeting = meetingIndex.get(meetingIds.get(i));
+				if (tempMeeting instanceof PastMeeting) {
+					result.add((PastMeeting) tempMeeting); //If the meeting has taken place, the meeting is added to the list.
 				}
 			}
-			if (!result.isEmpty()) { //Tests to see if the list is empty. If false, the list is ordered by date.
-				result = ContactManagerImpl.bubbleSortPastMeetingByDate(result);
-			}
 			return result;
 		}
 	}
 
+	/**
+	 * Returns an iterator over the past meetings with a contact, in chronological order.
+	 *
+	 * The iterator walks the contact's posting list, so nothing is copied or sorted up front
+	 * and the first meeting is found in constant time. It must not be used while this
+	 * ContactManager is changed; iterate over a snapshot() to read while changes are made.
+	 *
+	 * @param contact one of the stored contacts.
+	 * @return an iterator over the past meetings with the contact.
+	 * @throws IllegalArgumentException if the contact is not stored.
+	 */
+	public Iterator<PastMeeting> getPastMeetings(Contact contact) throws IllegalArgumentException {
+		migrateBeforeRead();
+		if (!contains(contact)) {
+			throw new IllegalArgumentException();
+		}
+		return this.<PastMeeting>meetingCursor(contactMeetings.get(contact.getId()), meetingIndex, PastMeeting.class);
+	}
+
+	/**
+	 * Returns an iterator over the future meetings with a contact, in chronological order.
+	 * See getPastMeetings(). The iterator starts at the earliest date in dueMeetings,
+	 * so the contact's past meetings are not walked first.
+	 *
+	 * @param contact one of the stored contacts.
+	 * @return an iterator over the future meetings with the contact.
+	 * @throws IllegalArgumentException if the contact is not stored.
+	 */
+	public Iterator<Meeting> getFutureMeetings(Contact contact) throws IllegalArgumentException {
+		migrateBeforeRead();
+		if (!contains(contact)) {
+			throw new IllegalArgumentException();
+		}
+		return this.<Meeting>meetingCursor(contactMeetings.get(contact.getId()), meetingIndex, FutureMeeting.class);
+	}
+
+	/**
+	 * Returns an iterator over the past or future meetings with a contact which is never
+	 * disturbed by later changes, in chronological order.
+	 *
+	 * Rather than taking a whole snapshot(), only the contact's posting list and the meeting
+	 * index are shared with the iterator, so the next change copies at most a chunk of the
+	 * meeting index. Several threads may call this at once, as long as none of them changes
+	 * this ContactManager meanwhile.
+	 *
+	 * @param contact one of the stored contacts.
+	 * @param kind PastMeeting.class or FutureMeeting.class, the kind of meeting to be returned.
+	 * @return an iterator over the meetings of that kind with the contact.
+	 * @throws IllegalArgumentException if the contact is not stored.
+	 */
+	<M extends Meeting> Iterator<M> detachedMeetings(Contact contact, Class<? extends Meeting> kind) throws IllegalArgumentException {
+		if (!contains(contact)) {
+			throw new IllegalArgumentException();
+		}
+		PostingList meetingIds = contactMeetings.get(contact.getId());
+		if (meetingIds != null) {
+			//A list with a new owner is only ever read, and the list itself stops changing in place.
+			meetingIds = meetingIds.writableBy(new Object());
+		}
+		return this.<M>meetingCursor(meetingIds, meetingIndex.copy(contactIndex), kind);
+	}
+
+	/**
+	 * Returns an iterator over the meetings of one kind in a posting list.
+	 * Every future meeting is dated no earlier than the first date in dueMeetings,
+	 * so an iterator over future meetings skips straight to that date.
+	 *
+	 * @param meetingIds the ids of the meetings, or null if there are none.
+	 * @param index the index the meetings are looked up in.
+	 * @param kind the kind of meeting to be returned, which must be assignable to M.
+	 * @return an iterator over the meetings of that kind.
+	 */
+	private <M extends Meeting> Iterator<M> meetingCursor(PostingList meetingIds, MeetingStore index, Class<? extends Meeting> kind) {
+		int start = 0;
+		if (meetingIds != null && kind == FutureMeeting.class) {
+			Long earliest = dueMeetings.firstKey();
+			start = (earliest == null) ? meetingIds.size() : meetingIds.lowerBound(earliest);
+		}
+		return new MeetingCursor<M>(meetingIds, index, kind, start);
+	}
+
 	public void addNewPastMeeting(Set<Contact> contacts, Calendar date, String text) throws IllegalArgumentException, NullPointerException {
+		checkWritable();
 		if (contacts.isEmpty()) {
 			//Tests whether  contacts is empty. If true, an exception is thrown.
 			throw new IllegalArgumentException();
@@ -289,124 +636,241 @@ public class ContactManagerImpl implements ContactManager {
 			//If true, an exception is thrown.
 			throw new NullPointerException();
 		} else {
-			pastMeetings.add(new PastMeetingImpl(contacts, date, text));
+			PastMeeting newMeeting = new PastMeetingImpl(storedAttendees(contacts), date, strings.intern(text));
+			journalMeeting(newMeeting);
+			insertMeeting(newMeeting);
+			compactIfDue();
 		}
 	}
 
 	public void addMeetingNotes(int id, String text) throws IllegalArgumentException, NullPointerException, IllegalStateException {
-		if (!containsPastMeetingId(id) && !containsFutureMeetingId(id)) {
-			//Tests whether the meeting is not on the pastMeetings and not on the futureMeetings list.
+		checkWritable();
+		Meeting existing = meetingIndex.get(id);
+		if (existing instanceof FutureMeeting) {
+			//Due meetings are moved to the past first, so a meeting which is still future is not yet due.
+			migrateDueMeetings();
+			existing = meetingIndex.get(id);
+		}
+		if (existing == null) {
+			//Tests whether the meeting is not stored.
 			//If true, an exception is thrown.
 			throw new IllegalArgumentException();
 		} else if (text.equals(null)) {
 			//Tests whether text is null
 			//If true, an exception is thrown.
 			throw new NullPointerException();
-		} else if (containsPastMeetingId(id)) {
-			//Tests whether id is on the pastMeetings list.
-			//If true, notes are added to that PastMeeting's notes field.
-			//If PastMeeting already has notes, those notes are overwritten.
-			PastMeeting temp = getPastMeeting(id);
-			pastMeetings.remove(id);
-			pastMeetings.add(new PastMeetingImpl(temp, text)); //Adds amended PastMeeting back to list
-		} else if (containsFutureMeetingId(id)) {
-			FutureMeeting temp = getFutureMeeting(id);
-			Calendar tempDate = temp.getDate();
-			if (tempDate.compareTo(Calendar.getInstance()) > 0) {
-				//Compare the FutureMeeting's date to the current date.
-				//If the meeting is in the future, an exception is thrown.
-				throw new IllegalStateException();
-			} else {
-				futureMeetings.remove(temp);
-				pastMeetings.add(new PastMeetingImpl(temp, text));
+		} else if (existing instanceof FutureMeeting) {
+			//If the meeting is in the future, an exception is thrown.
+			throw new IllegalStateException();
+		} else {
+			String notes = strings.intern(text);
+			if (journal != null) {
+				try {
+					journal.appendNotes(id, notes);
+				} catch (IOException ex) {
+					//The change could not be made durable, so it is not applied.
+					throw new UncheckedIOException(ex);
+				}
 			}
+			insertNotes(id, notes);
+			compactIfDue();
 		}
 	}
 
 	public void addNewContact(String name, String notes) throws NullPointerException {
+		checkWritable();
 		if (name.equals(null) || notes.equals(null)) {
 			//Checks if either argument is null
 			//If true, an excepion is thrown
 			throw new NullPointerException();
 		} else {
 			//Creates a new Contact object and adds it to the Set contacts
-			Contact temp = new ContactImpl(name);
-			temp.addNotes(notes);
-			contacts.add(temp);
+			Contact temp = new ContactImpl(strings.intern(name));
+			temp.addNotes(strings.intern(notes));
+			if (journal != null) {
+				try {
+					journal.appendContact(temp);
+				} catch (IOException ex) {
+					//The change could not be made durable, so it is not applied.
+					throw new UncheckedIOException(ex);
+				}
+			}
+			insertContact(temp);
+			compactIfDue();
+		}
+	}
+
+	public int[] addNewContacts(String[] names, String[] notes) throws NullPointerException, IllegalArgumentException {
+		checkWritable();
+		if (names.length != notes.length) {
+			throw new IllegalArgumentException();
+		}
+		for (int i = 0; i < names.length; i++) {
+			//Every contact is validated before any is added, so the batch is all or nothing.
+			if (names[i] == null || notes[i] == null) {
+				throw new NullPointerException();
+			}
+		}
+		//Takes a block of ids with one update of the counter.
+		int firstId = ContactImpl.iDCounter.getAndAdd(names.length) + 1;
+		Contact[] batch = new Contact[names.length];
+		int[] result = new int[names.length];
+		for (int i = 0; i < batch.length; i++) {
+			result[i] = firstId + i;
+			batch[i] = new ContactImpl(result[i], strings.intern(names[i]), strings.intern(notes[i]));
+		}
+		if (journal != null) {
+			try {
+				journal.appendContacts(batch);
+			} catch (IOException ex) {
+				//The change could not be made durable, so it is not applied.
+				throw new UncheckedIOException(ex);
+			}
 		}
+		contactIndex.ensureCapacity(contactIndex.size() + batch.length);
+		for (int i = 0; i < batch.length; i++) {
+			insertContact(batch[i]);
+		}
+		compactIfDue();
+		return result;
+	}
+
+	public int[] addFutureMeetings(List<Set<Contact>> contacts, List<Calendar> dates) throws IllegalArgumentException, NullPointerException {
+		return addMeetings(contacts, dates, null);
+	}
+
+	public int[] addNewPastMeetings(List<Set<Contact>> contacts, List<Calendar> dates, List<String> texts) throws IllegalArgumentException, NullPointerException {
+		if (texts == null) {
+			throw new NullPointerException();
+		}
+		return addMeetings(contacts, dates, texts);
 	}
 
 	/**
-	 * Checks if the instance variable contacts contains a Contact with a matching id.
+	 * Validates and adds a batch of meetings, taking their ids as one block.
+	 * Every meeting is validated before any is added, so the batch is all or nothing.
 	 *
-	 * @param id the id to be checked against the set of contacts.
-	 * @return true if there is a matching id in contacts.
+	 * @param contacts the attendees of each meeting.
+	 * @param dates the date of each meeting.
+	 * @param texts the notes of each past meeting, or null if the meetings are future meetings.
+	 * @return the ids of the new meetings, in the order they were given.
+	 * @throws IllegalArgumentException if the lists differ in length, a set of attendees is empty
+	 * or holds an unknown contact, or a future meeting is dated in the past.
+	 * @throws NullPointerException if any argument or element is null.
 	 */
-	private boolean containsContact(int id) {
-		boolean result = false;
-		Iterator<Contact> contactIterator = contacts.iterator();
-		boolean finished = false;
-		while (!finished) {
-			if (contactIterator.hasNext()) {
-				//Tests whether there are remaining contacts to iterate.
-				Contact temp = contactIterator.next();
-				if (temp.getId() == id) {
-					//Tests if the current iteration has a matching id.
-					finished = true;
-					result = true;
-				}
+	private int[] addMeetings(List<Set<Contact>> contacts, List<Calendar> dates, List<String> texts) throws IllegalArgumentException, NullPointerException {
+		checkWritable();
+		int count = contacts.size();
+		if (dates.size() != count || (texts != null && texts.size() != count)) {
+			throw new IllegalArgumentException();
+		}
+		ContactArraySet[] attendees = new ContactArraySet[count];
+		long[] times = new long[count];
+		long now = clock.currentTimeMillis();
+		for (int i = 0; i < count; i++) {
+			Set<Contact> meetingContacts = contacts.get(i);
+			Calendar date = dates.get(i);
+			if (meetingContacts == null || date == null || (texts != null && texts.get(i) == null)) {
+				throw new NullPointerException();
+			}
+			times[i] = date.getTimeInMillis();
+			attendees[i] = resolveAttendees(meetingContacts);
+			if (attendees[i] == null || attendees[i].isEmpty() || (texts == null && times[i] < now)) {
+				throw new IllegalArgumentException();
+			}
+		}
+		//Takes a block of ids with one update of the counter.
+		int firstId = MeetingImpl.iDCounter.getAndAdd(count) + 1;
+		Meeting[] batch = new Meeting[count];
+		int[] result = new int[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = firstId + i;
+			TimeZone zone = dates.get(i).getTimeZone();
+			if (texts == null) {
+				batch[i] = new FutureMeetingImpl(result[i], attendees[i], times[i], zone);
 			} else {
-				finished = true;
+				batch[i] = new PastMeetingImpl(result[i], attendees[i], times[i], zone, strings.intern(texts.get(i)));
+			}
+		}
+		if (journal != null) {
+			try {
+				journal.appendMeetings(batch);
+			} catch (IOException ex) {
+				//The change could not be made durable, so it is not applied.
+				throw new UncheckedIOException(ex);
 			}
 		}
+		meetingIndex.ensureCapacity(meetingIndex.size() + count);
+		for (int i = 0; i < count; i++) {
+			insertMeeting(batch[i]);
+		}
+		compactIfDue();
 		return result;
 	}
 
 	public Set<Contact> getContacts(int... ids) throws IllegalArgumentException {
-		Set<Contact> result = new HashSet<Contact>();
+		//Stored contacts are sealed, so they are returned without being copied.
+		Contact[] result = new Contact[ids.length];
 		for (int i = 0; i < ids.length; i++) {
 			//Iterates throug the array of ids passed as an argument.
-			if (!containsContact(ids[i])) {
+			result[i] = contactIndex.get(ids[i]);
+			if (result[i] == null) {
 				//Checks if the id exists on set of contacts.
 				//If the id does not exist, an exception is thrown.
 				throw new IllegalArgumentException();
-			} else {
-				Iterator<Contact> contactIterator = contacts.iterator();
-				boolean finished = false;
-				while (!finished) {
-					if (contactIterator.hasNext()) {
-						//Tests whether there are remaining contacts to iterate.
-						Contact temp = contactIterator.next();
-						if (temp.getId() == ids[i]) {
-							//Tests if the current iteration has a matching id.
-							finished = true;
-							result.add(new ContactImpl(temp.getId(), temp.getName(), temp.getNotes()));
-						}
-					} else {
-						finished = true;
-					}
-				}
 			}
 		}
-		return result;
+		return new ContactArraySet(result);
 	}
 
 	public Set<Contact> getContacts(String name) throws NullPointerException {
-		Set<Contact> result = new HashSet<Contact>();
 		if (name.equals(null)) {
 			//Checks if the name exists on set of contacts.
 			//If the id does not exist, an exception is thrown.
 			throw new NullPointerException();
+		}
+		int[] candidates = nameIndex.candidates(name);
+		if (candidates != null) {
+			//Only the contacts whose names contain every trigram of name are checked.
+			Contact[] result = new Contact[candidates.length];
+			int found = 0;
+			for (int i = 0; i < candidates.length; i++) {
+				Contact temp = contactIndex.get(candidates[i]);
+				if (temp.getName().contains(name)) {
+					//Sharing trigrams does not guarantee a match, so the name is checked.
+					result[found] = temp;
+					found++;
+				}
+			}
+			return new ContactArraySet(found == result.length ? result : Arrays.copyOf(result, found));
 		} else {
-			Iterator<Contact> contactIterator = contacts.iterator();
+			//The name is too short for the trigram index, so every contact is checked.
+			List<Contact> result = new ArrayList<Contact>();
+			Iterator<Contact> contactIterator = contactIndex.valueIterator();
 			while (contactIterator.hasNext()) {
 				//Tests whether there are remaining contacts to iterate.
 				Contact temp = contactIterator.next();
-				if (name.equals(temp.getName())) {
-					//Tests if the current iteration has a matching name.
-					result.add(new ContactImpl(temp.getId(), temp.getName(), temp.getNotes()));
+				if (temp.getName().contains(name)) {
+					//Tests if the current iteration's name contains the search string.
+					result.add(temp);
 				}
 			}
+			return new ContactArraySet(result);
+		}
+	}
+
+	public List<Contact> getContactsByPrefix(String prefix, int limit) throws NullPointerException, IllegalArgumentException {
+		if (prefix.equals(null)) {
+			//Checks if the prefix is null.
+			//If true, an exception is thrown.
+			throw new NullPointerException();
+		} else if (limit < 0) {
+			throw new IllegalArgumentException();
+		}
+		int[] ids = prefixIndex.startingWith(prefix, limit);
+		List<Contact> result = new ArrayList<Contact>(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			result.add(contactIndex.get(ids[i]));
 		}
 		return result;
 	}
@@ -421,7 +885,8 @@ public class ContactManagerImpl implements ContactManager {
 		boolean result = true;
 		Iterator<Contact> argIterator = contacts.iterator();
 		//Creates an iterator for the Set passed as an argument.
-		while (argIterator.hasNext()) {
+		while (result && argIterator.hasNext()) {
+			//Stops at the first unknown contact.
 			boolean contactExists = false;
 			//For each iteration, the value is reset to false.
 			Contact argContact = argIterator.next();
@@ -435,6 +900,42 @@ public class ContactManagerImpl implements ContactManager {
 		return result;
 	}
 
+	/**
+	 * Returns the stored contacts matching a validated set of attendees, sorted by id.
+	 * The meeting then refers to the stored contacts rather than the caller's copies.
+	 *
+	 * @param contacts the attendees, every one of which is a known contact.
+	 * @return the stored contacts as a ContactArraySet.
+	 */
+	private ContactArraySet storedAttendees(Set<Contact> contacts) {
+		Contact[] attendees = new Contact[contacts.size()];
+		int i = 0;
+		for (Contact contact : contacts) {
+			attendees[i] = contactIndex.get(contact.getId());
+			i++;
+		}
+		return new ContactArraySet(attendees);
+	}
+
+	/**
+	 * Validates a set of attendees and returns the matching stored contacts, in a single pass.
+	 *
+	 * @param contacts the attendees to be checked.
+	 * @return the stored contacts as a ContactArraySet, or null if any attendee is not a known contact.
+	 */
+	private ContactArraySet resolveAttendees(Set<Contact> contacts) {
+		Contact[] attendees = new Contact[contacts.size()];
+		int i = 0;
+		for (Contact contact : contacts) {
+			attendees[i] = contactIndex.get(contact.getId());
+			if (attendees[i] == null || !attendees[i].equals(contact)) {
+				return null;
+			}
+			i++;
+		}
+		return new ContactArraySet(attendees);
+	}
+
 	/**
 	 * Tests whether the Contact is contained within the Set of Contacts.
 	 *
@@ -442,129 +943,414 @@ public class ContactManagerImpl implements ContactManager {
 	 * @return true if contact is contained within the set.
 	 */
 	private boolean contains(Contact contact) {
-		boolean result = false;
-		Iterator<Contact> thisIterator = this.contacts.iterator();
-		//Creates an iterator to iterate through the set of Contacts.
-		while (thisIterator.hasNext()) {
-			Contact thisContact = thisIterator.next();
-			if (thisContact.getId() == contact.getId()) {
-				//Tests if the id matches.
-				String thisName = thisContact.getName();
-				if (thisName.equals(contact.getName())) {
-					//Tests if the name matches.
-					String thisNotes = thisContact.getNotes();
-					if (thisNotes.equals(contact.getNotes())) {
-						//Tests if the notes field matches.
-						result = true;
-					}
+		//Only the stored contact with a matching id needs to be compared.
+		//ContactImpl.equals() checks the name and notes still match.
+		Contact thisContact = contactIndex.get(contact.getId());
+		return thisContact != null && thisContact.equals(contact);
+	}
+
+	/**
+	 * Adds a contact to every contact index.
+	 * The contact is not validated, so its id must not already be in use.
+	 *
+	 * @param contact the contact to be stored.
+	 */
+	void insertContact(Contact contact) {
+		if (contact instanceof ContactImpl) {
+			//Callers are handed the stored contact itself, so it must not change.
+			((ContactImpl) contact).seal();
+		}
+		contactIndex.put(contact.getId(), contact);
+		nameIndex.add(contact.getId(), contact.getName());
+		prefixIndex.add(contact.getId(), contact.getName());
+	}
+
+	/**
+	 * Adds a meeting to the meeting store and to every meeting index.
+	 * The meeting is not validated, so its id must not already be in use
+	 * and every attendee must already be stored.
+	 *
+	 * @param meeting the meeting to be stored.
+	 */
+	void insertMeeting(Meeting meeting) {
+		meetingIndex.add(meeting);
+		if (meeting instanceof FutureMeeting) {
+			indexDate(dueMeetings, meeting);
+		}
+		indexAttendees(meeting);
+		indexDate(meetingsByDate, meeting);
+	}
+
+	/**
+	 * Moves every future meeting whose date has passed into the past, with empty notes.
+	 *
+	 * The due meetings are taken from the start of dueMeetings in one batch, so the cost
+	 * depends on the number of meetings migrated rather than the number stored. Only the
+	 * class of a meeting changes, and that depends only on its date and the clock, so the
+	 * migration is not journaled: load() and open() make it again once the snapshot and
+	 * journal have been read. Every method which reads meetings calls this first, unless
+	 * a wrapper has cleared migrateOnRead, so a due meeting is never returned as future.
+	 *
+	 * @return the number of meetings moved into the past.
+	 * @throws UnsupportedOperationException if this ContactManager is read-only.
+	 */
+	public int migrateDueMeetings() throws UnsupportedOperationException {
+		checkWritable();
+		long now = clock.currentTimeMillis();
+		int result = 0;
+		Long first = dueMeetings.firstKey();
+		while (first != null && first <= now) {
+			PostingList dueIds = dueMeetings.remove(first);
+			for (int i = 0; i < dueIds.size(); i++) {
+				Meeting due = meetingIndex.get(dueIds.get(i));
+				if (due instanceof FutureMeeting) {
+					//Skips meetings already converted by addMeetingNotes().
+					meetingIndex.setNotes(due.getId(), "");
+					result++;
 				}
 			}
+			first = dueMeetings.firstKey();
 		}
 		return result;
 	}
 
 	/**
-	 * Tests whether the Contact is contained within a Set of Contacts.
+	 * Tests whether any future meeting's date has passed, so migrateDueMeetings() would move it.
+	 * Meetings already converted by addMeetingNotes() may also count until they are skipped.
 	 *
-	 * @param contact is the Contact to be checked.
-	 * @param contactSet is the set of contacts to be searched.
-	 * @return true if contact is contained within the list.
-	 */
-	private boolean contains(Set<Contact> contactSet, Contact contact) {
-		boolean result = false;
-		Iterator<Contact> setIterator = contactSet.iterator();
-		//Creates an iterator to iterate through the set of Contacts.
-		while (setIterator.hasNext()) {
-			Contact tempContact = setIterator.next();
-			if (tempContact.getId() == contact.getId()) {
-				//Tests if the id matches.
-				String tempName = tempContact.getName();
-				if (tempName.equals(contact.getName())) {
-					//Tests if the name matches.
-					String tempNotes = tempContact.getNotes();
-					if (tempNotes.equals(contact.getNotes())) {
-						//Tests if the notes field matches.
-						result = true;
-					}
+	 * @return true if a future meeting may be due.
+	 */
+	boolean hasDueMeetings() {
+		Long first = dueMeetings.firstKey();
+		return first != null && first <= clock.currentTimeMillis();
+	}
+
+	/**
+	 * Moves due meetings into the past before meetings are read, if this ContactManager may.
+	 * Read-only snapshots are never changed, and wrappers which clear migrateOnRead migrate
+	 * under their own locks.
+	 */
+	private void migrateBeforeRead() {
+		if (migrateOnRead && !readOnly && hasDueMeetings()) {
+			migrateDueMeetings();
+		}
+	}
+
+	/**
+	 * Makes a stored meeting a PastMeeting holding the given notes.
+	 * If the meeting is a PastMeeting which already has notes, those notes are overwritten.
+	 * If it is a FutureMeeting, it is converted, so its id is now classified as past.
+	 * The meeting is not validated, so it must already be stored.
+	 *
+	 * Takes constant time. Meetings are shared with snapshots, so meetings already returned
+	 * are never changed; see MeetingStore.setNotes().
+	 *
+	 * @param id the id of the meeting.
+	 * @param text the notes to be added.
+	 */
+	void insertNotes(int id, String text) {
+		//The id and date are unchanged, so the attendee and date indexes still hold.
+		meetingIndex.setNotes(id, text);
+	}
+
+	/**
+	 * Appends a new meeting to the journal, if there is one.
+	 *
+	 * @param meeting the meeting about to be stored.
+	 * @throws UncheckedIOException if the journal cannot be written, in which case the meeting must not be stored.
+	 */
+	private void journalMeeting(Meeting meeting) throws UncheckedIOException {
+		if (journal != null) {
+			try {
+				journal.appendMeeting(meeting);
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+
+	/**
+	 * Compacts the journal into a new snapshot once it holds compactEvery records.
+	 */
+	private void compactIfDue() {
+		if (journal != null && compactEvery > 0 && journal.size() >= compactEvery) {
+			flush();
+		}
+	}
+
+	/**
+	 * Adds a meeting's id to a date index under the meeting's date.
+	 *
+	 * @param dateIndex the index to be added to, either meetingsByDate or dueMeetings.
+	 * @param meeting the meeting to be indexed.
+	 */
+	private void indexDate(TreapMap<Long, PostingList> dateIndex, Meeting meeting) {
+		long time = MeetingImpl.timeOf(meeting);
+		PostingList meetingIds = dateIndex.get(time);
+		if (meetingIds == null) {
+			//First meeting at this instant, so a new list is created.
+			meetingIds = new PostingList(owner);
+			dateIndex.put(time, meetingIds);
+		} else {
+			PostingList owned = meetingIds.writableBy(owner);
+			if (owned != meetingIds) {
+				//The list is shared with a copy, so this ContactManager adds to its own list.
+				meetingIds = owned;
+				dateIndex.put(time, meetingIds);
+			}
+		}
+		meetingIds.add(meeting.getId(), time);
+	}
+
+	/**
+	 * Adds a meeting's id to the posting list of every contact attending it.
+	 *
+	 * @param meeting the meeting to be indexed.
+	 */
+	private void indexAttendees(Meeting meeting) {
+		long time = MeetingImpl.timeOf(meeting);
+		Iterator<Contact> attendeeIterator = meeting.getContacts().iterator();
+		while (attendeeIterator.hasNext()) {
+			int contactId = attendeeIterator.next().getId();
+			PostingList meetingIds = contactMeetings.get(contactId);
+			if (meetingIds == null) {
+				//First meeting for this contact, so a new list is created.
+				meetingIds = new PostingList(owner);
+				contactMeetings.put(contactId, meetingIds);
+			} else {
+				PostingList owned = meetingIds.writableBy(owner);
+				if (owned != meetingIds) {
+					//The list is shared with a copy, so this ContactManager adds to its own list.
+					meetingIds = owned;
+					contactMeetings.put(contactId, meetingIds);
 				}
 			}
+			meetingIds.add(meeting.getId(), time);
 		}
-		return result;
 	}
 
 	public void flush() {
-		//Writes a ".csv" file.
-		PrintWriter contactsWriter = null;
 		try {
-			File contactsFile = new File("./contacts.txt");
-			contactsFile.createNewFile();
-			contactsWriter = new PrintWriter(contactsFile);
-			//Writes the cuurent value of the class ContactImpls's iDCounter.
-			//Allows this static value to be easily recovered when the application is restarted.
-			contactsWriter.println(ContactImpl.iDCounter);
-			//Writes the cuurent value of the class MeetingImpl's iDCounter.
-			//Allows this static value to be easily recovered when the application is restarted.
-			contactsWriter.println(MeetingImpl.iDCounter);
-			//Iterates each element in the set of contacts.
-			//For each elemet, the id, name, and notes are written.
-			Iterator<Contact> contactsIterator = contacts.iterator();
-			//Writes "CONTACTS" so contact record can be easily identified.
-			contactsWriter.println("CONTACTS");
-			while (contactsIterator.hasNext()) {
-				Contact temp = contactsIterator.next();
-				contactsWriter.println(temp.getId() + ", " + temp.getName() + ", " + temp.getNotes());
-			}
-			//Iterates each element in the list pastMeetings.
-			//For each elemet, the id, name, and notes are written.
-			//Dates are written using toString() because I do not know what variable the user requires, TimeZone, Calendar system etc...
-			Iterator<PastMeeting> pastMeetingIterator = pastMeetings.iterator();
-			//Writes "PAST MEETINGS" so contact record can be easily identified.
-			contactsWriter.println("PAST MEETINGS");
-			while (pastMeetingIterator.hasNext()) {
-				PastMeeting temp = pastMeetingIterator.next();
-				contactsWriter.println(temp.getId() + ", " + getContactIds(temp.getContacts()) + ", " + temp.getDate().toString() + ", " + temp.getNotes());
+			if (flusher != null) {
+				//Waits for earlier background flushes, so an older state cannot replace this one.
+				flusher.submit(new Callable<Void>() {
+					public Void call() {
+						return null;
+					}
+				}).get();
 			}
-			//Iterates each element in the list futureMeetings.
-			//For each elemet, the id, name, and notes are written.
-			//Dates are written using toString() because I do not know what variable the user requires, TimeZone, Calendar system etc...
-			Iterator<FutureMeeting> futureMeetingIterator = futureMeetings.iterator();
-			//Writes "FUTURE MEETINGS" so contact record can be easily identified.
-			contactsWriter.println("FUTURE MEETINGS");
-			while (futureMeetingIterator.hasNext()) {
-				FutureMeeting temp = futureMeetingIterator.next();
-				contactsWriter.println(temp.getId() + ", " + getContactIds(temp.getContacts()) + ", " + temp.getDate().toString());
+			writeSnapshot();
+			if (journal != null) {
+				//Every journal record is now held in the snapshot, so the journal can be emptied.
+				journal.truncate();
 			}
-		} catch (FileNotFoundException ex) {
-			ex.printStackTrace();
 		} catch (IOException ex) {
 			ex.printStackTrace();
+		} catch (ExecutionException ex) {
+			ex.printStackTrace();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns a ticket for the durability of every change made so far.
+	 *
+	 * Without a journal, changes are only saved by flush(), so the ticket is already complete.
+	 *
+	 * @return a Future completed once every change made so far is in the journal on disk.
+	 */
+	public Future<Void> sync() {
+		if (journal == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return journal.commitTicket();
+	}
+
+	/**
+	 * Closes the journal, if there is one. Changes made afterwards are not journaled.
+	 * Changes waiting for a group commit are forced to disk first.
+	 * Background flushes already requested are still written.
+	 *
+	 * @throws IOException if the journal cannot be closed.
+	 */
+	public void close() throws IOException {
+		if (flusher != null) {
+			flusher.shutdown();
+			flusher = null;
+		}
+		if (journal != null) {
+			journal.close();
+			journal = null;
+		}
+	}
+
+	/**
+	 * Writes a binary snapshot to snapshotFile. See ContactFileWriter for the format.
+	 *
+	 * The snapshot is written to a temporary file which then replaces snapshotFile,
+	 * so a crash part way through never leaves a half-written snapshot behind.
+	 *
+	 * @throws IOException if the snapshot cannot be written.
+	 */
+	private void writeSnapshot() throws IOException {
+		File temp = new File(snapshotFile.getPath() + ".tmp");
+		ContactFileWriter contactsWriter = new ContactFileWriter(temp);
+		try {
+			//Writes the current values of the ContactImpl and MeetingImpl iDCounters.
+			//Allows these static values to be recovered when the application is restarted.
+			contactsWriter.writeHeader(ContactImpl.iDCounter.get(), MeetingImpl.iDCounter.get());
+			contactsWriter.writeContacts(contactsInIdOrder());
+			//Past and future meetings are both written in date order, so loading them appends to every posting list.
+			//Dates are written as epoch milliseconds, so no TimeZone or Calendar system is assumed.
+			contactsWriter.writeMeetings(meetingsInDateOrder());
 		} finally {
 			contactsWriter.close();
 		}
+		Files.move(temp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 	}
 
 	/**
-	 * Takes a Set of Contacts as an argument
-	 * then returns a String containing that Set's Contact ids.
-	 * Ids are enclosed within square brackets.
-	 * Ids are delimited by a single space character.
+	 * Returns an iterator over every stored contact in id order,
+	 * so loading them appends to every name index list.
 	 *
-	 * @param contacts is the Set to bbe used as the basic of the string.
-	 * @return the String containg the set's ids.
+	 * @return an iterator over every contact, read from contactIndex.
 	 */
-	private String getContactIds(Set<Contact> contacts) {
-		String result = "[";
-		Iterator<Contact> contactIterator = contacts.iterator();
-		while (contactIterator.hasNext()) {
-			Contact temp = contactIterator.next();
-			result = result + temp.getId();
-			if (contactIterator.hasNext()) {
-				//Tests if there are any characters left to iterate.
-				//If true a space character is concatenated to the result.
-				result = result + " ";
+	private Iterator<Contact> contactsInIdOrder() {
+		final int[] contactIds = contactIndex.keys();
+		Arrays.sort(contactIds);
+		return new Iterator<Contact>() {
+			private int position = 0;
+
+			public boolean hasNext() {
+				return position < contactIds.length;
 			}
+
+			public Contact next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Contact result = contactIndex.get(contactIds[position]);
+				position++;
+				return result;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns an iterator over every stored meeting in chronological order,
+	 * with meetings at the same instant in the order they were added.
+	 *
+	 * @return an iterator over every meeting, read from meetingsByDate.
+	 */
+	private Iterator<Meeting> meetingsInDateOrder() {
+		final Iterator<Map.Entry<Long, PostingList>> dateIterator = meetingsByDate.entriesFrom(null);
+		return new Iterator<Meeting>() {
+			private PostingList meetingIds = null;
+			private int position = 0;
+
+			public boolean hasNext() {
+				while ((meetingIds == null || position == meetingIds.size()) && dateIterator.hasNext()) {
+					meetingIds = dateIterator.next().getValue();
+					position = 0;
+				}
+				return meetingIds != null && position < meetingIds.size();
+			}
+
+			public Meeting next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Meeting result = meetingIndex.get(meetingIds.get(position));
+				position++;
+				return result;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Iterates over the meetings of one kind in a contact's posting list, in chronological order.
+	 * Each meeting is looked up only when the iterator reaches it.
+	 */
+	private static class MeetingCursor<M extends Meeting> implements Iterator<M> {
+		/**
+		 * The ids of the contact's meetings in date order, or null if the contact has none.
+		 */
+		private final PostingList meetingIds;
+		/**
+		 * The index the meetings are looked up in.
+		 */
+		private final MeetingStore meetingIndex;
+		/**
+		 * The kind of meeting returned. Meetings of any other kind are skipped.
+		 */
+		private final Class<? extends Meeting> kind;
+		/**
+		 * The position in meetingIds of the next meeting to be examined.
+		 */
+		private int position;
+		/**
+		 * The next meeting to be returned, or null if there are no more.
+		 */
+		private M next;
+
+		/**
+		 * Constructor method.
+		 *
+		 * @param meetingIds the ids of the contact's meetings, or null if there are none.
+		 * @param meetingIndex the index the meetings are looked up in.
+		 * @param kind the kind of meeting to be returned, which must be assignable to M.
+		 * @param start the position in meetingIds of the first meeting to be examined.
+		 */
+		MeetingCursor(PostingList meetingIds, MeetingStore meetingIndex, Class<? extends Meeting> kind, int start) {
+			this.meetingIds = meetingIds;
+			this.meetingIndex = meetingIndex;
+			this.kind = kind;
+			position = start;
+			next = advance();
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public M next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			M result = next;
+			next = advance();
+			return result;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Finds the next meeting of the right kind.
+		 *
+		 * @return the next meeting of the right kind, or null if there are no more.
+		 */
+		@SuppressWarnings("unchecked")
+		private M advance() {
+			int size = (meetingIds == null) ? 0 : meetingIds.size();
+			while (position < size) {
+				Meeting candidate = meetingIndex.get(meetingIds.get(position));
+				position++;
+				if (kind.isInstance(candidate)) {
+					return (M) candidate;
+				}
+			}
+			return null;
 		}
-		result = result + "]";
-		return result;
 	}
-}
\ No newline at end of file
+}
@@ -5,13 +5,19 @@ import java.util.GregorianCalendar;
 import java.util.Calendar;
 import java.util.Set;
 import java.util.List;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.HashSet;
+import java.util.TimeZone;
+import java.util.concurrent.Future;
 import org.junit.After;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import org.junit.Assume;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 
 /**
  * Tests the class ContactManagerImpl.
@@ -22,13 +28,15 @@ public class ContactManagerTest {
 	ContactManager myContactManager; //A ContactManager object to be used in testing.
 	Set<Contact> batmanSuperman; // A set of contacts to be used in testing. To be used to create one FutureMeeting and one PastMeeting;
 	Set<Contact> lanternSuperman; //A set of contacts for testing. Will have multiple past and future meetings.
+	FakeClock clock; //The clock myContactManager reads, so the fixed dates below stay in the past or the future.
 
 	/**
 	 * Sets up objects to be used in testing.
 	 */
 	@Before
 	public void buildUp() {
-		myContactManager = new ContactManagerImpl();
+		clock = new FakeClock(new GregorianCalendar(2015, 0, 1).getTimeInMillis());
+		myContactManager = new ContactManagerImpl(clock);
 		myContactManager.addNewContact("Bruce Wayne", "The Dark Knight");
 				//Contact id = 1
 				//Will have one future and one past meeting.
@@ -67,8 +75,8 @@ public class ContactManagerTest {
 	 */
 	@After
 	public void cleanUp() {
-		ContactImpl.iDCounter = 0;
-		MeetingImpl.iDCounter = 0;
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
 	}
 
 	/**
@@ -533,13 +541,13 @@ public class ContactManagerTest {
 	@Test
 	public void shouldAddNotesSuccessfully() {
 		try {
-			myContactManager.addFutureMeeting(lanternSuperman, Calendar.getInstance());
-			//Add a new meeting id = 8
-			//Uses the current system date.
-			//addMeetingNotes() should convert a meeting carrying today's date into a PastMeeting.
+			Calendar soon = Calendar.getInstance();
+			soon.setTimeInMillis(clock.currentTimeMillis() + 60000);
+			myContactManager.addFutureMeeting(lanternSuperman, soon);
+			//Add a new meeting id = 8, scheduled a minute from the clock's time.
+			clock.advance(60000);
+			//addMeetingNotes() should convert a meeting which has now taken place into a PastMeeting.
 			myContactManager.addMeetingNotes(8, "Rogue's Gallery");
-				//Meeting id 6 is scheduled for the current system time.
-				//So it should be in the past by the time of this method call.
 		} catch (IllegalStateException ex) {
 		} catch (NullPointerException ex) {
 		} catch (IllegalArgumentException ex) {} //No action required if these exceptions are thrown.
@@ -699,37 +707,103 @@ public class ContactManagerTest {
 				//Verifies that the returned set contains two Contacts
 	}
 
+	/**
+	 * Tests getContacts(String)
+	 *
+	 * Verifies that contacts whose names contain the string are returned, not only exact matches.
+	 */
+	@Test
+	public void shouldReturnContactsWhoseNameContainsString() {
+		myContactManager.addNewContact("Thomas Wayne", "Gotham General");
+				//Contact id = 5
+		Set<Contact> testSet = myContactManager.getContacts("Wayne");
+		assertEquals(2, testSet.size());
+	}
+
+	/**
+	 * Tests getContacts(String)
+	 *
+	 * Verifies that a string too short for the index still finds matching contacts.
+	 */
+	@Test
+	public void shouldReturnContactsForShortString() {
+		Set<Contact> testSet = myContactManager.getContacts("an");
+				//Diana Prince and Hal Jordan contain "an".
+		assertEquals(2, testSet.size());
+	}
+
+	/**
+	 * Tests getContactsByPrefix()
+	 *
+	 * Verifies that contacts whose names start with the prefix are returned in name order.
+	 */
+	@Test
+	public void shouldReturnContactsStartingWithPrefix() {
+		myContactManager.addNewContact("Barry Allen", "The Fastest Man Alive");
+				//Contact id = 5
+		List<Contact> testList = myContactManager.getContactsByPrefix("B", 10);
+		assertEquals(2, testList.size());
+		assertEquals("Barry Allen", testList.get(0).getName());
+		assertEquals("Bruce Wayne", testList.get(1).getName());
+	}
+
+	/**
+	 * Tests getContactsByPrefix()
+	 *
+	 * Verifies that no more than limit contacts are returned.
+	 */
+	@Test
+	public void shouldStopAtPrefixLimit() {
+		myContactManager.addNewContact("Barry Allen", "The Fastest Man Alive");
+				//Contact id = 5
+		List<Contact> testList = myContactManager.getContactsByPrefix("B", 1);
+		assertEquals(1, testList.size());
+		assertEquals("Barry Allen", testList.get(0).getName());
+	}
+
 	/**
 	 * Tests flush().
 	 *
-	 * Confirm that flush() create a file called "contacts.txt"
+	 * Confirm that flush() create a file called "contacts.dat"
 	 */
 	@Test
 	public void shouldCreateFile() {
 		myContactManager.flush();
-		File contacts = new File("./contacts.txt");
+		File contacts = new File("./contacts.dat");
 		assertTrue(contacts.exists());
 	}
 
 	/**
 	 * Tests flush().
 	 *
-	 * Verfies that data is written to "contacts.txt".
-	 * The tests read each line sequentially.
-	 * It increments a counter for each line of date.
-	 * The file should 16 lines: 3 for titles (eg. "CONTACTS"), 2 for iDcounters, 4 for contacts and 7 for meetings.
+	 * Verfies that data is written to "contacts.dat".
+	 * The test skips the header, then reads each section header in turn.
+	 * It adds up the record counts of the contact and meeting sections.
+	 * The file should hold 4 contacts and 7 meetings.
 	 */
 	@Test
-	public void fileShouldContain16Lines() {
-		int counter = 0;
-		BufferedReader myReader = null;
+	public void fileShouldContain4ContactsAnd7Meetings() {
+		int contactCount = 0;
+		int meetingCount = 0;
+		DataInputStream myReader = null;
 		try {
 			myContactManager.flush();
-			myReader = new BufferedReader(new FileReader(new File("./contacts.txt")));
-			String line = myReader.readLine();
-			while (line != null) {
-				counter++;
-				line = myReader.readLine();
+			myReader = new DataInputStream(new BufferedInputStream(new FileInputStream("./contacts.dat")));
+			myReader.readInt(); //Magic number.
+			myReader.readByte(); //Version.
+			myReader.readByte(); //Contact iDcounter, one byte while it is below 128.
+			myReader.readByte(); //Meeting iDcounter, one byte while it is below 128.
+			int type = myReader.read();
+			while (type != -1) {
+				int length = myReader.readInt();
+				int count = myReader.readInt();
+				if (type == ContactFileWriter.CONTACT_SECTION) {
+					contactCount += count;
+				} else if (type == ContactFileWriter.MEETING_SECTION) {
+					meetingCount += count;
+				}
+				myReader.skipBytes(length - 4); //The length includes the record count.
+				type = myReader.read();
 			}
 		} catch (IOException ex) { //No action required for caught exception.
 		} finally {
@@ -737,7 +811,33 @@ public class ContactManagerTest {
 				myReader.close();
 			} catch (IOException ex) {} //No action required for caught exception.
 		}
-		assertEquals(16, counter);
+		assertEquals(4, contactCount);
+		assertEquals(7, meetingCount);
+	}
+
+	/**
+	 * Tests flush().
+	 *
+	 * Checks that the file starts with the magic number and version.
+	 */
+	@Test
+	public void shouldWriteHeaderCorrectly() {
+		DataInputStream myReader = null;
+		int magic = 0;
+		int version = 0;
+		try {
+			myContactManager.flush();
+			myReader = new DataInputStream(new FileInputStream("./contacts.dat"));
+			magic = myReader.readInt();
+			version = myReader.readByte();
+		} catch (IOException ex) { //No action required for caught exception.
+		} finally {
+			try {
+				myReader.close();
+			} catch (IOException ex) {} //No action required for caught exception.
+		}
+		assertEquals(ContactFileWriter.MAGIC, magic);
+		assertEquals(ContactFileWriter.VERSION, version);
 	}
 
 	/**
@@ -747,19 +847,20 @@ public class ContactManagerTest {
 	 */
 	@Test
 	public void shouldWriteContactIdCounterCorrectly() {
-		BufferedReader myReader = null;
-		String line = null;
+		DataInputStream myReader = null;
+		int counter = 0;
 		try {
 			myContactManager.flush();
-			myReader = new BufferedReader(new FileReader(new File("./contacts.txt")));
-			line = myReader.readLine();
+			myReader = new DataInputStream(new FileInputStream("./contacts.dat"));
+			myReader.skipBytes(5); //Skips the magic number and version.
+			counter = myReader.readByte();
 		} catch (IOException ex) { //No action required for caught exception.
 		} finally {
 			try {
 				myReader.close();
 			} catch (IOException ex) {} //No action required for caught exception.
 		}
-		assertEquals("4", line);
+		assertEquals(4, counter);
 	}
 
 	/**
@@ -769,20 +870,20 @@ public class ContactManagerTest {
 	 */
 	@Test
 	public void shouldWriteMeetingIdCounterCorrectly() {
-		BufferedReader myReader = null;
-		String line = null;
+		DataInputStream myReader = null;
+		int counter = 0;
 		try {
 			myContactManager.flush();
-			myReader = new BufferedReader(new FileReader(new File("./contacts.txt")));
-			line = myReader.readLine();
-			line = myReader.readLine();
+			myReader = new DataInputStream(new FileInputStream("./contacts.dat"));
+			myReader.skipBytes(6); //Skips the magic number, version and Contact iDcounter.
+			counter = myReader.readByte();
 		} catch (IOException ex) { //No action required for caught exception.
 		} finally {
 			try {
 				myReader.close();
 			} catch (IOException ex) {} //No action required for caught exception.
 		}
-		assertEquals("7", line);
+		assertEquals(7, counter);
 	}
 
 	/**
@@ -948,6 +1049,462 @@ public class ContactManagerTest {
 		assertTrue(noDupes);
 	}
 
+	/**
+	 * Tests getPastMeetingList(Contact) and getFutureMeetingList(Contact).
+	 *
+	 * A FutureMeeting converted by addMeetingNotes() should move from the future list to the past list.
+	 */
+	@Test
+	public void shouldMoveConvertedMeetingToPastList() {
+		Calendar soon = Calendar.getInstance();
+		soon.setTimeInMillis(clock.currentTimeMillis() + 50);
+		myContactManager.addFutureMeeting(lanternSuperman, soon);
+			//Adds meeting id = 8, scheduled 50 milliseconds from the clock's time.
+		clock.advance(100); //Moves the clock past the meeting.
+		myContactManager.addMeetingNotes(8, "Rogue's Gallery");
+		Contact superman = myContactManager.getContacts(2).iterator().next();
+		List<PastMeeting> pastList = myContactManager.getPastMeetingList(superman);
+		List<Meeting> futureList = myContactManager.getFutureMeetingList(superman);
+		boolean inPastList = false;
+		for (int i = 0; i < pastList.size(); i++) {
+			if (pastList.get(i).getId() == 8) {
+				inPastList = true;
+			}
+		}
+		boolean inFutureList = false;
+		for (int i = 0; i < futureList.size(); i++) {
+			if (futureList.get(i).getId() == 8) {
+				inFutureList = true;
+			}
+		}
+		assertTrue(inPastList && !inFutureList);
+	}
+
+	/**
+	 * Tests getFutureMeetingList(Calendar).
+	 *
+	 * Should return meetings held at any time on the given day, not only at the exact instant.
+	 */
+	@Test
+	public void shouldReturnMeetingsForWholeDayUsingCalendar() {
+		List<Meeting> testList = myContactManager.getFutureMeetingList(new GregorianCalendar(2013, 10, 5));
+		//Meetings 3 and 5 took place at 12:30 on this day.
+		assertEquals(2, testList.size());
+	}
+
+	/**
+	 * Tests getMeetingList(Calendar, Calendar).
+	 *
+	 * Should return past and future meetings within the range, in chronological order.
+	 */
+	@Test
+	public void shouldReturnMeetingsWithinRange() {
+		List<Meeting> testList = myContactManager.getMeetingList(new GregorianCalendar(2012, 0, 1), new GregorianCalendar(2015, 0, 1));
+		//Meetings 4 (2012), 3 and 5 (2013) and 1 (2014) fall within the range.
+		assertEquals(4, testList.size());
+		assertEquals(4, testList.get(0).getId());
+		assertEquals(3, testList.get(1).getId());
+		assertEquals(5, testList.get(2).getId());
+		assertEquals(1, testList.get(3).getId());
+	}
+
+	/**
+	 * Tests getMeetingList(Calendar, TimeZone).
+	 *
+	 * The day should begin and end at midnight in the requested time zone.
+	 */
+	@Test
+	public void shouldReturnMeetingsForDayInTimeZone() {
+		TimeZone tokyo = TimeZone.getTimeZone("Asia/Tokyo");
+		Calendar lateEvening = new GregorianCalendar(tokyo);
+		lateEvening.clear();
+		lateEvening.set(2019, 3, 1, 23, 30);
+		Calendar nextMorning = new GregorianCalendar(tokyo);
+		nextMorning.clear();
+		nextMorning.set(2019, 3, 2, 0, 30);
+		myContactManager.addNewPastMeeting(batmanSuperman, lateEvening, "Late shift");
+			//Adds meeting id = 8.
+		myContactManager.addNewPastMeeting(batmanSuperman, nextMorning, "Early shift");
+			//Adds meeting id = 9.
+		List<Meeting> testList = myContactManager.getMeetingList(nextMorning, tokyo);
+		assertEquals(1, testList.size());
+		assertEquals(9, testList.get(0).getId());
+	}
+
+	/**
+	 * Tests getPastMeetingList(Contact).
+	 *
+	 * A contact with a long history added in reverse date order should still get a chronological list.
+	 */
+	@Test
+	public void shouldReturnLongPastMeetingListInChronologicalOrder() {
+		Calendar date = new GregorianCalendar(2014, 0, 1, 9, 0);
+		for (int i = 0; i < 5000; i++) {
+			Calendar meetingDate = (Calendar) date.clone();
+			myContactManager.addNewPastMeeting(batmanSuperman, meetingDate, "Patrol report");
+			date.add(Calendar.HOUR, -1); //Each meeting is an hour earlier than the previous one.
+		}
+		Contact batman = myContactManager.getContacts(1).iterator().next();
+		List<PastMeeting> testList = myContactManager.getPastMeetingList(batman);
+		boolean inOrder = true;
+		for (int i = 1; i < testList.size(); i++) {
+			if (testList.get(i - 1).getDate().after(testList.get(i).getDate())) {
+				inOrder = false;
+			}
+		}
+		assertEquals(5001, testList.size());
+		assertTrue(inOrder);
+	}
+
+	/**
+	 * Tests snapshot().
+	 *
+	 * Changes made after a snapshot is taken should not be seen by the snapshot.
+	 */
+	@Test
+	public void shouldIsolateSnapshotFromLaterChanges() {
+		ContactManager snapshot = ((ContactManagerImpl) myContactManager).snapshot();
+		myContactManager.addNewContact("Selina Kyle", "Catwoman");
+		myContactManager.addNewPastMeeting(batmanSuperman, new GregorianCalendar(2014, 5, 1, 22, 0), "Rooftops");
+		myContactManager.addMeetingNotes(1, "Replaced notes");
+		Contact batman = snapshot.getContacts(1).iterator().next();
+		assertEquals(0, snapshot.getContacts("Selina").size());
+		assertEquals(2, snapshot.getPastMeetingList(batman).size() + snapshot.getFutureMeetingList(batman).size());
+		assertEquals("Acheiving Justice: Finding A Better World", snapshot.getPastMeeting(1).getNotes());
+		assertEquals(1, myContactManager.getContacts("Selina").size());
+		assertEquals("Replaced notes", myContactManager.getPastMeeting(1).getNotes());
+	}
+
+	/**
+	 * Tests flushInBackground().
+	 *
+	 * The file should hold the state at the time of the call, even if changes are made while it is written.
+	 */
+	@Test
+	public void shouldFlushFrozenStateInBackground() throws Exception {
+		ContactManagerImpl manager = (ContactManagerImpl) myContactManager;
+		Future<Void> written = manager.flushInBackground();
+		manager.addNewContact("Selina Kyle", "Catwoman");
+		written.get();
+		manager.close();
+		ContactManagerImpl loaded = ContactManagerImpl.load(new File("./contacts.dat"));
+		assertEquals(4, loaded.getContacts("").size());
+		assertEquals(7, loaded.meetingIndex.size());
+	}
+
+	/**
+	 * Tests getContacts().
+	 *
+	 * The stored contact itself should be returned, and it should not be possible to change it.
+	 */
+	@Test
+	public void shouldReturnSealedStoredContacts() {
+		Contact batman = myContactManager.getContacts(1).iterator().next();
+		assertSame(batman, myContactManager.getContacts("Bruce").iterator().next());
+		assertSame(batman, myContactManager.getContactsByPrefix("Bru", 1).get(0));
+		assertSame(batman, myContactManager.getPastMeeting(1).getContacts().iterator().next());
+		boolean exceptionThrown = false;
+		try {
+			batman.addNotes("Changed");
+		} catch (UnsupportedOperationException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		assertEquals("The Dark Knight", myContactManager.getContacts(1).iterator().next().getNotes());
+	}
+
+	/**
+	 * Tests getContacts().
+	 *
+	 * Lookups should not allocate an object for each contact found.
+	 * Each hit may cost a few bytes of array, but never a copied contact or a hash set entry.
+	 */
+	@Test
+	public void shouldNotAllocatePerHit() {
+		//Every lookup should hand back the stored, sealed contact rather than a copy.
+		Contact first = myContactManager.getContacts(1).iterator().next();
+		assertSame(first, myContactManager.getContacts(1).iterator().next());
+		assertSame(first, myContactManager.getContacts("Bruce Wayne").iterator().next());
+		assertTrue(((ContactImpl) first).isSealed());
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue("Allocation counting is not available on this JVM", threads instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+		int hits = 500;
+		int[] ids = new int[hits];
+		for (int i = 0; i < hits; i++) {
+			myContactManager.addNewContact("Robin " + i, "");
+			ids[i] = i + 5;
+		}
+		long thread = Thread.currentThread().getId();
+		long fewestPerHit = Long.MAX_VALUE;
+		for (int round = 0; round < 20; round++) {
+			long start = allocations.getThreadAllocatedBytes(thread);
+			myContactManager.getContacts(5);
+			myContactManager.getContacts("Robin 499");
+			long middle = allocations.getThreadAllocatedBytes(thread);
+			myContactManager.getContacts(ids);
+			myContactManager.getContacts("Robin");
+			long end = allocations.getThreadAllocatedBytes(thread);
+			fewestPerHit = Math.min(fewestPerHit, ((end - middle) - (middle - start)) / (2 * hits));
+		}
+		//A copied ContactImpl alone takes at least 24 bytes.
+		assertTrue("Allocated " + fewestPerHit + " bytes per hit", fewestPerHit < 24);
+	}
+
+	/**
+	 * Tests addNewContacts().
+	 *
+	 * Each contact should be given the next id in order, and be found like any other contact.
+	 */
+	@Test
+	public void shouldAddContactsInBulk() {
+		int[] ids = myContactManager.addNewContacts(new String[] {"Selina Kyle", "Barry Allen"}, new String[] {"Catwoman", "The Flash"});
+		assertEquals(2, ids.length);
+		assertEquals(5, ids[0]);
+		assertEquals(6, ids[1]);
+		assertEquals("The Flash", myContactManager.getContacts(6).iterator().next().getNotes());
+		assertEquals(1, myContactManager.getContacts("Selina").size());
+		myContactManager.addNewContact("Arthur Curry", "Aquaman");
+		assertEquals(1, myContactManager.getContacts(7).size());
+	}
+
+	/**
+	 * Tests addNewContacts().
+	 *
+	 * A batch holding a null should add no contact at all.
+	 */
+	@Test
+	public void shouldRejectWholeContactBatch() {
+		boolean exceptionThrown = false;
+		try {
+			myContactManager.addNewContacts(new String[] {"Selina Kyle", null}, new String[] {"Catwoman", ""});
+		} catch (NullPointerException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		exceptionThrown = false;
+		try {
+			myContactManager.addNewContacts(new String[] {"Selina Kyle"}, new String[0]);
+		} catch (IllegalArgumentException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		assertEquals(0, myContactManager.getContacts("Selina").size());
+	}
+
+	/**
+	 * Tests addFutureMeetings() and addNewPastMeetings().
+	 *
+	 * The meetings should be given consecutive ids and be found by contact and by id.
+	 */
+	@Test
+	public void shouldAddMeetingsInBulk() {
+		Contact diana = myContactManager.getContacts(3).iterator().next();
+		List<Set<Contact>> attendees = new ArrayList<Set<Contact>>();
+		attendees.add(myContactManager.getContacts(3));
+		attendees.add(myContactManager.getContacts(1, 3));
+		List<Calendar> dates = new ArrayList<Calendar>();
+		dates.add(new GregorianCalendar(2014, 1, 1));
+		dates.add(new GregorianCalendar(2014, 1, 2));
+		List<String> texts = new ArrayList<String>();
+		texts.add("Themyscira");
+		texts.add("Gotham");
+		int[] pastIds = myContactManager.addNewPastMeetings(attendees, dates, texts);
+		assertEquals(8, pastIds[0]);
+		assertEquals(9, pastIds[1]);
+		assertEquals("Gotham", myContactManager.getPastMeeting(9).getNotes());
+		assertEquals(2, myContactManager.getPastMeetingList(diana).size());
+
+		Calendar later = Calendar.getInstance();
+		later.setTimeInMillis(clock.currentTimeMillis());
+		later.add(Calendar.YEAR, 1);
+		dates.set(0, later);
+		dates.set(1, later);
+		int[] futureIds = myContactManager.addFutureMeetings(attendees, dates);
+		assertEquals(10, futureIds[0]);
+		assertEquals(2, myContactManager.getFutureMeetingList(diana).size());
+		assertNotNull(myContactManager.getFutureMeeting(11));
+	}
+
+	/**
+	 * Tests addFutureMeetings().
+	 *
+	 * A batch holding one bad meeting should add no meeting at all.
+	 */
+	@Test
+	public void shouldRejectWholeMeetingBatch() {
+		Calendar later = Calendar.getInstance();
+		later.setTimeInMillis(clock.currentTimeMillis());
+		later.add(Calendar.YEAR, 1);
+		List<Set<Contact>> attendees = new ArrayList<Set<Contact>>();
+		attendees.add(myContactManager.getContacts(3));
+		Set<Contact> unknown = new HashSet<Contact>();
+		unknown.add(new ContactImpl(99, "Unknown", ""));
+		attendees.add(unknown);
+		List<Calendar> dates = new ArrayList<Calendar>();
+		dates.add(later);
+		dates.add(later);
+		boolean exceptionThrown = false;
+		try {
+			myContactManager.addFutureMeetings(attendees, dates);
+		} catch (IllegalArgumentException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		assertEquals(0, myContactManager.getFutureMeetingList(myContactManager.getContacts(3).iterator().next()).size());
+		assertNull(myContactManager.getMeeting(8));
+	}
+
+	/**
+	 * Tests getPastMeetings() and getFutureMeetings().
+	 *
+	 * The iterators should return the same meetings, in the same order, as the lists.
+	 */
+	@Test
+	public void shouldIterateMeetingsInListOrder() {
+		Contact superman = myContactManager.getContacts(2).iterator().next();
+		List<PastMeeting> pastList = myContactManager.getPastMeetingList(superman);
+		Iterator<PastMeeting> pastIterator = myContactManager.getPastMeetings(superman);
+		for (int i = 0; i < pastList.size(); i++) {
+			assertTrue(pastIterator.hasNext());
+			assertSame(pastList.get(i), pastIterator.next());
+		}
+		assertFalse(pastIterator.hasNext());
+		List<Meeting> futureList = myContactManager.getFutureMeetingList(superman);
+		Iterator<Meeting> futureIterator = myContactManager.getFutureMeetings(superman);
+		for (int i = 0; i < futureList.size(); i++) {
+			assertSame(futureList.get(i), futureIterator.next());
+		}
+		assertFalse(futureIterator.hasNext());
+		assertFalse(myContactManager.getPastMeetings(myContactManager.getContacts(3).iterator().next()).hasNext());
+	}
+
+	/**
+	 * Tests getPastMeetings().
+	 *
+	 * Should throw an exception for an unknown contact, and refuse remove().
+	 */
+	@Test
+	public void shouldRejectUnknownContactForIterator() {
+		boolean exceptionThrown = false;
+		try {
+			myContactManager.getPastMeetings(new ContactImpl(99, "Unknown", ""));
+		} catch (IllegalArgumentException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		exceptionThrown = false;
+		Iterator<PastMeeting> iterator = myContactManager.getPastMeetings(myContactManager.getContacts(2).iterator().next());
+		iterator.next();
+		try {
+			iterator.remove();
+		} catch (UnsupportedOperationException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+	}
+
+	/**
+	 * Tests addMeetingNotes().
+	 *
+	 * Replacing notes should keep the meeting in the same place, and add no meeting.
+	 */
+	@Test
+	public void shouldReplaceNotesInPlace() {
+		ContactManagerImpl manager = (ContactManagerImpl) myContactManager;
+		Contact superman = myContactManager.getContacts(2).iterator().next();
+		List<PastMeeting> before = myContactManager.getPastMeetingList(superman);
+		manager.addMeetingNotes(3, "Replaced notes");
+		List<PastMeeting> after = myContactManager.getPastMeetingList(superman);
+		assertEquals(before.size(), after.size());
+		for (int i = 0; i < before.size(); i++) {
+			assertEquals(before.get(i).getId(), after.get(i).getId());
+		}
+		assertEquals("Replaced notes", myContactManager.getPastMeeting(3).getNotes());
+		assertEquals(7, manager.meetingIndex.size());
+	}
+
+	/**
+	 * Tests migrateDueMeetings().
+	 *
+	 * A future meeting should be moved into the past, with empty notes, once its date has passed.
+	 */
+	@Test
+	public void shouldMigrateDueMeetings() {
+		FakeClock clock = new FakeClock(System.currentTimeMillis());
+		ContactManagerImpl manager = new ContactManagerImpl(clock);
+		manager.addNewContact("Bruce Wayne", "The Dark Knight");
+		Calendar soon = Calendar.getInstance();
+		soon.setTimeInMillis(clock.currentTimeMillis() + 60000);
+		int id = manager.addFutureMeeting(manager.getContacts(5), soon);
+		assertEquals(0, manager.migrateDueMeetings());
+		assertNotNull(manager.getFutureMeeting(id));
+		clock.advance(60000);
+		assertEquals(1, manager.migrateDueMeetings());
+		assertEquals("", manager.getPastMeeting(id).getNotes());
+		assertEquals(0, manager.migrateDueMeetings());
+		boolean exceptionThrown = false;
+		try {
+			manager.getFutureMeeting(id);
+		} catch (IllegalArgumentException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		manager.addMeetingNotes(id, "Notes added later");
+		assertEquals("Notes added later", manager.getPastMeeting(id).getNotes());
+	}
+
+	/**
+	 * Tests getFutureMeetingList(), getPastMeetingList() and getMeeting().
+	 *
+	 * A future meeting whose date has passed should be read as past, without calling migrateDueMeetings().
+	 */
+	@Test
+	public void shouldMigrateBeforeReading() {
+		FakeClock clock = new FakeClock(0L);
+		ContactManagerImpl manager = new ContactManagerImpl(clock);
+		manager.addNewContact("Bruce Wayne", "The Dark Knight");
+		Contact batman = manager.getContacts(5).iterator().next();
+		int id = manager.addFutureMeeting(manager.getContacts(5), new GregorianCalendar(2000, 0, 1));
+		assertEquals(1, manager.getFutureMeetingList(batman).size());
+		clock.set(new GregorianCalendar(2000, 0, 2).getTimeInMillis());
+		assertEquals(0, manager.getFutureMeetingList(batman).size());
+		assertEquals(id, manager.getPastMeetingList(batman).get(0).getId());
+		assertTrue(manager.getMeeting(id) instanceof PastMeeting);
+		assertEquals(0, manager.migrateDueMeetings());
+	}
+
+	/**
+	 * Tests addFutureMeeting() and addMeetingNotes() against an injected clock.
+	 *
+	 * Whether a meeting is in the past should be decided by the clock, not the system time.
+	 */
+	@Test
+	public void shouldUseInjectedClock() {
+		FakeClock clock = new FakeClock(new GregorianCalendar(2014, 0, 1).getTimeInMillis());
+		ContactManagerImpl manager = new ContactManagerImpl(clock);
+		manager.addNewContact("Bruce Wayne", "The Dark Knight");
+		int id = manager.addFutureMeeting(manager.getContacts(5), new GregorianCalendar(2014, 5, 1));
+		boolean exceptionThrown = false;
+		try {
+			manager.addMeetingNotes(id, "Too early");
+		} catch (IllegalStateException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		clock.set(new GregorianCalendar(2014, 6, 1).getTimeInMillis());
+		manager.addMeetingNotes(id, "Held");
+		assertEquals("Held", manager.getPastMeeting(id).getNotes());
+		exceptionThrown = false;
+		try {
+			manager.addFutureMeeting(manager.getContacts(5), new GregorianCalendar(2014, 5, 1));
+		} catch (IllegalArgumentException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+	}
+
 	/**
 	 * Counts the number of ids in a list.
 	 */
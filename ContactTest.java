@@ -25,7 +25,7 @@ public class ContactTest {
 	 */
 	@After
 	public void cleanUp() {
-		ContactImpl.iDCounter = 0;
+		ContactImpl.iDCounter.set(0);
 	}
 
 	/**
@@ -74,6 +74,30 @@ public class ContactTest {
 		assertEquals(expectedNotes, actualNotes);
 	}
 
+	/**
+	 * Tests equals() and hashCode().
+	 *
+	 * A copy with the same id, name and notes should be equal and have the same hash code.
+	 */
+	@Test
+	public void shouldEqualCopyWithSameFields() {
+		myContact.addNotes("The Dark Knight");
+		Contact copy = new ContactImpl(myContact.getId(), myContact.getName(), myContact.getNotes());
+		assertTrue(myContact.equals(copy));
+		assertEquals(myContact.hashCode(), copy.hashCode());
+	}
+
+	/**
+	 * Tests equals().
+	 *
+	 * A copy whose notes have changed should not be equal.
+	 */
+	@Test
+	public void shouldNotEqualCopyWithChangedNotes() {
+		Contact copy = new ContactImpl(myContact.getId(), myContact.getName(), "Changed notes");
+		assertFalse(myContact.equals(copy));
+	}
+
 	/**
 	 * Tests that when a Contact object has a null notes field,
 	 * getNotes() returns an empty String.
@@ -85,5 +109,20 @@ public class ContactTest {
 		assertEquals(expectedNotes, actualNotes);
 	}
 
-
-}
\ No newline at end of file
+	/**
+	 * A sealed contact should refuse new notes and keep its old ones.
+	 */
+	@Test
+	public void shouldNotChangeSealedContact() {
+		ContactImpl sealed = new ContactImpl(7, "Alfred Pennyworth", "Butler");
+		sealed.seal();
+		boolean exceptionThrown = false;
+		try {
+			sealed.addNotes("Changed");
+		} catch (UnsupportedOperationException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		assertEquals("Butler", sealed.getNotes());
+	}
+}
@@ -0,0 +1,43 @@
+/**
+ * A clock whose time only changes when it is told to, for use in tests.
+ *
+ * @author Gareth Moore.
+ */
+public class FakeClock implements Clock {
+	/**
+	 * The time the clock returns, in epoch milliseconds.
+	 * Volatile so that a time set by a test is seen by background threads.
+	 */
+	private volatile long now;
+
+	/**
+	 * Constructor method.
+	 *
+	 * @param now the time the clock starts at, in epoch milliseconds.
+	 */
+	public FakeClock(long now) {
+		this.now = now;
+	}
+
+	public long currentTimeMillis() {
+		return now;
+	}
+
+	/**
+	 * Sets the time the clock returns.
+	 *
+	 * @param now the new time in epoch milliseconds.
+	 */
+	public void set(long now) {
+		this.now = now;
+	}
+
+	/**
+	 * Moves the clock forward.
+	 *
+	 * @param millis the number of milliseconds to move forward by.
+	 */
+	public void advance(long millis) {
+		now += millis;
+	}
+}
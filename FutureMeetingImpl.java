@@ -1,6 +1,7 @@
 import java.util.GregorianCalendar;
 import java.util.Calendar;
 import java.util.Set;
+import java.util.TimeZone;
 
 /**
  * Implements the interface FutureMeeting.
@@ -18,4 +19,17 @@ public class FutureMeetingImpl extends MeetingImpl implements FutureMeeting {
 	public FutureMeetingImpl(Set<Contact> contacts, Calendar date) {
 		super(contacts, date);
 	}
+
+	/**
+	 * Constructor method using an existing id.
+	 * Only to be used when restoring saved meetings in ContactManager.
+	 *
+	 * @param id, the id the meeting was given when it was first created.
+	 * @param contacts, the set of contacts who will attend the meeting.
+	 * @param time, the date and time of the scheduled meeting in epoch milliseconds.
+	 * @param zone, the time zone getDate() should use.
+	 */
+	FutureMeetingImpl(int id, Set<Contact> contacts, long time, TimeZone zone) {
+		super(id, contacts, time, zone);
+	}
 }
\ No newline at end of file
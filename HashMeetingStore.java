@@ -0,0 +1,60 @@
+/**
+ * The default meeting store, which keeps each meeting as a MeetingImpl in an IntHashMap.
+ *
+ * Meetings are returned as they were added, so reading one allocates nothing. Adding
+ * notes replaces the meeting with a new PastMeetingImpl in its slot, because meetings
+ * are shared with copies and never changed in place.
+ *
+ * @author Gareth Moore.
+ */
+public class HashMeetingStore implements MeetingStore {
+	/**
+	 * Every meeting, keyed by meeting id.
+	 */
+	final IntHashMap<Meeting> meetings;
+
+	/**
+	 * Constructor method. Creates an empty store.
+	 */
+	public HashMeetingStore() {
+		meetings = new IntHashMap<Meeting>();
+	}
+
+	/**
+	 * Constructor method which takes over a map of meetings.
+	 *
+	 * @param meetings every meeting, keyed by meeting id.
+	 */
+	private HashMeetingStore(IntHashMap<Meeting> meetings) {
+		this.meetings = meetings;
+	}
+
+	public Meeting get(int id) {
+		return meetings.get(id);
+	}
+
+	public boolean containsKey(int id) {
+		return meetings.containsKey(id);
+	}
+
+	public void add(Meeting meeting) {
+		meetings.put(meeting.getId(), meeting);
+	}
+
+	public void setNotes(int id, String notes) {
+		meetings.put(id, new PastMeetingImpl(meetings.get(id), notes));
+	}
+
+	public int size() {
+		return meetings.size();
+	}
+
+	public void ensureCapacity(int expectedSize) {
+		meetings.ensureCapacity(expectedSize);
+	}
+
+	public MeetingStore copy(IntHashMap<Contact> contacts) {
+		//The meetings refer to the contacts themselves, so the contact index is not needed.
+		return new HashMeetingStore(new IntHashMap<Meeting>(meetings));
+	}
+}
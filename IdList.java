@@ -0,0 +1,157 @@
+import java.util.Arrays;
+
+/**
+ * A growable list of contact ids held in ascending order, used by the name indexes.
+ *
+ * A list may be shared between an index and its copies, and the ids are held in a block
+ * which may be shared between several lists. A list appends to a shared block in place
+ * as long as no other list has used the next slot, because the other lists never read
+ * past their own sizes. Any other change is only made in place by the owner the block
+ * was created for, and only until writableBy() shares it; otherwise the list moves to a
+ * new block first. Contacts are added in id order, so adding to a shared list normally
+ * takes constant time.
+ *
+ * @author Gareth Moore.
+ */
+public class IdList {
+	/**
+	 * The block holding the ids.
+	 */
+	private Block block;
+	/**
+	 * The number of ids in the list.
+	 */
+	private int size = 0;
+	/**
+	 * The owner which may change this list in place.
+	 */
+	private final Object owner;
+
+	/**
+	 * Constructor method. Creates an empty list.
+	 *
+	 * @param owner the owner which may change the list in place.
+	 * @param capacity the number of ids the list can hold before its array grows. Must be at least 1.
+	 */
+	public IdList(Object owner, int capacity) {
+		block = new Block(new int[capacity], owner);
+		this.owner = owner;
+	}
+
+	/**
+	 * Constructor method which shares another list's block.
+	 *
+	 * @param other the list to be shared.
+	 * @param owner the owner which may change the new list in place.
+	 */
+	private IdList(IdList other, Object owner) {
+		block = other.block;
+		size = other.size;
+		this.owner = owner;
+	}
+
+	/**
+	 * Returns a list which an owner may add to without affecting anyone else.
+	 * Takes constant time, because the ids are only copied if they need to be.
+	 *
+	 * @param owner the owner about to change the list.
+	 * @return this list if it belongs to owner, otherwise a new list which does.
+	 */
+	public IdList writableBy(Object owner) {
+		if (this.owner == owner) {
+			return this;
+		}
+		//The block is now shared, so not even its owner may change its slots in place.
+		block.owner = null;
+		return new IdList(this, owner);
+	}
+
+	/**
+	 * Adds an id at its sorted position, ignoring it if it is already present.
+	 * Contacts are usually added in id order, so the id is normally appended.
+	 *
+	 * @param id the contact id to be added.
+	 */
+	public void add(int id) {
+		int position = size;
+		if (size > 0 && block.ids[size - 1] >= id) {
+			position = Arrays.binarySearch(block.ids, 0, size, id);
+			if (position >= 0) {
+				return;
+			}
+			position = -(position + 1);
+		}
+		boolean appendable = (position == size && size == block.used);
+		if (size == block.ids.length || !(appendable || block.owner == owner)) {
+			//The block is full, or another list may read the slots which would change, so this list moves to a new block.
+			int length = (size == block.ids.length) ? size * 2 : block.ids.length;
+			block = new Block(Arrays.copyOf(block.ids, length), owner);
+		}
+		int[] ids = block.ids;
+		System.arraycopy(ids, position, ids, position + 1, size - position);
+		ids[position] = id;
+		size++;
+		block.used = size;
+	}
+
+	/**
+	 * Returns the id at the given position.
+	 *
+	 * @param index the position of the id.
+	 * @return the id at the given position.
+	 */
+	public int get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return block.ids[index];
+	}
+
+	/**
+	 * Returns the number of ids in the list.
+	 *
+	 * @return the number of ids in the list.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Tests whether the list contains an id, using binary search.
+	 *
+	 * @param id the contact id to be checked.
+	 * @return true if the id is in the list.
+	 */
+	public boolean contains(int id) {
+		return Arrays.binarySearch(block.ids, 0, size, id) >= 0;
+	}
+
+	/**
+	 * An array of ids which may be shared by several lists.
+	 */
+	private static class Block {
+		/**
+		 * The ids. Each list sharing the block reads the first size of them.
+		 */
+		private final int[] ids;
+		/**
+		 * The number of slots written by any list sharing the block.
+		 */
+		private int used;
+		/**
+		 * The owner which may change the slots in place, or null once the block is shared.
+		 */
+		private Object owner;
+
+		/**
+		 * Constructor method.
+		 *
+		 * @param ids the array of ids.
+		 * @param owner the owner which may change the slots in place.
+		 */
+		private Block(int[] ids, Object owner) {
+			this.ids = ids;
+			this.owner = owner;
+		}
+	}
+}
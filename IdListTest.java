@@ -0,0 +1,71 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests the class IdList.
+ *
+ * @author Gareth Moore.
+ */
+public class IdListTest {
+	IdList myList; //An IdList object to be used in testing.
+	Object owner; //The owner of myList.
+
+	/**
+	 * Creates an empty list to be used in all tests.
+	 */
+	@Before
+	public void buildUp() {
+		owner = new Object();
+		myList = new IdList(owner, 1);
+	}
+
+	/**
+	 * Tests add().
+	 *
+	 * Ids should be held in ascending order, with each id held once.
+	 */
+	@Test
+	public void shouldHoldIdsInOrder() {
+		myList.add(3);
+		myList.add(1);
+		myList.add(2);
+		myList.add(3);
+		assertEquals(3, myList.size());
+		assertEquals(1, myList.get(0));
+		assertEquals(2, myList.get(1));
+		assertEquals(3, myList.get(2));
+		assertTrue(myList.contains(2));
+		assertFalse(myList.contains(4));
+	}
+
+	/**
+	 * Tests writableBy().
+	 *
+	 * Lists sharing ids should not see each other's additions, whether they
+	 * are appended to the shared array or inserted before existing ids.
+	 */
+	@Test
+	public void shouldNotShareChangesWithWritableCopy() {
+		for (int id = 10; id <= 1000; id += 10) {
+			myList.add(id);
+		}
+		assertSame(myList, myList.writableBy(owner));
+		IdList first = myList.writableBy(new Object());
+		IdList second = myList.writableBy(new Object());
+		first.add(1010);
+		second.add(1020);
+		second.add(5);
+		myList.add(15);
+		assertEquals(101, first.size());
+		assertEquals(1010, first.get(100));
+		assertFalse(first.contains(1020));
+		assertEquals(102, second.size());
+		assertEquals(5, second.get(0));
+		assertEquals(1020, second.get(101));
+		assertFalse(second.contains(15));
+		assertEquals(101, myList.size());
+		assertEquals(15, myList.get(1));
+		assertFalse(myList.contains(1010));
+	}
+}
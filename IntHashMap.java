@@ -0,0 +1,380 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map which uses primitive int keys.
+ *
+ * Uses open addressing with linear probing, so keys are never boxed
+ * and a lookup is a single probe sequence over two parallel arrays.
+ * Null values cannot be stored; a null value marks an empty slot.
+ *
+ * The slots are held in chunks of CHUNK_SIZE, so a copy can share them. Copying a map
+ * only copies its arrays of chunks, and afterwards each of the two maps copies a chunk
+ * the first time it changes it. A change therefore copies the chunks it touches rather
+ * than the whole map, and neither map ever sees the other's changes.
+ *
+ * @author Gareth Moore.
+ */
+public class IntHashMap<V> {
+	/**
+	 * The initial number of slots. Must be a power of two.
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+	/**
+	 * log2 of CHUNK_SIZE.
+	 */
+	private static final int CHUNK_BITS = 10;
+	/**
+	 * The most slots held in one chunk. Smaller maps are held in a single, smaller chunk.
+	 */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	/**
+	 * Masks a slot index to its position within a chunk.
+	 */
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	/**
+	 * The keys held in each slot, by chunk.
+	 */
+	private int[][] keys;
+	/**
+	 * The values held in each slot, by chunk. A null value marks an empty slot.
+	 */
+	private Object[][] values;
+	/**
+	 * The owner of each chunk. A chunk may only be changed in place if its owner is this map's owner.
+	 */
+	private Object[] chunkOwners;
+	/**
+	 * Identifies the chunks this map may change in place.
+	 * Replaced whenever the map is copied, so chunks shared with the copy are no longer owned.
+	 */
+	private Object owner = new Object();
+	/**
+	 * The total number of slots. Always a power of two.
+	 */
+	private int capacity;
+	/**
+	 * The number of entries in the map.
+	 */
+	private int size;
+	/**
+	 * The number of entries at which the arrays are doubled.
+	 * Keeps the load factor at or below 0.5 so probe sequences stay short.
+	 */
+	private int threshold;
+
+	/**
+	 * Constructor method. Creates an empty map.
+	 */
+	public IntHashMap() {
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor method which copies another map.
+	 *
+	 * The chunks of slots are shared with other until either map changes them, so this
+	 * takes time proportional to the number of chunks rather than the number of entries.
+	 * The values themselves are shared, not copied. other must not be changed while it
+	 * is being copied, though it may be read.
+	 *
+	 * @param other the map to be copied.
+	 */
+	public IntHashMap(IntHashMap<V> other) {
+		keys = other.keys.clone();
+		values = other.values.clone();
+		chunkOwners = new Object[keys.length];
+		capacity = other.capacity;
+		size = other.size;
+		threshold = other.threshold;
+		//Every chunk is now shared, so other must copy a chunk before it next changes it.
+		other.owner = new Object();
+	}
+
+	/**
+	 * Returns the value mapped to the key, or null if there is none.
+	 *
+	 * @param key the key to be looked up.
+	 * @return the value mapped to the key, or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int mask = capacity - 1;
+		int slot = slotFor(key, mask);
+		Object value;
+		while ((value = values[slot >>> CHUNK_BITS][slot & CHUNK_MASK]) != null) {
+			if (keys[slot >>> CHUNK_BITS][slot & CHUNK_MASK] == key) {
+				return (V) value;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Tests whether the key is mapped to a value.
+	 *
+	 * @param key the key to be checked.
+	 * @return true if the key is mapped to a value.
+	 */
+	public boolean containsKey(int key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Maps the key to the value, replacing any existing mapping.
+	 *
+	 * @param key the key.
+	 * @param value the value to be mapped to the key.
+	 * @return the value previously mapped to the key, or null if there was none.
+	 * @throws NullPointerException if value is null.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) throws NullPointerException {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		int mask = capacity - 1;
+		int slot = slotFor(key, mask);
+		while (values[slot >>> CHUNK_BITS][slot & CHUNK_MASK] != null) {
+			if (keys[slot >>> CHUNK_BITS][slot & CHUNK_MASK] == key) {
+				//The key already exists, so the value is replaced in its slot.
+				V previous = (V) values[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+				writableChunk(slot >>> CHUNK_BITS);
+				values[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = value;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		writableChunk(slot >>> CHUNK_BITS);
+		keys[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = key;
+		values[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = value;
+		size++;
+		if (size > threshold) {
+			resize(capacity * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the mapping for the key.
+	 *
+	 * Entries further along the probe sequence are shifted back,
+	 * so no tombstones are left behind.
+	 *
+	 * @param key the key to be removed.
+	 * @return the value which was mapped to the key, or null if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int mask = capacity - 1;
+		int slot = slotFor(key, mask);
+		while (values[slot >>> CHUNK_BITS][slot & CHUNK_MASK] != null) {
+			if (keys[slot >>> CHUNK_BITS][slot & CHUNK_MASK] == key) {
+				V previous = (V) values[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+				shiftBack(slot, mask);
+				size--;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of entries in the map.
+	 *
+	 * @return the number of entries in the map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Grows the map so it can hold the expected number of entries without resizing.
+	 *
+	 * @param expectedSize the number of entries the map should be able to hold.
+	 */
+	public void ensureCapacity(int expectedSize) {
+		int needed = capacity;
+		while (expectedSize > needed / 2) {
+			needed = needed * 2;
+		}
+		if (needed > capacity) {
+			resize(needed);
+		}
+	}
+
+	/**
+	 * Returns every key in the map, in slot order.
+	 *
+	 * @return an array holding every key in the map.
+	 */
+	public int[] keys() {
+		int[] result = new int[size];
+		int resultSize = 0;
+		for (int i = 0; i < capacity; i++) {
+			if (values[i >>> CHUNK_BITS][i & CHUNK_MASK] != null) {
+				result[resultSize] = keys[i >>> CHUNK_BITS][i & CHUNK_MASK];
+				resultSize++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of chunks the slots are held in.
+	 *
+	 * @return the number of chunks.
+	 */
+	int chunkCount() {
+		return values.length;
+	}
+
+	/**
+	 * Returns the values held in a chunk, so tests can check which chunks two maps share.
+	 *
+	 * @param chunk the index of the chunk.
+	 * @return the array of values held in the chunk.
+	 */
+	Object[] chunk(int chunk) {
+		return values[chunk];
+	}
+
+	/**
+	 * Returns an iterator over the values in the map.
+	 * Values are returned in slot order, not insertion order.
+	 *
+	 * @return an iterator over the values in the map.
+	 */
+	public Iterator<V> valueIterator() {
+		return new Iterator<V>() {
+			private int slot = nextSlot(0);
+
+			public boolean hasNext() {
+				return slot < capacity;
+			}
+
+			@SuppressWarnings("unchecked")
+			public V next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				V result = (V) values[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+				slot = nextSlot(slot + 1);
+				return result;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns the index of the first occupied slot at or after start.
+	 *
+	 * @param start the slot to start searching from.
+	 * @return the index of the next occupied slot, or capacity if there is none.
+	 */
+	private int nextSlot(int start) {
+		int slot = start;
+		while (slot < capacity && values[slot >>> CHUNK_BITS][slot & CHUNK_MASK] == null) {
+			slot++;
+		}
+		return slot;
+	}
+
+	/**
+	 * Empties the slot and moves later entries of the probe sequence back into it.
+	 *
+	 * @param emptied the slot being emptied.
+	 * @param mask the mask used to wrap slot indexes.
+	 */
+	private void shiftBack(int emptied, int mask) {
+		int gap = emptied;
+		int slot = (gap + 1) & mask;
+		while (values[slot >>> CHUNK_BITS][slot & CHUNK_MASK] != null) {
+			int home = slotFor(keys[slot >>> CHUNK_BITS][slot & CHUNK_MASK], mask);
+			//An entry can only fill the gap if its home slot does not lie between the gap and its current slot.
+			if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+				writableChunk(gap >>> CHUNK_BITS);
+				keys[gap >>> CHUNK_BITS][gap & CHUNK_MASK] = keys[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+				values[gap >>> CHUNK_BITS][gap & CHUNK_MASK] = values[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+				gap = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		writableChunk(gap >>> CHUNK_BITS);
+		values[gap >>> CHUNK_BITS][gap & CHUNK_MASK] = null;
+	}
+
+	/**
+	 * Copies a chunk if it is shared with another map, so it can be changed in place.
+	 *
+	 * @param chunk the index of the chunk about to be changed.
+	 */
+	private void writableChunk(int chunk) {
+		if (chunkOwners[chunk] != owner) {
+			keys[chunk] = keys[chunk].clone();
+			values[chunk] = values[chunk].clone();
+			chunkOwners[chunk] = owner;
+		}
+	}
+
+	/**
+	 * Rehashes every entry into arrays of the new capacity.
+	 *
+	 * @param capacity the new number of slots. Must be a power of two.
+	 */
+	private void resize(int newCapacity) {
+		int[][] oldKeys = keys;
+		Object[][] oldValues = values;
+		int oldCapacity = capacity;
+		allocate(newCapacity);
+		int mask = newCapacity - 1;
+		for (int i = 0; i < oldCapacity; i++) {
+			Object value = oldValues[i >>> CHUNK_BITS][i & CHUNK_MASK];
+			if (value != null) {
+				int key = oldKeys[i >>> CHUNK_BITS][i & CHUNK_MASK];
+				int slot = slotFor(key, mask);
+				while (values[slot >>> CHUNK_BITS][slot & CHUNK_MASK] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = key;
+				values[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = value;
+			}
+		}
+	}
+
+	/**
+	 * Creates empty chunks of the given total capacity, all owned by this map.
+	 *
+	 * @param newCapacity the number of slots. Must be a power of two.
+	 */
+	private void allocate(int newCapacity) {
+		int chunkLength = Math.min(newCapacity, CHUNK_SIZE);
+		int chunkCount = newCapacity / chunkLength;
+		keys = new int[chunkCount][chunkLength];
+		values = new Object[chunkCount][chunkLength];
+		chunkOwners = new Object[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			chunkOwners[i] = owner;
+		}
+		capacity = newCapacity;
+		threshold = newCapacity / 2;
+	}
+
+	/**
+	 * Returns the home slot of a key.
+	 * Ids are sequential, so the key is scrambled before it is masked.
+	 *
+	 * @param key the key.
+	 * @param mask the mask used to wrap slot indexes.
+	 * @return the home slot of the key.
+	 */
+	private static int slotFor(int key, int mask) {
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
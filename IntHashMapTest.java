@@ -0,0 +1,141 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import java.util.Iterator;
+
+/**
+ * Tests the class IntHashMap.
+ *
+ * @author Gareth Moore.
+ */
+public class IntHashMapTest {
+	IntHashMap<String> myMap; //An IntHashMap object to be used in testing.
+
+	/**
+	 * Creates an empty map to be used in all tests.
+	 */
+	@Before
+	public void buildUp() {
+		myMap = new IntHashMap<String>();
+	}
+
+	/**
+	 * Tests get().
+	 *
+	 * Should return null when the key has not been added.
+	 */
+	@Test
+	public void shouldReturnNullForMissingKey() {
+		myMap.put(1, "Gotham");
+		assertNull(myMap.get(2));
+	}
+
+	/**
+	 * Tests put() and get().
+	 *
+	 * Adds enough entries to force several resizes and checks each one can still be found.
+	 */
+	@Test
+	public void shouldReturnEveryValueAfterResizing() {
+		for (int i = 1; i <= 10000; i++) {
+			myMap.put(i, "City " + i);
+		}
+		boolean allFound = true;
+		for (int i = 1; i <= 10000; i++) {
+			if (!("City " + i).equals(myMap.get(i))) {
+				allFound = false;
+			}
+		}
+		assertTrue(allFound);
+		assertEquals(10000, myMap.size());
+	}
+
+	/**
+	 * Tests put().
+	 *
+	 * Putting an existing key should replace the value without changing the size.
+	 */
+	@Test
+	public void shouldReplaceExistingValue() {
+		myMap.put(7, "Metropolis");
+		String previous = myMap.put(7, "Smallville");
+		assertEquals("Metropolis", previous);
+		assertEquals("Smallville", myMap.get(7));
+		assertEquals(1, myMap.size());
+	}
+
+	/**
+	 * Tests remove().
+	 *
+	 * Removing every other key should leave the remaining keys reachable.
+	 */
+	@Test
+	public void shouldFindRemainingKeysAfterRemove() {
+		for (int i = 1; i <= 1000; i++) {
+			myMap.put(i, "Star City");
+		}
+		for (int i = 1; i <= 1000; i += 2) {
+			myMap.remove(i);
+		}
+		boolean correct = true;
+		for (int i = 1; i <= 1000; i++) {
+			boolean shouldExist = (i % 2 == 0);
+			if (myMap.containsKey(i) != shouldExist) {
+				correct = false;
+			}
+		}
+		assertTrue(correct);
+		assertEquals(500, myMap.size());
+	}
+
+	/**
+	 * Tests valueIterator().
+	 *
+	 * Should visit every value exactly once.
+	 */
+	@Test
+	public void shouldIterateEveryValue() {
+		for (int i = 1; i <= 100; i++) {
+			myMap.put(i, "Coast City");
+		}
+		int counter = 0;
+		Iterator<String> valueIterator = myMap.valueIterator();
+		while (valueIterator.hasNext()) {
+			valueIterator.next();
+			counter++;
+		}
+		assertEquals(100, counter);
+	}
+
+	/**
+	 * Tests the copy constructor.
+	 *
+	 * The map and its copy share chunks, so changes made to either, including ones which
+	 * shift entries back after a remove or resize the map, should never be seen by the other.
+	 */
+	@Test
+	public void shouldNotShareChangesWithCopy() {
+		for (int i = 1; i <= 5000; i++) {
+			myMap.put(i, "Gotham");
+		}
+		IntHashMap<String> copy = new IntHashMap<String>(myMap);
+		for (int i = 1; i <= 5000; i += 2) {
+			myMap.remove(i);
+			copy.put(i, "Bludhaven");
+		}
+		for (int i = 5001; i <= 20000; i++) {
+			copy.put(i, "Bludhaven");
+		}
+		boolean correct = true;
+		for (int i = 1; i <= 5000; i++) {
+			boolean odd = (i % 2 == 1);
+			if (myMap.containsKey(i) == odd || !copy.get(i).equals(odd ? "Bludhaven" : "Gotham")) {
+				correct = false;
+			}
+		}
+		assertTrue(correct);
+		assertNull(myMap.get(5001));
+		assertEquals(2500, myMap.size());
+		assertEquals(20000, copy.size());
+	}
+}
@@ -0,0 +1,684 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the changes made to a ContactManagerImpl.
+ *
+ * Each change is appended as one record, so the cost of making a change durable depends
+ * on the size of the change rather than the size of the ContactManager.
+ * The journal is emptied by truncate() once its changes have been saved in a snapshot.
+ *
+ * By default each record is written and forced to disk before its append returns.
+ * In group-commit mode appends only queue their records. A background thread writes
+ * the queue and forces it to disk with a single fsync once it holds a batch of records
+ * or its oldest record has waited for the commit interval. Each append returns a
+ * Future which completes once its record is on disk, so a caller only waits when it
+ * needs the change to be durable.
+ *
+ * appendContacts() and appendMeetings() encode a whole batch before writing any of it,
+ * so a batch is written with one write and one fsync, and is never half queued.
+ *
+ * Each record is an int payload length, an int CRC32 of the payload and the payload.
+ * The payload is a type byte followed by:
+ * CONTACT - varint id, name and notes;
+ * FUTURE_MEETING - varint id, the date as a long in epoch milliseconds, a varint attendee count,
+ * a varint id for each attendee and the time zone id;
+ * PAST_MEETING - the same as FUTURE_MEETING with the notes before the time zone id;
+ * MEETING_NOTES - varint meeting id and the notes.
+ * Varints and strings are encoded as in ContactFileWriter. Meeting records written by
+ * earlier versions end before the time zone id, and are replayed in the default zone.
+ *
+ * Every record names the ids it affects, so replaying a record which is already held
+ * in the snapshot changes nothing. A record cut short by a crash is discarded on replay.
+ *
+ * @author Gareth Moore.
+ */
+public class Journal {
+	/**
+	 * The type byte of a record adding a contact.
+	 */
+	static final byte CONTACT = 1;
+	/**
+	 * The type byte of a record adding a future meeting.
+	 */
+	static final byte FUTURE_MEETING = 2;
+	/**
+	 * The type byte of a record adding a past meeting.
+	 */
+	static final byte PAST_MEETING = 3;
+	/**
+	 * The type byte of a record adding notes to a meeting.
+	 */
+	static final byte MEETING_NOTES = 4;
+	/**
+	 * The length of the header in front of each payload.
+	 */
+	private static final int RECORD_HEADER = 8;
+	/**
+	 * The journal file.
+	 */
+	private final File file;
+	/**
+	 * The channel records are appended to.
+	 */
+	private final FileChannel channel;
+	/**
+	 * Holds a record while it is encoded. Grown when a record does not fit.
+	 */
+	private ByteBuffer record = ByteBuffer.allocate(256);
+	/**
+	 * Computes the checksum of each payload.
+	 */
+	private final CRC32 checksum = new CRC32();
+	/**
+	 * The number of records in the journal, including queued records.
+	 */
+	private int records;
+	/**
+	 * The longest time in milliseconds a queued record waits to be forced to disk.
+	 * Zero if every record is forced to disk before its append returns.
+	 */
+	private final long commitInterval;
+	/**
+	 * The number of queued records which are forced to disk without waiting for commitInterval.
+	 */
+	private final int commitBatch;
+	/**
+	 * Writes queued records in group-commit mode, or null if records are written by append.
+	 */
+	private final Thread writer;
+	/**
+	 * Records waiting for the writer thread.
+	 */
+	private ByteBuffer queued = ByteBuffer.allocate(4096);
+	/**
+	 * The number of records waiting for the writer thread.
+	 */
+	private int queuedRecords;
+	/**
+	 * Holds the records of a batch append until the whole batch is encoded, or null outside a batch.
+	 */
+	private ByteBuffer batch = null;
+	/**
+	 * The number of records in batch.
+	 */
+	private int batchRecords;
+	/**
+	 * Completed once the queued records are on disk.
+	 */
+	private CompletableFuture<Void> queuedCommit = new CompletableFuture<Void>();
+	/**
+	 * Completed once the batch the writer thread is writing is on disk, or null if it is idle.
+	 */
+	private CompletableFuture<Void> writingCommit = null;
+	/**
+	 * The error which stopped the writer thread, or null if there has been none.
+	 * Once set, every append fails, because later records could not be replayed without the lost ones.
+	 */
+	private IOException failure = null;
+	/**
+	 * Set by close(). The writer thread drains the queue and stops.
+	 */
+	private boolean closed = false;
+	/**
+	 * The number of times the journal has been forced to disk, so tests can check how
+	 * records are grouped into fsyncs.
+	 */
+	final AtomicInteger forces = new AtomicInteger();
+
+	/**
+	 * Constructor method. Opens the journal, creating it if it does not exist.
+	 * Every record is forced to disk before its append returns.
+	 * Call replay() before appending, so that new records follow the existing ones.
+	 *
+	 * @param file the journal file.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public Journal(File file) throws IOException {
+		this(file, 0, 1);
+	}
+
+	/**
+	 * Constructor method. Opens the journal, creating it if it does not exist.
+	 * Call replay() before appending, so that new records follow the existing ones.
+	 *
+	 * @param file the journal file.
+	 * @param commitInterval the longest time in milliseconds a record waits to be forced to disk,
+	 * or 0 to force every record to disk before its append returns.
+	 * @param commitBatch the number of waiting records which are forced to disk at once.
+	 * @throws IOException if the file cannot be opened.
+	 * @throws IllegalArgumentException if commitInterval is negative or commitBatch is less than one.
+	 */
+	public Journal(File file, long commitInterval, int commitBatch) throws IOException, IllegalArgumentException {
+		if (commitInterval < 0 || commitBatch < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.file = file;
+		this.commitInterval = commitInterval;
+		this.commitBatch = commitBatch;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		channel.position(channel.size());
+		if (commitInterval > 0) {
+			writer = new Thread(new GroupCommitWriter(), "Journal writer " + file.getName());
+			writer.setDaemon(true);
+			writer.start();
+		} else {
+			writer = null;
+		}
+	}
+
+	/**
+	 * Applies every record in the journal to a ContactManager.
+	 *
+	 * Records for contacts and meetings which already exist are skipped.
+	 * A damaged record at the end of the journal, left by a crash part way through
+	 * an append, is cut off. The ContactImpl and MeetingImpl id counters are raised
+	 * past every id in the journal.
+	 *
+	 * @param target the ContactManager the records are applied to.
+	 * @return the number of records in the journal.
+	 * @throws IOException if the journal cannot be read, or a record refers to a missing contact or meeting.
+	 */
+	public synchronized int replay(ContactManagerImpl target) throws IOException {
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Journal too large to replay: " + file);
+		}
+		ByteBuffer contents = ByteBuffer.allocate((int) size);
+		while (contents.hasRemaining()) {
+			if (channel.read(contents, contents.position()) < 0) {
+				break;
+			}
+		}
+		contents.flip();
+		records = 0;
+		//Shares repeated names and notes between the replayed records and later additions.
+		StringPool strings = target.strings;
+		int end = 0;
+		boolean damaged = false;
+		while (!damaged && contents.remaining() >= RECORD_HEADER) {
+			int length = contents.getInt();
+			int expected = contents.getInt();
+			if (length <= 0 || length > contents.remaining()) {
+				damaged = true;
+			} else {
+				checksum.reset();
+				checksum.update(contents.array(), contents.position(), length);
+				if ((int) checksum.getValue() != expected) {
+					damaged = true;
+				} else {
+					ByteBuffer payload = contents.slice();
+					payload.limit(length);
+					apply(payload, target, strings);
+					contents.position(contents.position() + length);
+					end = contents.position();
+					records++;
+				}
+			}
+		}
+		if (end < size) {
+			//Drops the damaged tail, so new records are not appended after it.
+			channel.truncate(end);
+			force();
+		}
+		channel.position(end);
+		return records;
+	}
+
+	/**
+	 * Appends a record adding a contact.
+	 *
+	 * @param contact the contact being added.
+	 * @return a Future completed once the record is on disk.
+	 * @throws IOException if the record cannot be written or queued.
+	 */
+	public synchronized Future<Void> appendContact(Contact contact) throws IOException {
+		startRecord(CONTACT);
+		putVarint(contact.getId());
+		putString(contact.getName());
+		putString(contact.getNotes());
+		return endRecord();
+	}
+
+	/**
+	 * Appends a record adding a past or future meeting.
+	 *
+	 * @param meeting the meeting being added.
+	 * @return a Future completed once the record is on disk.
+	 * @throws IOException if the record cannot be written or queued.
+	 */
+	public synchronized Future<Void> appendMeeting(Meeting meeting) throws IOException {
+		boolean past = (meeting instanceof PastMeeting);
+		startRecord(past ? PAST_MEETING : FUTURE_MEETING);
+		putVarint(meeting.getId());
+		ensure(8);
+		record.putLong(MeetingImpl.timeOf(meeting));
+		Set<Contact> attendees = meeting.getContacts();
+		putVarint(attendees.size());
+		Iterator<Contact> attendeeIterator = attendees.iterator();
+		while (attendeeIterator.hasNext()) {
+			putVarint(attendeeIterator.next().getId());
+		}
+		if (past) {
+			putString(((PastMeeting) meeting).getNotes());
+		}
+		putString(MeetingImpl.zoneOf(meeting).getID());
+		return endRecord();
+	}
+
+	/**
+	 * Appends a record adding notes to a meeting.
+	 *
+	 * @param id the id of the meeting.
+	 * @param notes the notes being added.
+	 * @return a Future completed once the record is on disk.
+	 * @throws IOException if the record cannot be written or queued.
+	 */
+	public synchronized Future<Void> appendNotes(int id, String notes) throws IOException {
+		startRecord(MEETING_NOTES);
+		putVarint(id);
+		putString(notes);
+		return endRecord();
+	}
+
+	/**
+	 * Appends a record adding each of a batch of contacts.
+	 * The batch is written and forced to disk as one, or queued as one in group-commit mode.
+	 *
+	 * @param contacts the contacts being added.
+	 * @return a Future completed once every record of the batch is on disk.
+	 * @throws IOException if the records cannot be written or queued. No record of the batch is then queued.
+	 */
+	public synchronized Future<Void> appendContacts(Contact[] contacts) throws IOException {
+		batch = ByteBuffer.allocate(Math.max(256, contacts.length * 32));
+		try {
+			for (int i = 0; i < contacts.length; i++) {
+				appendContact(contacts[i]);
+			}
+			return endBatch();
+		} finally {
+			batch = null;
+			batchRecords = 0;
+		}
+	}
+
+	/**
+	 * Appends a record adding each of a batch of past or future meetings.
+	 * The batch is written and forced to disk as one, or queued as one in group-commit mode.
+	 *
+	 * @param meetings the meetings being added.
+	 * @return a Future completed once every record of the batch is on disk.
+	 * @throws IOException if the records cannot be written or queued. No record of the batch is then queued.
+	 */
+	public synchronized Future<Void> appendMeetings(Meeting[] meetings) throws IOException {
+		batch = ByteBuffer.allocate(Math.max(256, meetings.length * 32));
+		try {
+			for (int i = 0; i < meetings.length; i++) {
+				appendMeeting(meetings[i]);
+			}
+			return endBatch();
+		} finally {
+			batch = null;
+			batchRecords = 0;
+		}
+	}
+
+	/**
+	 * Returns a Future completed once every record appended so far is on disk.
+	 *
+	 * @return a Future completed once every appended record is on disk.
+	 */
+	public synchronized Future<Void> commitTicket() {
+		if (queuedRecords > 0) {
+			return queuedCommit;
+		} else if (writingCommit != null) {
+			return writingCommit;
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * Returns the number of records in the journal.
+	 *
+	 * @return the number of records replayed or appended since the journal was last emptied.
+	 */
+	public synchronized int size() {
+		return records;
+	}
+
+	/**
+	 * Empties the journal. Only to be called once every record has been saved in a snapshot.
+	 *
+	 * @throws IOException if the journal cannot be truncated.
+	 */
+	public synchronized void truncate() throws IOException {
+		try {
+			//A batch being written must land before the truncation, or it would be replayed over the snapshot.
+			while (writingCommit != null) {
+				wait();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		channel.truncate(0);
+		force();
+		channel.position(0);
+		records = 0;
+		if (queuedRecords > 0) {
+			//The queued records are held in the snapshot, so they are already on disk.
+			queued.clear();
+			queuedRecords = 0;
+			queuedCommit.complete(null);
+			queuedCommit = new CompletableFuture<Void>();
+		}
+	}
+
+	/**
+	 * Closes the journal file. In group-commit mode, queued records are forced to disk first.
+	 *
+	 * @throws IOException if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		try {
+			if (writer != null) {
+				writer.join();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Applies one record to a ContactManager.
+	 *
+	 * @param payload the payload of the record.
+	 * @param target the ContactManager the record is applied to.
+	 * @param strings the pool of names and notes replayed so far.
+	 */
+	private void apply(ByteBuffer payload, ContactManagerImpl target, StringPool strings) throws IOException {
+		byte type = payload.get();
+		int id = ContactFileReader.readVarint(payload);
+		if (type == CONTACT) {
+			String name = ContactFileReader.readString(payload, strings);
+			String notes = ContactFileReader.readString(payload, strings);
+			if (!target.contactIndex.containsKey(id)) {
+				target.insertContact(new ContactImpl(id, name, notes));
+			}
+			if (ContactImpl.iDCounter.get() < id) {
+				//Raises the counter past the replayed id, so new contacts do not reuse it.
+				ContactImpl.iDCounter.set(id);
+			}
+		} else if (type == FUTURE_MEETING || type == PAST_MEETING) {
+			long time = payload.getLong();
+			int attendeeCount = ContactFileReader.readVarint(payload);
+			Contact[] attendees = new Contact[attendeeCount];
+			for (int i = 0; i < attendeeCount; i++) {
+				int contactId = ContactFileReader.readVarint(payload);
+				attendees[i] = target.contactIndex.get(contactId);
+				if (attendees[i] == null) {
+					throw new IOException("Meeting " + id + " refers to unknown contact " + contactId);
+				}
+			}
+			String notes = (type == PAST_MEETING) ? ContactFileReader.readString(payload, strings) : null;
+			//Records written before zones were journaled end here, and are replayed in the default zone.
+			TimeZone zone = payload.hasRemaining() ? MeetingImpl.zoneFor(ContactFileReader.readString(payload, strings)) : TimeZone.getDefault();
+			if (!target.meetingIndex.containsKey(id)) {
+				if (type == PAST_MEETING) {
+					target.insertMeeting(new PastMeetingImpl(id, new ContactArraySet(attendees), time, zone, notes));
+				} else {
+					target.insertMeeting(new FutureMeetingImpl(id, new ContactArraySet(attendees), time, zone));
+				}
+			}
+			if (MeetingImpl.iDCounter.get() < id) {
+				MeetingImpl.iDCounter.set(id);
+			}
+		} else if (type == MEETING_NOTES) {
+			if (!target.meetingIndex.containsKey(id)) {
+				throw new IOException("Notes added to unknown meeting " + id);
+			}
+			//Setting the notes again gives the same result, so this record is always applied.
+			target.insertNotes(id, ContactFileReader.readString(payload, strings));
+		} else {
+			throw new IOException("Unknown journal record type " + type + " in " + file);
+		}
+	}
+
+	/**
+	 * Starts encoding a record, leaving room for its header.
+	 *
+	 * @param type the type byte of the record.
+	 * @throws IOException if the journal is closed or an earlier group commit failed.
+	 */
+	private void startRecord(byte type) throws IOException {
+		if (failure != null) {
+			throw new IOException("An earlier write to " + file + " failed", failure);
+		} else if (closed) {
+			throw new IOException("Journal closed: " + file);
+		}
+		record.clear();
+		record.position(RECORD_HEADER);
+		record.put(type);
+	}
+
+	/**
+	 * Fills in the record header, then either adds the record to the batch being encoded,
+	 * writes the record and forces it to disk, or queues it for the writer thread.
+	 *
+	 * @return a Future completed once the record is on disk, or null if the record was added to a batch.
+	 */
+	private CompletableFuture<Void> endRecord() throws IOException {
+		int length = record.position() - RECORD_HEADER;
+		checksum.reset();
+		checksum.update(record.array(), RECORD_HEADER, length);
+		record.putInt(0, length);
+		record.putInt(4, (int) checksum.getValue());
+		record.flip();
+		if (batch != null) {
+			batch = appendTo(batch, record);
+			batchRecords++;
+			return null;
+		} else if (writer == null) {
+			while (record.hasRemaining()) {
+				channel.write(record);
+			}
+			force();
+			records++;
+			return CompletableFuture.completedFuture(null);
+		}
+		queued = appendTo(queued, record);
+		queuedRecords++;
+		records++;
+		if (queuedRecords == 1 || queuedRecords >= commitBatch) {
+			//Wakes the writer to start the commit interval, or to write a full batch.
+			notifyAll();
+		}
+		return queuedCommit;
+	}
+
+	/**
+	 * Either writes the encoded batch and forces it to disk with a single fsync,
+	 * or queues the whole batch for the writer thread.
+	 *
+	 * @return a Future completed once the batch is on disk.
+	 */
+	private CompletableFuture<Void> endBatch() throws IOException {
+		batch.flip();
+		if (writer == null) {
+			while (batch.hasRemaining()) {
+				channel.write(batch);
+			}
+			force();
+			records += batchRecords;
+			return CompletableFuture.completedFuture(null);
+		}
+		queued = appendTo(queued, batch);
+		queuedRecords += batchRecords;
+		records += batchRecords;
+		//Wakes the writer to start the commit interval, or to write a full batch.
+		notifyAll();
+		return queuedCommit;
+	}
+
+	/**
+	 * Forces the journal file to disk and counts the fsync.
+	 *
+	 * @throws IOException if the file cannot be forced to disk.
+	 */
+	private void force() throws IOException {
+		channel.force(false);
+		forces.incrementAndGet();
+	}
+
+	/**
+	 * Copies the remaining bytes of source onto the end of target, growing target if they do not fit.
+	 *
+	 * @param target the buffer being filled.
+	 * @param source the bytes to be copied.
+	 * @return target, or a larger copy of it if it had to grow.
+	 */
+	private static ByteBuffer appendTo(ByteBuffer target, ByteBuffer source) {
+		ByteBuffer result = target;
+		if (result.remaining() < source.remaining()) {
+			result = ByteBuffer.allocate(Math.max(target.capacity() * 2, target.position() + source.remaining()));
+			target.flip();
+			result.put(target);
+		}
+		result.put(source);
+		return result;
+	}
+
+	/**
+	 * Writes an int as a varint.
+	 *
+	 * @param value the value to be written.
+	 */
+	private void putVarint(int value) {
+		ensure(5);
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0) {
+			record.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining = remaining >>> 7;
+		}
+		record.put((byte) remaining);
+	}
+
+	/**
+	 * Writes a string as a varint byte length followed by its UTF-8 bytes.
+	 * A null string is written as an empty string.
+	 *
+	 * @param value the string to be written.
+	 */
+	private void putString(String value) {
+		byte[] bytes = (value == null) ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		putVarint(bytes.length);
+		ensure(bytes.length);
+		record.put(bytes);
+	}
+
+	/**
+	 * Makes sure the record buffer has room for the given number of bytes, growing it if not.
+	 *
+	 * @param bytes the number of bytes about to be put into the buffer.
+	 */
+	private void ensure(int bytes) {
+		if (record.remaining() < bytes) {
+			ByteBuffer grown = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+			record.flip();
+			grown.put(record);
+			record = grown;
+		}
+	}
+
+	/**
+	 * Writes queued records in group-commit mode.
+	 * Each batch is written and forced to disk with a single fsync.
+	 */
+	private class GroupCommitWriter implements Runnable {
+		/**
+		 * The buffer the next batch is swapped into, so buffers are reused rather than reallocated.
+		 */
+		private ByteBuffer spare = ByteBuffer.allocate(4096);
+
+		public void run() {
+			boolean finished = false;
+			while (!finished) {
+				ByteBuffer batch = null;
+				CompletableFuture<Void> commit = null;
+				IOException earlier = null;
+				synchronized (Journal.this) {
+					try {
+						while (!closed && queuedRecords == 0) {
+							Journal.this.wait();
+						}
+						//The first record has arrived, so the commit interval starts.
+						long deadline = System.currentTimeMillis() + commitInterval;
+						long remaining = commitInterval;
+						while (!closed && queuedRecords < commitBatch && remaining > 0) {
+							Journal.this.wait(remaining);
+							remaining = deadline - System.currentTimeMillis();
+						}
+					} catch (InterruptedException ex) {
+						//Treated as a request to close, so the queue is still drained.
+						closed = true;
+					}
+					if (queuedRecords == 0) {
+						finished = closed;
+					} else {
+						batch = queued;
+						commit = queuedCommit;
+						queued = spare;
+						queuedCommit = new CompletableFuture<Void>();
+						queuedRecords = 0;
+						writingCommit = commit;
+						earlier = failure;
+					}
+				}
+				if (batch != null) {
+					try {
+						if (earlier != null) {
+							throw earlier;
+						}
+						batch.flip();
+						while (batch.hasRemaining()) {
+							channel.write(batch);
+						}
+						force();
+						commit.complete(null);
+					} catch (IOException ex) {
+						synchronized (Journal.this) {
+							failure = ex;
+						}
+						commit.completeExceptionally(ex);
+					}
+					batch.clear();
+					spare = batch;
+					synchronized (Journal.this) {
+						writingCommit = null;
+						//Wakes truncate(), which waits for the batch to land.
+						Journal.this.notifyAll();
+					}
+				}
+			}
+		}
+	}
+}
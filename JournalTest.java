@@ -0,0 +1,342 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.After;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests the class Journal and journaled ContactManagerImpls.
+ *
+ * @author Gareth Moore.
+ */
+public class JournalTest {
+	ContactManagerImpl myContactManager; // A journaled ContactManager which is never compacted automatically.
+	File snapshotFile; // The snapshot written by flush().
+	File journalFile; // The journal.
+
+	@Before
+	public void buildUp() throws IOException {
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+		snapshotFile = new File("./journal-test.dat");
+		journalFile = new File("./journal-test.log");
+		snapshotFile.delete();
+		journalFile.delete();
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 0);
+	}
+
+	/**
+	 * iDCounter is a static variable so may interfere with test results.
+	 * To avoid this problem, both counters are reset to 0 before and after each test.
+	 */
+	@After
+	public void cleanUp() throws IOException {
+		myContactManager.close();
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+		snapshotFile.delete();
+		journalFile.delete();
+	}
+
+	/**
+	 * Reopens the files as if the application had been restarted.
+	 *
+	 * @return the reopened ContactManager.
+	 */
+	private ContactManagerImpl restart() throws IOException {
+		myContactManager.close();
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 0);
+		return myContactManager;
+	}
+
+	/**
+	 * Changes made without a flush should be recovered from the journal alone.
+	 */
+	@Test
+	public void shouldReplayChangesWithoutFlush() throws IOException {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		myContactManager.addNewContact("Dick Grayson", "Robin");
+		Calendar soon = Calendar.getInstance();
+		soon.add(Calendar.MILLISECOND, 500);
+		myContactManager.addFutureMeeting(myContactManager.getContacts(1, 2), soon);
+		myContactManager.addNewPastMeeting(myContactManager.getContacts(2), new GregorianCalendar(2014, 5, 1), "Rooftops");
+		try {
+			Thread.sleep(600);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		myContactManager.addMeetingNotes(1, "Converted");
+		myContactManager.addMeetingNotes(2, "Replaced");
+		assertFalse(snapshotFile.exists());
+
+		ContactManagerImpl restarted = restart();
+		assertEquals(2, restarted.getContacts("").size());
+		assertEquals("Converted", restarted.getPastMeeting(1).getNotes());
+		assertEquals("Replaced", restarted.getPastMeeting(2).getNotes());
+		assertEquals(2, restarted.getPastMeetingList(restarted.getContacts(2).iterator().next()).size());
+		restarted.addNewContact("Selina Kyle", "");
+		assertEquals("Selina Kyle", restarted.getContacts(3).iterator().next().getName());
+	}
+
+	/**
+	 * Replayed meetings should keep the time zone they were created with.
+	 */
+	@Test
+	public void shouldReplayTimeZones() throws IOException {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		Calendar chatham = new GregorianCalendar(TimeZone.getTimeZone("Pacific/Chatham"));
+		chatham.set(2014, 5, 1, 10, 0);
+		myContactManager.addNewPastMeeting(myContactManager.getContacts(1), chatham, "Chatham");
+
+		ContactManagerImpl restarted = restart();
+		Calendar date = restarted.getPastMeeting(1).getDate();
+		assertEquals("Pacific/Chatham", date.getTimeZone().getID());
+		assertEquals(10, date.get(Calendar.HOUR_OF_DAY));
+		assertEquals("Chatham", restarted.getPastMeeting(1).getNotes());
+	}
+
+	/**
+	 * flush() should save a snapshot and empty the journal.
+	 */
+	@Test
+	public void shouldEmptyJournalOnFlush() throws IOException {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		myContactManager.addNewContact("Dick Grayson", "Robin");
+		assertEquals(2, myContactManager.journal.size());
+		myContactManager.flush();
+		assertEquals(0, myContactManager.journal.size());
+		assertEquals(0, journalFile.length());
+		myContactManager.addNewContact("Selina Kyle", "");
+
+		ContactManagerImpl restarted = restart();
+		assertEquals(3, restarted.getContacts("").size());
+		assertEquals(1, restarted.journal.size());
+	}
+
+	/**
+	 * The journal should be compacted automatically once it holds compactEvery records.
+	 */
+	@Test
+	public void shouldCompactAutomatically() throws IOException {
+		myContactManager.close();
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 3);
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		myContactManager.addNewContact("Dick Grayson", "Robin");
+		assertFalse(snapshotFile.exists());
+		myContactManager.addNewContact("Selina Kyle", "");
+		assertTrue(snapshotFile.exists());
+		assertEquals(0, myContactManager.journal.size());
+	}
+
+	/**
+	 * Replaying records which are already in the snapshot should change nothing,
+	 * as happens after a crash between writing a snapshot and emptying the journal.
+	 */
+	@Test
+	public void shouldSkipRecordsAlreadyInSnapshot() throws IOException {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		myContactManager.addNewPastMeeting(myContactManager.getContacts(1), new GregorianCalendar(2014, 5, 1), "Cave");
+		myContactManager.journal.close();
+		myContactManager.journal = null;
+		myContactManager.flush();
+
+		ContactManagerImpl restarted = restart();
+		assertEquals(1, restarted.getContacts("").size());
+		assertEquals(1, restarted.getPastMeetingList(restarted.getContacts(1).iterator().next()).size());
+	}
+
+	/**
+	 * A record cut short by a crash should be dropped, keeping every earlier record.
+	 */
+	@Test
+	public void shouldDropTornRecord() throws IOException {
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		myContactManager.addNewContact("Dick Grayson", "Robin");
+		myContactManager.close();
+		RandomAccessFile torn = new RandomAccessFile(journalFile, "rw");
+		torn.setLength(torn.length() - 2);
+		torn.close();
+
+		ContactManagerImpl restarted = restart();
+		assertEquals(1, restarted.getContacts("").size());
+		assertEquals(1, restarted.journal.size());
+		restarted.addNewContact("Selina Kyle", "");
+		restarted = restart();
+		assertEquals(2, restarted.getContacts("").size());
+	}
+
+	/**
+	 * In group-commit mode, a full batch should be forced to disk without waiting for the interval.
+	 */
+	@Test
+	public void shouldCommitFullBatch() throws Exception {
+		myContactManager.close();
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 0, 60000, 2);
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		Future<Void> ticket = myContactManager.sync();
+		assertFalse(ticket.isDone());
+		myContactManager.addNewContact("Dick Grayson", "Robin");
+		ticket.get(5, TimeUnit.SECONDS);
+		assertTrue(myContactManager.sync().isDone());
+
+		ContactManagerImpl restarted = restart();
+		assertEquals(2, restarted.getContacts("").size());
+	}
+
+	/**
+	 * In group-commit mode, a part batch should be forced to disk once the interval has passed.
+	 */
+	@Test
+	public void shouldCommitAfterInterval() throws Exception {
+		myContactManager.close();
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 0, 50, 1000);
+		for (int i = 0; i < 10; i++) {
+			myContactManager.addNewContact("Contact " + i, "");
+		}
+		myContactManager.sync().get(5, TimeUnit.SECONDS);
+		assertEquals(10, myContactManager.journal.size());
+
+		ContactManagerImpl restarted = restart();
+		assertEquals(10, restarted.getContacts("").size());
+	}
+
+	/**
+	 * Closing a group-commit journal should force the queued records to disk.
+	 */
+	@Test
+	public void shouldCommitQueueOnClose() throws IOException {
+		myContactManager.close();
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 0, 60000, 1000);
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		Future<Void> ticket = myContactManager.sync();
+		myContactManager.close();
+		assertTrue(ticket.isDone());
+
+		ContactManagerImpl restarted = restart();
+		assertEquals(1, restarted.getContacts("").size());
+	}
+
+	/**
+	 * A batch should be replayed like single appends, but be forced to disk with one fsync
+	 * where the single appends take one each.
+	 */
+	@Test
+	public void shouldForceBatchOnce() throws IOException {
+		int count = 1000;
+		String[] names = new String[count];
+		String[] notes = new String[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = "Contact " + i;
+			notes[i] = "";
+		}
+		int before = myContactManager.journal.forces.get();
+		for (int i = 0; i < count; i++) {
+			myContactManager.addNewContact(names[i], notes[i]);
+		}
+		assertEquals(count, myContactManager.journal.forces.get() - before);
+		before = myContactManager.journal.forces.get();
+		myContactManager.addNewContacts(names, notes);
+		assertEquals(1, myContactManager.journal.forces.get() - before);
+		assertEquals(2 * count, myContactManager.journal.size());
+
+		ContactManagerImpl restarted = restart();
+		assertEquals(2 * count, restarted.getContacts("Contact").size());
+		assertEquals("Contact 999", restarted.getContacts(2 * count).iterator().next().getName());
+	}
+
+	/**
+	 * In group-commit mode, appends made at the same time by several threads should be
+	 * forced to disk together with a single fsync.
+	 */
+	@Test
+	public void shouldForceConcurrentAppendsOnce() throws Exception {
+		int count = 8;
+		File groupFile = new File("./journal-test-group.log");
+		groupFile.delete();
+		final Journal journal = new Journal(groupFile, 60000, count);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Future<Void>> tickets = new ArrayList<Future<Void>>();
+			Thread[] appenders = new Thread[count];
+			for (int i = 0; i < count; i++) {
+				final Contact contact = new ContactImpl(i + 1, "Contact " + i, "");
+				appenders[i] = new Thread(new Runnable() {
+					public void run() {
+						try {
+							start.await();
+							Future<Void> ticket = journal.appendContact(contact);
+							synchronized (tickets) {
+								tickets.add(ticket);
+							}
+						} catch (Exception ex) {} //A missing ticket fails the test below.
+					}
+				});
+				appenders[i].start();
+			}
+			start.countDown();
+			for (int i = 0; i < count; i++) {
+				appenders[i].join();
+			}
+			assertEquals(count, tickets.size());
+			for (int i = 0; i < count; i++) {
+				tickets.get(i).get(5, TimeUnit.SECONDS);
+			}
+			assertEquals(1, journal.forces.get());
+		} finally {
+			journal.close();
+			groupFile.delete();
+		}
+	}
+
+	/**
+	 * A ContactManager opened with a clock should read the time from it, as should the
+	 * ContactManager it is reopened as. The clock is set to 1970, so a meeting in 2000
+	 * is only in the future by its time.
+	 */
+	@Test
+	public void shouldOpenWithClock() throws IOException {
+		FakeClock clock = new FakeClock(0L);
+		myContactManager.close();
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 0, clock);
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		int id = myContactManager.addFutureMeeting(myContactManager.getContacts(1), new GregorianCalendar(2000, 0, 1));
+		myContactManager.close();
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 0, 60000, 1000, clock);
+		assertSame(clock, myContactManager.clock);
+		assertEquals(id, myContactManager.getFutureMeeting(id).getId());
+	}
+
+	/**
+	 * Migrations are not journaled, so open() should move meetings which fell due before
+	 * the shutdown, and since, into the past again.
+	 */
+	@Test
+	public void shouldMigrateOnOpen() throws IOException {
+		FakeClock clock = new FakeClock(0L);
+		myContactManager.close();
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 0, clock);
+		myContactManager.addNewContact("Bruce Wayne", "Batman");
+		int early = myContactManager.addFutureMeeting(myContactManager.getContacts(1), new GregorianCalendar(2000, 0, 1));
+		int late = myContactManager.addFutureMeeting(myContactManager.getContacts(1), new GregorianCalendar(2000, 0, 3));
+		clock.set(new GregorianCalendar(2000, 0, 2).getTimeInMillis());
+		assertEquals(1, myContactManager.migrateDueMeetings());
+		myContactManager.close();
+		clock.set(new GregorianCalendar(2000, 0, 4).getTimeInMillis());
+		myContactManager = ContactManagerImpl.open(snapshotFile, journalFile, 0, clock);
+		assertEquals(0, myContactManager.migrateDueMeetings());
+		assertTrue(myContactManager.getMeeting(early) instanceof PastMeeting);
+		assertTrue(myContactManager.getMeeting(late) instanceof PastMeeting);
+	}
+}
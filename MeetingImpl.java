@@ -1,5 +1,10 @@
 import java.util.Calendar;
+import java.util.GregorianCalendar;
 import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implements the Meeting interface.
@@ -12,19 +17,37 @@ import java.util.Set;
 	 */
 	private int id;
 	/**
-	 * The date for the Meeting.
+	 * The date for the Meeting in epoch milliseconds.
+	 * Held as a primitive, so comparing dates is a long comparison and internal callers need no Calendar.
 	 */
-	private Calendar date;
+	private long time;
+	/**
+	 * The time zone of the Calendar the meeting was created with.
+	 * Shared by every meeting in the same zone; see canonicalZone().
+	 */
+	private TimeZone zone;
+	/**
+	 * The date as a Calendar, created by the first call to getDate() and never changed.
+	 * Volatile so that a Calendar created on one thread is seen complete by the others.
+	 */
+	private volatile Calendar date = null;
 	/**
 	 * The set of contacts who will attend the meeting.
+	 * Held as an array sorted by id, so it is compact and cannot be changed.
 	 */
-	private Set<Contact> contacts;
+	private ContactArraySet contacts;
 	/**
 	 * A static counter which tracks the most recent id assignment.
 	 * The method nextId() increments the counter by 1.
 	 * Each time the application is restarted, this value must be reset to the most recent id assignment.
+	 * An AtomicInteger so that meetings created on different threads never share an id.
+	 */
+	public static final AtomicInteger iDCounter = new AtomicInteger(0);
+	/**
+	 * One instance of each standard time zone in use, keyed by id, so meetings do not each
+	 * hold their own copy. Custom zones are not kept, so the map cannot grow without bound.
 	 */
-	public static int iDCounter = 0;
+	static final ConcurrentMap<String, TimeZone> zones = new ConcurrentHashMap<String, TimeZone>();
 
 	/**
 	 * Constructor method.
@@ -33,11 +56,30 @@ import java.util.Set;
 	 * @param date, the date of the scheduled meeting.
 	 */
 	public MeetingImpl(Set<Contact> contacts, Calendar date) {
-		this.contacts = contacts;
-		this.date = date;
+		this.contacts = attendeeSet(contacts);
+		this.time = date.getTimeInMillis();
+		this.zone = canonicalZone(date.getTimeZone());
 		this.id = nextId();
 	}
 
+	/**
+	 * Constructor method using an existing id.
+	 *
+	 * nextId() is not used, so the id may not be unique in this context.
+	 * Only to be used when restoring saved meetings in ContactManager.
+	 *
+	 * @param id, the id the meeting was given when it was first created.
+	 * @param contacts, the set of contacts who will attend the meeting.
+	 * @param time, the date of the scheduled meeting in epoch milliseconds.
+	 * @param zone, the time zone getDate() should use.
+	 */
+	MeetingImpl(int id, Set<Contact> contacts, long time, TimeZone zone) {
+		this.contacts = attendeeSet(contacts);
+		this.time = time;
+		this.zone = canonicalZone(zone);
+		this.id = id;
+	}
+
 	/**
 	 * Constructor method to be used when converting a FutureMeeting into a PastMeeting.
 	 * Should only be used when the existing FutureMeeting has been removed.
@@ -46,8 +88,16 @@ import java.util.Set;
 	 * @param notes are the notes to be recorded from the meeting.
 	 */
 	public MeetingImpl(Meeting meeting) {
-		this.contacts = meeting.getContacts();
-		this.date = meeting.getDate();
+		this.contacts = attendeeSet(meeting.getContacts());
+		if (meeting instanceof MeetingImpl) {
+			//Copies the primitive date, so no Calendar is created.
+			this.time = ((MeetingImpl) meeting).time;
+			this.zone = ((MeetingImpl) meeting).zone;
+		} else {
+			Calendar date = meeting.getDate();
+			this.time = date.getTimeInMillis();
+			this.zone = canonicalZone(date.getTimeZone());
+		}
 		this.id = meeting.getId();
 	}
 
@@ -55,10 +105,75 @@ import java.util.Set;
 		return id;
 	}
 
+	/**
+	 * Returns the date of the meeting.
+	 *
+	 * The returned Calendar is in the time zone the meeting was created with. It is a
+	 * clone of one created on the first call, so changing it does not change the meeting,
+	 * and later calls do not work out its fields again.
+	 *
+	 * @return the date of the meeting.
+	 */
 	public Calendar getDate() {
-		return date;
+		Calendar result = date;
+		if (result == null) {
+			//The zone is cloned because the shared instance must never be changed through a Calendar.
+			result = new GregorianCalendar((TimeZone) zone.clone());
+			result.setTimeInMillis(time);
+			date = result;
+		}
+		//Clones the zone too, so the cached Calendar cannot be changed through the result.
+		return (Calendar) result.clone();
 	}
 
+	/**
+	 * Returns the date of any meeting in epoch milliseconds.
+	 * Avoids creating a Calendar when the meeting is a MeetingImpl.
+	 *
+	 * @param meeting the meeting.
+	 * @return the date of the meeting in epoch milliseconds.
+	 */
+	static long timeOf(Meeting meeting) {
+		if (meeting instanceof MeetingImpl) {
+			return ((MeetingImpl) meeting).time;
+		}
+		return meeting.getDate().getTimeInMillis();
+	}
+
+	/**
+	 * Returns the time zone of any meeting.
+	 * Avoids creating a Calendar when the meeting is a MeetingImpl.
+	 *
+	 * @param meeting the meeting.
+	 * @return the time zone getDate() uses. Must not be changed.
+	 */
+	static TimeZone zoneOf(Meeting meeting) {
+		if (meeting instanceof MeetingImpl) {
+			return ((MeetingImpl) meeting).zone;
+		}
+		return meeting.getDate().getTimeZone();
+	}
+
+	/**
+	 * Returns the shared instance of the time zone with the given id,
+	 * for restoring saved meetings.
+	 *
+	 * @param id the id of the time zone, as returned by TimeZone.getID().
+	 * @return the shared time zone. Unknown ids give GMT, as in TimeZone.getTimeZone().
+	 */
+	static TimeZone zoneFor(String id) {
+		TimeZone result = zones.get(id);
+		if (result == null) {
+			result = canonicalZone(TimeZone.getTimeZone(id));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the contacts attending the meeting.
+	 *
+	 * @return an unmodifiable set of the attending contacts.
+	 */
 	public Set<Contact> getContacts() {
 		return contacts;
 	}
@@ -67,7 +182,45 @@ import java.util.Set;
 	 * Increments the iDCounter.
 	 */
 	private int nextId() {
-		iDCounter++;
-		return iDCounter;
+		return iDCounter.incrementAndGet();
+	}
+
+	/**
+	 * Returns the attendees as a ContactArraySet, copying them unless they already are one.
+	 * A ContactArraySet cannot be changed, so it is safe to share between meetings.
+	 *
+	 * @param attendees the contacts attending a meeting.
+	 * @return the attendees as a ContactArraySet.
+	 */
+	private static ContactArraySet attendeeSet(Set<Contact> attendees) {
+		if (attendees instanceof ContactArraySet) {
+			return (ContactArraySet) attendees;
+		}
+		return new ContactArraySet(attendees);
+	}
+
+	/**
+	 * Returns the shared instance of a standard time zone, adding a copy of it if there is none.
+	 * A zone is standard if it equals, in id and rules, the zone TimeZone.getTimeZone() gives
+	 * for its id. Custom zones are copied for each meeting rather than shared.
+	 *
+	 * @param zone the time zone.
+	 * @return the shared instance equal to zone, or a copy of zone if it is not standard.
+	 */
+	private static TimeZone canonicalZone(TimeZone zone) {
+		TimeZone result = zones.get(zone.getID());
+		if (result != null && result.equals(zone)) {
+			return result;
+		}
+		//A copy is kept, so later changes to the caller's zone do not affect any meeting.
+		TimeZone copy = (TimeZone) zone.clone();
+		if (!copy.equals(TimeZone.getTimeZone(copy.getID()))) {
+			return copy;
+		}
+		result = zones.putIfAbsent(copy.getID(), copy);
+		if (result == null) {
+			result = copy;
+		}
+		return result;
 	}
  }
\ No newline at end of file
@@ -0,0 +1,66 @@
+/**
+ * Stores every past and future meeting of a ContactManagerImpl, keyed by meeting id.
+ *
+ * Whether a meeting is past or future is told by the class of the meeting returned,
+ * so adding notes to a future meeting turns it into a PastMeeting in place. A store
+ * can be copied in time proportional to its number of chunks, and changes made to
+ * either copy afterwards are never seen by the other.
+ *
+ * @author Gareth Moore.
+ */
+public interface MeetingStore {
+	/**
+	 * Returns the meeting with the id.
+	 *
+	 * @param id the id of the meeting.
+	 * @return the meeting, or null if no meeting has the id.
+	 */
+	Meeting get(int id);
+
+	/**
+	 * Tests whether a meeting has the id.
+	 *
+	 * @param id the id of the meeting.
+	 * @return true if a meeting has the id.
+	 */
+	boolean containsKey(int id);
+
+	/**
+	 * Adds a meeting. Its id must not already be in use.
+	 *
+	 * @param meeting the meeting to be stored.
+	 */
+	void add(Meeting meeting);
+
+	/**
+	 * Sets the notes of a stored meeting, making it a PastMeeting if it was a FutureMeeting.
+	 * Meetings already returned are not changed.
+	 *
+	 * @param id the id of the meeting.
+	 * @param notes the new notes.
+	 */
+	void setNotes(int id, String notes);
+
+	/**
+	 * Returns the number of meetings stored.
+	 *
+	 * @return the number of meetings stored.
+	 */
+	int size();
+
+	/**
+	 * Makes room for a number of meetings, so adding them does not grow the store in steps.
+	 *
+	 * @param expectedSize the number of meetings the store is about to hold.
+	 */
+	void ensureCapacity(int expectedSize);
+
+	/**
+	 * Returns a copy of the store, sharing its chunks until either store changes them.
+	 * This store must not be changed while it is being copied, though it may be read.
+	 *
+	 * @param contacts every contact the copy's meetings may refer to, keyed by contact id.
+	 * @return the copy.
+	 */
+	MeetingStore copy(IntHashMap<Contact> contacts);
+}
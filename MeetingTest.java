@@ -6,6 +6,8 @@ import java.util.GregorianCalendar;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.SimpleTimeZone;
 
 /**
  * Tests the class MeetingImpl.
@@ -36,7 +38,7 @@ public class MeetingTest {
 	 */
 	@After
 	public void cleanUp() {
-		MeetingImpl.iDCounter = 0;
+		MeetingImpl.iDCounter.set(0);
 	}
 
 	/**
@@ -94,4 +96,72 @@ public class MeetingTest {
 		int actualId = testMeeting.getId();
 		assertEquals(expectedId, actualId);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Tests getDate().
+	 *
+	 * Changing the returned Calendar, or the Calendar the meeting was created with, should not change the meeting.
+	 */
+	@Test
+	public void shouldNotShareDate() {
+		Calendar original = new GregorianCalendar(2015, 10, 10, 10, 0);
+		Meeting testMeeting = new MeetingImpl(tempContactSet, original);
+		original.add(Calendar.DAY_OF_MONTH, 1);
+		testMeeting.getDate().add(Calendar.DAY_OF_MONTH, 1);
+		assertEquals(new GregorianCalendar(2015, 10, 10, 10, 0), testMeeting.getDate());
+	}
+
+	/**
+	 * Tests getDate().
+	 *
+	 * The returned Calendar should be in the time zone the meeting was created with.
+	 */
+	@Test
+	public void shouldKeepTimeZone() {
+		TimeZone tokyo = TimeZone.getTimeZone("Asia/Tokyo");
+		Calendar date = new GregorianCalendar(tokyo);
+		date.set(2015, 10, 10, 10, 0, 0);
+		Meeting testMeeting = new MeetingImpl(tempContactSet, date);
+		assertEquals(tokyo.getID(), testMeeting.getDate().getTimeZone().getID());
+		assertEquals(10, testMeeting.getDate().get(Calendar.HOUR_OF_DAY));
+		assertEquals(date.getTimeInMillis(), testMeeting.getDate().getTimeInMillis());
+	}
+
+	/**
+	 * Tests getDate().
+	 *
+	 * Each call should return an equal but separate Calendar, whose time zone cannot be
+	 * changed through it either.
+	 */
+	@Test
+	public void shouldReturnSeparateCalendars() {
+		Calendar first = myMeeting.getDate();
+		Calendar second = myMeeting.getDate();
+		assertNotSame(first, second);
+		assertEquals(first, second);
+		first.getTimeZone().setRawOffset(first.getTimeZone().getRawOffset() + 3600000);
+		first.add(Calendar.HOUR_OF_DAY, 1);
+		assertEquals(second, myMeeting.getDate());
+		assertEquals(10, myMeeting.getDate().get(Calendar.HOUR_OF_DAY));
+	}
+
+	/**
+	 * Meetings in the same standard time zone should share it, while custom zones should
+	 * be kept by their meetings alone, so they cannot fill the shared map.
+	 */
+	@Test
+	public void shouldOnlyKeepStandardZones() {
+		Calendar tokyo = new GregorianCalendar(TimeZone.getTimeZone("Asia/Tokyo"));
+		Meeting first = new MeetingImpl(tempContactSet, tokyo);
+		Meeting second = new MeetingImpl(tempContactSet, (Calendar) tokyo.clone());
+		assertSame(MeetingImpl.zoneOf(first), MeetingImpl.zoneOf(second));
+		int before = MeetingImpl.zones.size();
+		for (int i = 0; i < 100; i++) {
+			Calendar custom = new GregorianCalendar(new SimpleTimeZone(i * 60000, "Custom " + i));
+			Meeting testMeeting = new MeetingImpl(tempContactSet, custom);
+			assertEquals("Custom " + i, testMeeting.getDate().getTimeZone().getID());
+			assertEquals(i * 60000, testMeeting.getDate().getTimeZone().getRawOffset());
+		}
+		assertEquals(before, MeetingImpl.zones.size());
+	}
+}
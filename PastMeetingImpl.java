@@ -1,6 +1,7 @@
 import java.util.GregorianCalendar;
 import java.util.Calendar;
 import java.util.Set;
+import java.util.TimeZone;
 
 /**
  * Implements the interface PastMeeting.
@@ -23,6 +24,20 @@ public class PastMeetingImpl extends MeetingImpl implements PastMeeting {
 		this.notes = notes;
 	}
 
+	/**
+	 * Constructor method using an existing id.
+	 * Only to be used when restoring saved meetings in ContactManager.
+	 *
+	 * @param id, the id the meeting was given when it was first created.
+	 * @param time, the date of the meeting in epoch milliseconds.
+	 * @param zone, the time zone getDate() should use.
+	 * @param notes are the notes to be recorded from the meeting.
+	 */
+	PastMeetingImpl(int id, Set<Contact> contacts, long time, TimeZone zone, String notes) {
+		super(id, contacts, time, zone);
+		this.notes = notes;
+	}
+
 	/**
 	 * Constructor method to create a PastMeetingImpl object.
 	 *
@@ -38,7 +38,7 @@ public class PastMeetingTest {
 	 */
 	@After
 	public void cleanUp() {
-		MeetingImpl.iDCounter = 0;
+		MeetingImpl.iDCounter.set(0);
 	}
 
 	/**
@@ -0,0 +1,226 @@
+import java.util.Arrays;
+
+/**
+ * A growable list of meeting ids held in chronological order.
+ *
+ * Ids and dates are held in parallel primitive arrays so they are never boxed.
+ * Meetings with the same date are kept in the order they were added.
+ *
+ * A list may be shared between a ContactManagerImpl and its copies, and the ids and dates
+ * are held in a block which may be shared between several lists. A list appends to a
+ * shared block in place as long as no other list has used the next slot, because the
+ * other lists never read past their own sizes. Any other change is only made in place
+ * by the owner the block was created for, and only until writableBy() shares it;
+ * otherwise the list moves to a new block first. Meetings are mostly added in date
+ * order, so adding to a shared list normally takes constant time.
+ *
+ * @author Gareth Moore.
+ */
+public class PostingList {
+	/**
+	 * The initial length of the arrays.
+	 */
+	private static final int DEFAULT_CAPACITY = 4;
+	/**
+	 * The block holding the ids and dates.
+	 */
+	private Block block;
+	/**
+	 * The number of ids in the list.
+	 */
+	private int size = 0;
+	/**
+	 * The owner which may change this list in place.
+	 */
+	private final Object owner;
+
+	/**
+	 * Constructor method. Creates an empty list which only it may change.
+	 */
+	public PostingList() {
+		this(new Object());
+	}
+
+	/**
+	 * Constructor method. Creates an empty list.
+	 *
+	 * @param owner the owner which may change the list in place.
+	 */
+	public PostingList(Object owner) {
+		block = new Block(new int[DEFAULT_CAPACITY], new long[DEFAULT_CAPACITY], owner);
+		this.owner = owner;
+	}
+
+	/**
+	 * Constructor method which shares another list's block.
+	 *
+	 * @param other the list to be shared.
+	 * @param owner the owner which may change the new list in place.
+	 */
+	private PostingList(PostingList other, Object owner) {
+		block = other.block;
+		size = other.size;
+		this.owner = owner;
+	}
+
+	/**
+	 * Returns a list which an owner may add to without affecting anyone else.
+	 * Takes constant time, because the ids are only copied if they need to be.
+	 *
+	 * @param owner the owner about to change the list.
+	 * @return this list if it belongs to owner, otherwise a new list which does.
+	 */
+	public PostingList writableBy(Object owner) {
+		if (this.owner == owner) {
+			return this;
+		}
+		//The block is now shared, so not even its owner may change its slots in place.
+		block.owner = null;
+		return new PostingList(this, owner);
+	}
+
+	/**
+	 * Adds a meeting id to the list at its chronological position.
+	 *
+	 * Meetings are usually added in date order, so the id is normally appended.
+	 * The id is ignored if the same meeting was the last one added at that date,
+	 * so a meeting is only recorded once per contact.
+	 *
+	 * @param id the meeting id to be added.
+	 * @param time the date of the meeting in epoch milliseconds.
+	 */
+	public void add(int id, long time) {
+		int[] ids = block.ids;
+		long[] times = block.times;
+		int position = size;
+		if (size > 0 && times[size - 1] > time) {
+			//The meeting is earlier than the last one, so its position is found by binary search.
+			position = upperBound(time);
+		}
+		if (position > 0 && ids[position - 1] == id && times[position - 1] == time) {
+			return;
+		}
+		boolean appendable = (position == size && size == block.used);
+		if (size == ids.length || !(appendable || block.owner == owner)) {
+			//The block is full, or another list may read the slots which would change, so this list moves to a new block.
+			int length = (size == ids.length) ? size * 2 : ids.length;
+			block = new Block(Arrays.copyOf(ids, length), Arrays.copyOf(times, length), owner);
+			ids = block.ids;
+			times = block.times;
+		}
+		//Shifts later meetings along by one to make room.
+		System.arraycopy(ids, position, ids, position + 1, size - position);
+		System.arraycopy(times, position, times, position + 1, size - position);
+		ids[position] = id;
+		times[position] = time;
+		size++;
+		block.used = size;
+	}
+
+	/**
+	 * Returns the meeting id at the given position.
+	 *
+	 * @param index the position of the id.
+	 * @return the meeting id at the given position.
+	 */
+	public int get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return block.ids[index];
+	}
+
+	/**
+	 * Returns the number of ids in the list.
+	 *
+	 * @return the number of ids in the list.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the block holding the ids, so tests can check which lists share it.
+	 *
+	 * @return the block holding the ids.
+	 */
+	Object block() {
+		return block;
+	}
+
+	/**
+	 * Returns the first position whose date is at or after time.
+	 *
+	 * @param time the date in epoch milliseconds.
+	 * @return the first position whose date is at or after time, or size if there is none.
+	 */
+	public int lowerBound(long time) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (block.times[middle] < time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the first position whose date is later than time.
+	 *
+	 * @param time the date in epoch milliseconds.
+	 * @return the first position whose date is later than time, or size if there is none.
+	 */
+	private int upperBound(long time) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (block.times[middle] <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Arrays of ids and dates which may be shared by several lists.
+	 */
+	private static class Block {
+		/**
+		 * The meeting ids. Each list sharing the block reads the first size of them.
+		 */
+		private final int[] ids;
+		/**
+		 * The date of each meeting in epoch milliseconds.
+		 * times[i] is the date of the meeting ids[i].
+		 */
+		private final long[] times;
+		/**
+		 * The number of slots written by any list sharing the block.
+		 */
+		private int used;
+		/**
+		 * The owner which may change the slots in place, or null once the block is shared.
+		 */
+		private Object owner;
+
+		/**
+		 * Constructor method.
+		 *
+		 * @param ids the array of meeting ids.
+		 * @param times the array of dates, the same length as ids.
+		 * @param owner the owner which may change the slots in place.
+		 */
+		private Block(int[] ids, long[] times, Object owner) {
+			this.ids = ids;
+			this.times = times;
+			this.owner = owner;
+		}
+	}
+}
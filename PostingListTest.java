@@ -0,0 +1,108 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests the class PostingList.
+ *
+ * @author Gareth Moore.
+ */
+public class PostingListTest {
+	PostingList myList; //A PostingList object to be used in testing.
+
+	/**
+	 * Creates an empty list to be used in all tests.
+	 */
+	@Before
+	public void buildUp() {
+		myList = new PostingList();
+	}
+
+	/**
+	 * Tests add().
+	 *
+	 * Ids added out of date order should be returned in date order.
+	 */
+	@Test
+	public void shouldHoldIdsInDateOrder() {
+		myList.add(1, 300L);
+		myList.add(2, 100L);
+		myList.add(3, 200L);
+		assertEquals(2, myList.get(0));
+		assertEquals(3, myList.get(1));
+		assertEquals(1, myList.get(2));
+	}
+
+	/**
+	 * Tests add().
+	 *
+	 * Ids with the same date should keep the order they were added in.
+	 */
+	@Test
+	public void shouldKeepInsertionOrderForSameDate() {
+		myList.add(5, 100L);
+		myList.add(4, 100L);
+		myList.add(6, 50L);
+		assertEquals(6, myList.get(0));
+		assertEquals(5, myList.get(1));
+		assertEquals(4, myList.get(2));
+	}
+
+	/**
+	 * Tests add().
+	 *
+	 * Adding the same meeting twice in a row should only record it once.
+	 */
+	@Test
+	public void shouldIgnoreRepeatedId() {
+		myList.add(1, 100L);
+		myList.add(1, 100L);
+		assertEquals(1, myList.size());
+	}
+
+	/**
+	 * Tests writableBy().
+	 *
+	 * Lists sharing ids should not see each other's additions, whether they
+	 * are appended to the shared array or inserted before existing ids.
+	 */
+	@Test
+	public void shouldNotShareChangesWithWritableCopy() {
+		Object owner = new Object();
+		PostingList original = new PostingList(owner);
+		original.add(1, 100L);
+		original.add(2, 200L);
+		assertSame(original, original.writableBy(owner));
+		PostingList first = original.writableBy(new Object());
+		PostingList second = original.writableBy(new Object());
+		first.add(3, 300L);
+		second.add(4, 400L);
+		second.add(5, 150L);
+		original.add(6, 50L);
+		assertEquals(3, first.size());
+		assertEquals(3, first.get(2));
+		assertEquals(4, second.size());
+		assertEquals(5, second.get(1));
+		assertEquals(4, second.get(3));
+		assertEquals(3, original.size());
+		assertEquals(6, original.get(0));
+		assertEquals(2, original.get(2));
+	}
+
+	/**
+	 * Tests lowerBound().
+	 *
+	 * Should return the first position dated at or after the given time.
+	 */
+	@Test
+	public void shouldFindFirstPositionAtOrAfterTime() {
+		myList.add(1, 100L);
+		myList.add(2, 200L);
+		myList.add(3, 200L);
+		myList.add(4, 300L);
+		assertEquals(0, myList.lowerBound(50L));
+		assertEquals(1, myList.lowerBound(200L));
+		assertEquals(3, myList.lowerBound(250L));
+		assertEquals(4, myList.lowerBound(400L));
+	}
+}
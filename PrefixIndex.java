@@ -0,0 +1,104 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An index of contact names held in sorted order, used for prefix searches.
+ *
+ * All names starting with a prefix are adjacent in sorted order, so a search
+ * jumps to the first such name in O(log n) and walks forward until it runs
+ * out of matches or has collected enough results.
+ * Matching is case sensitive.
+ *
+ * A copy shares the tree of names and every id list with the original. Each index
+ * copies the tree path leading to a list the first time it adds to that list; see
+ * IdList for how the ids themselves are shared.
+ *
+ * @author Gareth Moore.
+ */
+public class PrefixIndex {
+	/**
+	 * The contact ids of each distinct name, sorted by name.
+	 * Names are not unique, so each name maps to a list of ids in ascending order.
+	 */
+	private TreapMap<String, IdList> names = new TreapMap<String, IdList>();
+	/**
+	 * Identifies the id lists this index may change in place.
+	 * Replaced whenever the index is copied, so lists shared with the copy are no longer owned.
+	 */
+	private Object owner = new Object();
+
+	/**
+	 * Constructor method. Creates an empty index.
+	 */
+	public PrefixIndex() {
+	}
+
+	/**
+	 * Constructor method which copies another index in constant time.
+	 * Everything is shared with other until either index changes it.
+	 *
+	 * @param other the index to be copied.
+	 */
+	public PrefixIndex(PrefixIndex other) {
+		names = new TreapMap<String, IdList>(other.names);
+		other.owner = new Object();
+	}
+
+	/**
+	 * Adds a contact's name to the index.
+	 *
+	 * @param id the id of the contact.
+	 * @param name the name of the contact.
+	 */
+	public void add(int id, String name) {
+		IdList ids = names.get(name);
+		if (ids == null) {
+			//First contact with this name, so a new list is created.
+			//Most names are unique, so it starts with room for a single id.
+			ids = new IdList(owner, 1);
+			names.put(name, ids);
+		} else {
+			IdList owned = ids.writableBy(owner);
+			if (owned != ids) {
+				//The list is shared with a copy of the index, so this index adds to its own list.
+				ids = owned;
+				names.put(name, ids);
+			}
+		}
+		ids.add(id);
+	}
+
+	/**
+	 * Returns the ids of the contacts whose names start with the prefix, ordered by name.
+	 * Stops as soon as limit ids have been found.
+	 *
+	 * @param prefix the start of the names to search for.
+	 * @param limit the maximum number of ids to return.
+	 * @return up to limit contact ids, ordered by name.
+	 */
+	public int[] startingWith(String prefix, int limit) {
+		int[] result = new int[Math.min(limit, 16)];
+		int resultSize = 0;
+		Iterator<Map.Entry<String, IdList>> nameIterator = names.entriesFrom(prefix);
+		boolean finished = (limit == 0);
+		while (!finished && nameIterator.hasNext()) {
+			Map.Entry<String, IdList> entry = nameIterator.next();
+			if (!entry.getKey().startsWith(prefix)) {
+				//Names are sorted, so no later name can start with the prefix.
+				finished = true;
+			} else {
+				IdList ids = entry.getValue();
+				for (int i = 0; i < ids.size() && !finished; i++) {
+					if (resultSize == result.length) {
+						result = Arrays.copyOf(result, Math.min(limit, result.length * 2));
+					}
+					result[resultSize] = ids.get(i);
+					resultSize++;
+					finished = (resultSize == limit);
+				}
+			}
+		}
+		return Arrays.copyOf(result, resultSize);
+	}
+}
@@ -0,0 +1,75 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests the class PrefixIndex.
+ *
+ * @author Gareth Moore.
+ */
+public class PrefixIndexTest {
+	PrefixIndex myIndex; //A PrefixIndex object to be used in testing.
+
+	/**
+	 * Creates an index of four names to be used in all tests.
+	 */
+	@Before
+	public void buildUp() {
+		myIndex = new PrefixIndex();
+		myIndex.add(1, "Bruce Wayne");
+		myIndex.add(2, "Clark Kent");
+		myIndex.add(3, "Bruce Banner");
+		myIndex.add(4, "Bruce Wayne");
+	}
+
+	/**
+	 * Tests startingWith().
+	 *
+	 * Should return matching ids ordered by name, with shared names in id order.
+	 */
+	@Test
+	public void shouldReturnIdsInNameOrder() {
+		assertArrayEquals(new int[] {3, 1, 4}, myIndex.startingWith("Bruce", 10));
+	}
+
+	/**
+	 * Tests startingWith().
+	 *
+	 * Should stop once the limit has been reached.
+	 */
+	@Test
+	public void shouldStopAtLimit() {
+		assertArrayEquals(new int[] {3, 1}, myIndex.startingWith("Bruce", 2));
+	}
+
+	/**
+	 * Tests startingWith().
+	 *
+	 * Should return no ids when no name starts with the prefix.
+	 */
+	@Test
+	public void shouldReturnEmptyArrayForUnknownPrefix() {
+		assertEquals(0, myIndex.startingWith("Diana", 10).length);
+	}
+
+	/**
+	 * Tests add().
+	 *
+	 * Many contacts sharing one name should all be kept, in id order,
+	 * and a copy of the index should not see ids added to the original afterwards.
+	 */
+	@Test
+	public void shouldKeepEveryDuplicateName() {
+		for (int id = 5; id < 5005; id++) {
+			myIndex.add(id, "John Smith");
+		}
+		PrefixIndex copy = new PrefixIndex(myIndex);
+		myIndex.add(5005, "John Smith");
+		int[] ids = myIndex.startingWith("John", 10000);
+		assertEquals(5001, ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(i + 5, ids[i]);
+		}
+		assertEquals(5000, copy.startingWith("John", 10000).length);
+	}
+}
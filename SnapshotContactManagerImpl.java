@@ -0,0 +1,227 @@
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * An implementation of the interface ContactManager optimised for reading.
+ *
+ * The current state is held in a read-only ContactManagerImpl which is never changed.
+ * Readers use it without taking any lock. A writer copies it, applies its change to
+ * the copy and then publishes the copy in place of the original. Readers which already
+ * hold the old state keep a consistent view of it.
+ *
+ * Writers take a lock so that no change is lost. The copy shares every index with the
+ * published state, so a write only copies the parts of the indexes it changes, and its
+ * cost does not grow with the number of contacts and meetings stored. See the
+ * ContactManagerImpl copy constructor.
+ *
+ * @author Gareth Moore.
+ */
+public class SnapshotContactManagerImpl implements ContactManager {
+	/**
+	 * The most recently published state. Always read-only.
+	 * Volatile so that a newly published state is seen by every reader.
+	 */
+	private volatile ContactManagerImpl current;
+	/**
+	 * Held by writers while they copy, change and publish the state.
+	 */
+	private final Object writeLock = new Object();
+
+	/**
+	 * Constructor method. Creates an empty ContactManager.
+	 */
+	public SnapshotContactManagerImpl() {
+		this(Clock.SYSTEM);
+	}
+
+	/**
+	 * Constructor method. Creates an empty ContactManager which reads the time from a clock.
+	 *
+	 * @param clock the clock used to tell whether a meeting is in the past.
+	 */
+	public SnapshotContactManagerImpl(Clock clock) {
+		ContactManagerImpl empty = new ContactManagerImpl(clock);
+		empty.readOnly = true;
+		current = empty;
+	}
+
+	/**
+	 * Returns a consistent, read-only view of every contact and meeting.
+	 *
+	 * Later changes are not seen by the returned ContactManager,
+	 * so several calls against it always agree with each other.
+	 *
+	 * @return a read-only ContactManager holding the current state.
+	 */
+	public ContactManager snapshot() {
+		return currentMigrated();
+	}
+
+	/**
+	 * Returns the current state, first publishing a copy with every due meeting moved
+	 * into the past if there are any, so a due meeting is never returned as future.
+	 * The published state cannot migrate itself, because it is never changed.
+	 *
+	 * @return the current state, with no meeting due.
+	 */
+	private ContactManagerImpl currentMigrated() {
+		ContactManagerImpl result = current;
+		if (result.hasDueMeetings()) {
+			synchronized (writeLock) {
+				//Another writer may already have migrated them.
+				if (current.hasDueMeetings()) {
+					ContactManagerImpl next = beginWrite();
+					next.migrateDueMeetings();
+					publish(next);
+				}
+				result = current;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a writable copy of the current state, sharing its indexes.
+	 * Must only be called while holding writeLock.
+	 *
+	 * @return a writable copy of the current state.
+	 */
+	private ContactManagerImpl beginWrite() {
+		return new ContactManagerImpl(current);
+	}
+
+	/**
+	 * Makes a changed copy read-only and publishes it to readers.
+	 * Must only be called while holding writeLock.
+	 *
+	 * @param next the changed copy to be published.
+	 */
+	private void publish(ContactManagerImpl next) {
+		next.readOnly = true;
+		current = next;
+	}
+
+	public int addFutureMeeting(Set<Contact> contacts, Calendar date) throws IllegalArgumentException {
+		synchronized (writeLock) {
+			ContactManagerImpl next = beginWrite();
+			int result = next.addFutureMeeting(contacts, date);
+			publish(next);
+			return result;
+		}
+	}
+
+	public PastMeeting getPastMeeting(int id) throws IllegalArgumentException {
+		return currentMigrated().getPastMeeting(id);
+	}
+
+	public FutureMeeting getFutureMeeting(int id) throws IllegalArgumentException {
+		return currentMigrated().getFutureMeeting(id);
+	}
+
+	public Meeting getMeeting(int id) {
+		return currentMigrated().getMeeting(id);
+	}
+
+	public List<Meeting> getFutureMeetingList(Contact contact) throws IllegalArgumentException {
+		return currentMigrated().getFutureMeetingList(contact);
+	}
+
+	public List<Meeting> getFutureMeetingList(Calendar date) {
+		return currentMigrated().getFutureMeetingList(date);
+	}
+
+	public List<Meeting> getMeetingList(Calendar from, Calendar to) {
+		return currentMigrated().getMeetingList(from, to);
+	}
+
+	public List<Meeting> getMeetingList(Calendar day, TimeZone zone) {
+		return currentMigrated().getMeetingList(day, zone);
+	}
+
+	public List<PastMeeting> getPastMeetingList(Contact contact) throws IllegalArgumentException {
+		return currentMigrated().getPastMeetingList(contact);
+	}
+
+	public Iterator<PastMeeting> getPastMeetings(Contact contact) throws IllegalArgumentException {
+		//The published state never changes, so the iterator can read it directly.
+		return currentMigrated().getPastMeetings(contact);
+	}
+
+	public Iterator<Meeting> getFutureMeetings(Contact contact) throws IllegalArgumentException {
+		return currentMigrated().getFutureMeetings(contact);
+	}
+
+	public void addNewPastMeeting(Set<Contact> contacts, Calendar date, String text) throws IllegalArgumentException, NullPointerException {
+		synchronized (writeLock) {
+			ContactManagerImpl next = beginWrite();
+			next.addNewPastMeeting(contacts, date, text);
+			publish(next);
+		}
+	}
+
+	public void addMeetingNotes(int id, String text) throws IllegalArgumentException, NullPointerException, IllegalStateException {
+		synchronized (writeLock) {
+			ContactManagerImpl next = beginWrite();
+			next.addMeetingNotes(id, text);
+			publish(next);
+		}
+	}
+
+	public void addNewContact(String name, String notes) throws NullPointerException {
+		synchronized (writeLock) {
+			ContactManagerImpl next = beginWrite();
+			next.addNewContact(name, notes);
+			publish(next);
+		}
+	}
+
+	public int[] addNewContacts(String[] names, String[] notes) throws NullPointerException, IllegalArgumentException {
+		//A whole batch is published as one copy, rather than one copy per contact.
+		synchronized (writeLock) {
+			ContactManagerImpl next = beginWrite();
+			int[] result = next.addNewContacts(names, notes);
+			publish(next);
+			return result;
+		}
+	}
+
+	public int[] addFutureMeetings(List<Set<Contact>> contacts, List<Calendar> dates) throws IllegalArgumentException, NullPointerException {
+		synchronized (writeLock) {
+			ContactManagerImpl next = beginWrite();
+			int[] result = next.addFutureMeetings(contacts, dates);
+			publish(next);
+			return result;
+		}
+	}
+
+	public int[] addNewPastMeetings(List<Set<Contact>> contacts, List<Calendar> dates, List<String> texts) throws IllegalArgumentException, NullPointerException {
+		synchronized (writeLock) {
+			ContactManagerImpl next = beginWrite();
+			int[] result = next.addNewPastMeetings(contacts, dates, texts);
+			publish(next);
+			return result;
+		}
+	}
+
+	public Set<Contact> getContacts(int... ids) throws IllegalArgumentException {
+		return current.getContacts(ids);
+	}
+
+	public Set<Contact> getContacts(String name) throws NullPointerException {
+		return current.getContacts(name);
+	}
+
+	public List<Contact> getContactsByPrefix(String prefix, int limit) throws NullPointerException, IllegalArgumentException {
+		return current.getContactsByPrefix(prefix, limit);
+	}
+
+	public void flush() {
+		//Writers are held off only so that two flushes do not write the file at once.
+		synchronized (writeLock) {
+			current.flush();
+		}
+	}
+}
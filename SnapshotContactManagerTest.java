@@ -0,0 +1,192 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.After;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests the class SnapshotContactManagerImpl.
+ *
+ * @author Gareth Moore.
+ */
+public class SnapshotContactManagerTest {
+	SnapshotContactManagerImpl myContactManager; //A ContactManager object to be used in testing.
+	Set<Contact> batmanSuperman; //A set of contacts to be used in testing.
+
+	/**
+	 * Creates a ContactManager holding two contacts and one past meeting.
+	 */
+	@Before
+	public void buildUp() {
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+		myContactManager = new SnapshotContactManagerImpl();
+		myContactManager.addNewContact("Bruce Wayne", "The Dark Knight");
+				//Contact id = 1
+		myContactManager.addNewContact("Clark Kent", "The Man of Steel");
+				//Contact id = 2
+		batmanSuperman = myContactManager.getContacts(1, 2);
+		myContactManager.addNewPastMeeting(batmanSuperman, new GregorianCalendar(2014, 11, 26, 10, 5), "World's Finest");
+				//Meeting id = 1
+	}
+
+	/**
+	 * Resets the static id counters after each test, as buildUp() does before each one.
+	 */
+	@After
+	public void cleanUp() {
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+	}
+
+	/**
+	 * Tests snapshot().
+	 *
+	 * A snapshot should not see contacts or meetings added after it was taken.
+	 */
+	@Test
+	public void shouldNotSeeLaterChangesInSnapshot() {
+		ContactManager snapshot = myContactManager.snapshot();
+		myContactManager.addNewContact("Diana Prince", "From Themscyria");
+				//Contact id = 3
+		myContactManager.addNewPastMeeting(batmanSuperman, new GregorianCalendar(2014, 11, 27, 10, 5), "Trinity");
+				//Meeting id = 2
+		assertEquals(0, snapshot.getContacts("Diana").size());
+		assertNull(snapshot.getMeeting(2));
+		assertEquals(1, myContactManager.getContacts("Diana").size());
+		assertEquals(2, myContactManager.getMeeting(2).getId());
+	}
+
+	/**
+	 * Tests snapshot().
+	 *
+	 * A snapshot is read-only, so adding a contact to it should throw an exception.
+	 */
+	@Test
+	public void shouldThrowExceptionWhenChangingSnapshot() {
+		ContactManager snapshot = myContactManager.snapshot();
+		boolean exceptionThrown = false;
+		try {
+			snapshot.addNewContact("Diana Prince", "From Themscyria");
+		} catch (UnsupportedOperationException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+	}
+
+	/**
+	 * Tests addMeetingNotes().
+	 *
+	 * A failed change should leave the published state untouched.
+	 */
+	@Test
+	public void shouldKeepStateWhenChangeFails() {
+		boolean exceptionThrown = false;
+		try {
+			myContactManager.addMeetingNotes(10000, "Unknown meeting");
+		} catch (IllegalArgumentException ex) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		assertEquals("World's Finest", myContactManager.getPastMeeting(1).getNotes());
+	}
+
+	/**
+	 * Tests addNewContact() and addNewPastMeeting().
+	 *
+	 * A write copies only the parts of the indexes it changes, so its cost does not grow
+	 * with the number of contacts and meetings stored. Every other chunk of the hash
+	 * indexes, every other posting list, and the block a posting list is appended to,
+	 * should still be the ones the earlier snapshot holds.
+	 */
+	@Test
+	public void shouldShareUntouchedIndexesWithSnapshot() {
+		int count = 5000;
+		String[] names = new String[count];
+		String[] notes = new String[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = "Contact " + i;
+			notes[i] = "";
+		}
+		int[] ids = myContactManager.addNewContacts(names, notes);
+		List<Set<Contact>> meetingContacts = new ArrayList<Set<Contact>>();
+		List<Calendar> dates = new ArrayList<Calendar>();
+		List<String> texts = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			meetingContacts.add(myContactManager.getContacts(ids[i]));
+			dates.add(new GregorianCalendar(2000, 0, 1 + i));
+			texts.add("");
+		}
+		myContactManager.addNewPastMeetings(meetingContacts, dates, texts);
+		Set<Contact> attendee = myContactManager.getContacts(ids[0]);
+		myContactManager.addNewPastMeeting(attendee, new GregorianCalendar(2014, 0, 1), "");
+		ContactManagerImpl before = (ContactManagerImpl) myContactManager.snapshot();
+
+		myContactManager.addNewContact("Contact extra", "");
+		myContactManager.addNewPastMeeting(attendee, new GregorianCalendar(2014, 0, 2), "");
+		ContactManagerImpl after = (ContactManagerImpl) myContactManager.snapshot();
+
+		//Each write puts one new entry in each hash index, so it copies one chunk of each.
+		assertTrue(before.contactIndex.chunkCount() >= 8);
+		assertEquals(1, changedChunks(before.contactIndex, after.contactIndex));
+		assertEquals(1, changedChunks(((HashMeetingStore) before.meetingIndex).meetings, ((HashMeetingStore) after.meetingIndex).meetings));
+		assertEquals(1, changedChunks(before.contactMeetings, after.contactMeetings));
+		//The attendee's new meeting is the latest, so it is appended to the shared block.
+		PostingList oldList = before.contactMeetings.get(ids[0]);
+		PostingList newList = after.contactMeetings.get(ids[0]);
+		assertSame(oldList.block(), newList.block());
+		assertEquals(2, oldList.size());
+		assertEquals(3, newList.size());
+		Iterator<Map.Entry<Long, PostingList>> entries = before.meetingsByDate.entriesFrom(null);
+		while (entries.hasNext()) {
+			Map.Entry<Long, PostingList> entry = entries.next();
+			assertSame(entry.getValue(), after.meetingsByDate.get(entry.getKey()));
+		}
+	}
+
+	/**
+	 * Counts the chunks of a map which are no longer shared with an earlier copy of it.
+	 *
+	 * @param earlier the earlier copy of the map.
+	 * @param later the map after some writes.
+	 * @return the number of chunks the later map has copied.
+	 */
+	private int changedChunks(IntHashMap<?> earlier, IntHashMap<?> later) {
+		assertEquals(earlier.chunkCount(), later.chunkCount());
+		int result = 0;
+		for (int i = 0; i < earlier.chunkCount(); i++) {
+			if (earlier.chunk(i) != later.chunk(i)) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Tests getFutureMeetingList(), getPastMeeting() and snapshot().
+	 *
+	 * A future meeting whose date has passed should be read as past, and published as past
+	 * to later snapshots, although the published state is never changed.
+	 */
+	@Test
+	public void shouldMigrateBeforeReading() {
+		FakeClock clock = new FakeClock(0L);
+		SnapshotContactManagerImpl manager = new SnapshotContactManagerImpl(clock);
+		manager.addNewContact("Diana Prince", "From Themscyria");
+		Set<Contact> attendees = manager.getContacts("Diana Prince");
+		Contact diana = attendees.iterator().next();
+		int id = manager.addFutureMeeting(attendees, new GregorianCalendar(2000, 0, 1));
+		ContactManager before = manager.snapshot();
+		clock.set(new GregorianCalendar(2000, 0, 2).getTimeInMillis());
+		assertEquals(0, manager.getFutureMeetingList(diana).size());
+		assertEquals("", manager.getPastMeeting(id).getNotes());
+		assertTrue(manager.snapshot().getMeeting(id) instanceof PastMeeting);
+		assertTrue(before.getMeeting(id) instanceof FutureMeeting);
+	}
+}
@@ -0,0 +1,59 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares one String object between equal names and notes.
+ *
+ * Contact names, contact notes and meeting notes repeat a great deal, such as company
+ * names and template notes. Text read from a file or passed in by a caller is usually a
+ * new String, so without sharing every record would hold its own copy. The JVM already
+ * stores Latin-1 text at one byte per character, so sharing the String objects is where
+ * the saving lies.
+ *
+ * Each ContactManagerImpl has a pool for the text added to it, which its journal replay
+ * also uses. ContactFileReader gives each parser its own pool, so sections are parsed
+ * without a lock; equal texts loaded by different parsers may still be held once per
+ * parser. A pool is not thread-safe.
+ *
+ * @author Gareth Moore.
+ */
+public final class StringPool {
+	/**
+	 * Maps each pooled text to its shared instance.
+	 */
+	private final Map<String, String> pool = new HashMap<String, String>();
+
+	/**
+	 * Constructor method. Creates an empty pool.
+	 */
+	public StringPool() {
+	}
+
+	/**
+	 * Returns the shared instance of a text, adding it to the pool if it is new.
+	 *
+	 * @param text the text to be shared. May be null.
+	 * @return a String equal to text which is shared with every other caller of this pool, or null if text is null.
+	 */
+	public String intern(String text) {
+		if (text == null || text.isEmpty()) {
+			//The empty string literal is already shared.
+			return (text == null) ? null : "";
+		}
+		String shared = pool.get(text);
+		if (shared == null) {
+			shared = text;
+			pool.put(shared, shared);
+		}
+		return shared;
+	}
+
+	/**
+	 * Returns the number of distinct texts in the pool.
+	 *
+	 * @return the number of pooled texts.
+	 */
+	public int size() {
+		return pool.size();
+	}
+}
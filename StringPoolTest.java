@@ -0,0 +1,123 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.After;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests the class StringPool and its use when a ContactManager is loaded.
+ *
+ * @author Gareth Moore.
+ */
+public class StringPoolTest {
+	/**
+	 * The number of contacts, and of past meetings, saved by the load test.
+	 */
+	private static final int RECORDS = 100;
+	File file = new File("./string-pool-test.dat"); // The file saved and loaded by the tests.
+
+	/**
+	 * iDCounter is a static variable so may interfere with test results.
+	 * To avoid this problem, both counters are reset to 0 after each test.
+	 */
+	@After
+	public void cleanUp() {
+		ContactImpl.iDCounter.set(0);
+		MeetingImpl.iDCounter.set(0);
+		file.delete();
+	}
+
+	/**
+	 * Equal texts should be returned as the same instance by one pool, but not shared between pools.
+	 */
+	@Test
+	public void shouldShareEqualText() {
+		StringPool pool = new StringPool();
+		String first = new String("Wayne Enterprises");
+		String second = new String("Wayne Enterprises");
+		assertNotSame(first, second);
+		assertSame(pool.intern(first), pool.intern(second));
+		assertEquals("Wayne Enterprises", pool.intern(second));
+		assertNull(pool.intern(null));
+		assertSame("", pool.intern(new String("")));
+		assertEquals(1, pool.size());
+		assertSame(second, new StringPool().intern(second));
+	}
+
+	/**
+	 * Text added to a ContactManager one record at a time, in bulk or as meeting notes should
+	 * be held once per distinct text, in a pool the ContactManager's copies carry over.
+	 */
+	@Test
+	public void shouldShareTextAddedToManager() {
+		FakeClock clock = new FakeClock(0L);
+		ContactManagerImpl manager = new ContactManagerImpl(clock);
+		manager.addNewContact("Bruce Wayne", new String("Wayne Enterprises"));
+		manager.addNewContacts(new String[] {"Lucius Fox"}, new String[] {new String("Wayne Enterprises")});
+		Contact batman = manager.getContacts(1).iterator().next();
+		Contact fox = manager.getContacts(2).iterator().next();
+		assertSame(batman.getNotes(), fox.getNotes());
+
+		Calendar date = new GregorianCalendar(2000, 0, 1);
+		manager.addNewPastMeeting(manager.getContacts(1), date, new String("Board meeting"));
+		List<Set<Contact>> attendees = new ArrayList<Set<Contact>>();
+		attendees.add(manager.getContacts(2));
+		List<Calendar> dates = new ArrayList<Calendar>();
+		dates.add(date);
+		List<String> texts = new ArrayList<String>();
+		texts.add(new String("Board meeting"));
+		manager.addNewPastMeetings(attendees, dates, texts);
+		int future = manager.addFutureMeeting(manager.getContacts(1, 2), new GregorianCalendar(2000, 0, 2));
+		clock.set(new GregorianCalendar(2000, 0, 3).getTimeInMillis());
+		manager.addMeetingNotes(future, new String("Board meeting"));
+		assertSame(manager.getPastMeeting(1).getNotes(), manager.getPastMeeting(2).getNotes());
+		assertSame(manager.getPastMeeting(1).getNotes(), manager.getPastMeeting(future).getNotes());
+
+		//Two names, one contact note and one meeting note.
+		assertEquals(4, manager.strings.size());
+		assertSame(manager.strings, new ContactManagerImpl(manager).strings);
+	}
+
+	/**
+	 * Loading repeated notes should hold one String per distinct text.
+	 */
+	@Test
+	public void shouldShareRepeatedTextOnLoad() throws IOException {
+		save();
+		ContactManagerImpl loaded = ContactManagerImpl.load(file);
+		Contact first = loaded.getContacts(1).iterator().next();
+		Contact sixth = loaded.getContacts(6).iterator().next();
+		assertSame(first.getNotes(), sixth.getNotes());
+		assertSame(loaded.getPastMeeting(1).getNotes(), loaded.getPastMeeting(6).getNotes());
+	}
+
+	/**
+	 * Saves RECORDS contacts, each with one past meeting, to file.
+	 * The notes cycle through five texts.
+	 */
+	private void save() throws IOException {
+		ContactManagerImpl source = ContactManagerImpl.load(file);
+		String[] names = new String[RECORDS];
+		String[] notes = new String[RECORDS];
+		for (int i = 0; i < RECORDS; i++) {
+			names[i] = "Contact " + i;
+			notes[i] = String.format("Template note %06d", i % 5);
+		}
+		int[] ids = source.addNewContacts(names, notes);
+		List<Set<Contact>> attendees = new ArrayList<Set<Contact>>();
+		List<Calendar> dates = new ArrayList<Calendar>();
+		List<String> texts = new ArrayList<String>();
+		for (int i = 0; i < RECORDS; i++) {
+			attendees.add(source.getContacts(ids[i]));
+			dates.add(new GregorianCalendar(2014, 0, 1 + i % 28));
+			texts.add(notes[i]);
+		}
+		source.addNewPastMeetings(attendees, dates, texts);
+		source.flush();
+	}
+}
@@ -0,0 +1,364 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A sorted map which can be copied in constant time.
+ *
+ * The entries are held in a treap: a binary search tree by key, which is also a heap by
+ * a priority worked out from each key's hash, so the tree stays balanced in expectation
+ * without any rebalancing state. A copy shares the whole tree. Afterwards each of the
+ * two maps copies a node the first time it changes it, so a change copies only the
+ * nodes on the path to the changed key, and neither map ever sees the other's changes.
+ * Nodes the map created itself are changed in place.
+ *
+ * Null keys and values cannot be stored.
+ *
+ * @author Gareth Moore.
+ */
+public class TreapMap<K extends Comparable<K>, V> {
+	/**
+	 * The root of the tree, or null if the map is empty.
+	 */
+	private Node<K, V> root = null;
+	/**
+	 * The number of entries in the map.
+	 */
+	private int size = 0;
+	/**
+	 * Identifies the nodes this map may change in place.
+	 * Replaced whenever the map is copied, so nodes shared with the copy are no longer owned.
+	 */
+	private Object owner = new Object();
+	/**
+	 * The value replaced or removed by the last call to put() or remove().
+	 */
+	private V previous;
+
+	/**
+	 * Constructor method. Creates an empty map.
+	 */
+	public TreapMap() {
+	}
+
+	/**
+	 * Constructor method which copies another map in constant time.
+	 * The tree is shared with other until either map changes it.
+	 * The values themselves are shared, not copied.
+	 *
+	 * @param other the map to be copied.
+	 */
+	public TreapMap(TreapMap<K, V> other) {
+		root = other.root;
+		size = other.size;
+		//Every node is now shared, so other must copy a node before it next changes it.
+		other.owner = new Object();
+	}
+
+	/**
+	 * Returns the value mapped to the key, or null if there is none.
+	 *
+	 * @param key the key to be looked up.
+	 * @return the value mapped to the key, or null if there is none.
+	 */
+	public V get(K key) {
+		Node<K, V> node = root;
+		while (node != null) {
+			int order = key.compareTo(node.key);
+			if (order == 0) {
+				return node.value;
+			}
+			node = (order < 0) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * Maps the key to the value, replacing any existing mapping.
+	 *
+	 * @param key the key.
+	 * @param value the value to be mapped to the key.
+	 * @return the value previously mapped to the key, or null if there was none.
+	 * @throws NullPointerException if key or value is null.
+	 */
+	public V put(K key, V value) throws NullPointerException {
+		if (value == null) {
+			throw new NullPointerException();
+		}
+		previous = null;
+		root = insert(root, key, value, priorityOf(key));
+		V result = previous;
+		previous = null;
+		return result;
+	}
+
+	/**
+	 * Removes the mapping for the key.
+	 *
+	 * @param key the key to be removed.
+	 * @return the value which was mapped to the key, or null if there was none.
+	 */
+	public V remove(K key) {
+		previous = null;
+		root = delete(root, key);
+		V result = previous;
+		previous = null;
+		return result;
+	}
+
+	/**
+	 * Returns the number of entries in the map.
+	 *
+	 * @return the number of entries in the map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the lowest key in the map.
+	 *
+	 * @return the lowest key, or null if the map is empty.
+	 */
+	public K firstKey() {
+		Node<K, V> node = root;
+		if (node == null) {
+			return null;
+		}
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node.key;
+	}
+
+	/**
+	 * Returns an iterator over the entries whose keys are at or after a key, in key order.
+	 * The map must not be changed while the iterator is in use; iterate over a copy instead.
+	 *
+	 * @param from the lowest key to be returned, or null to start at the lowest key in the map.
+	 * @return an iterator over the entries from the key onwards.
+	 */
+	public Iterator<Map.Entry<K, V>> entriesFrom(K from) {
+		final Deque<Node<K, V>> path = new ArrayDeque<Node<K, V>>();
+		Node<K, V> node = root;
+		while (node != null) {
+			if (from == null || node.key.compareTo(from) >= 0) {
+				//The node and its right subtree come after from, so it is visited once its left subtree is done.
+				path.push(node);
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return new Iterator<Map.Entry<K, V>>() {
+			public boolean hasNext() {
+				return !path.isEmpty();
+			}
+
+			public Map.Entry<K, V> next() {
+				if (path.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+				Node<K, V> result = path.pop();
+				Node<K, V> next = result.right;
+				while (next != null) {
+					path.push(next);
+					next = next.left;
+				}
+				return result;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Adds or replaces a key in a subtree.
+	 *
+	 * @param node the root of the subtree, or null if it is empty.
+	 * @param key the key.
+	 * @param value the value to be mapped to the key.
+	 * @param priority the priority of the key.
+	 * @return the new root of the subtree.
+	 */
+	private Node<K, V> insert(Node<K, V> node, K key, V value, int priority) {
+		if (node == null) {
+			size++;
+			return new Node<K, V>(key, value, priority, owner);
+		}
+		int order = key.compareTo(node.key);
+		Node<K, V> result = writable(node);
+		if (order == 0) {
+			previous = result.value;
+			result.value = value;
+		} else if (order < 0) {
+			result.left = insert(result.left, key, value, priority);
+			if (result.left.priority > result.priority) {
+				//Rotates right, so the higher priority child becomes the root of the subtree.
+				Node<K, V> left = result.left;
+				result.left = left.right;
+				left.right = result;
+				result = left;
+			}
+		} else {
+			result.right = insert(result.right, key, value, priority);
+			if (result.right.priority > result.priority) {
+				//Rotates left, so the higher priority child becomes the root of the subtree.
+				Node<K, V> right = result.right;
+				result.right = right.left;
+				right.left = result;
+				result = right;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes a key from a subtree.
+	 * Nodes are only copied once the key has been found, so a missing key changes nothing.
+	 *
+	 * @param node the root of the subtree, or null if it is empty.
+	 * @param key the key to be removed.
+	 * @return the new root of the subtree.
+	 */
+	private Node<K, V> delete(Node<K, V> node, K key) {
+		if (node == null) {
+			return null;
+		}
+		int order = key.compareTo(node.key);
+		if (order == 0) {
+			previous = node.value;
+			size--;
+			return merge(node.left, node.right);
+		} else if (order < 0) {
+			Node<K, V> left = delete(node.left, key);
+			if (previous == null) {
+				return node;
+			}
+			Node<K, V> result = writable(node);
+			result.left = left;
+			return result;
+		} else {
+			Node<K, V> right = delete(node.right, key);
+			if (previous == null) {
+				return node;
+			}
+			Node<K, V> result = writable(node);
+			result.right = right;
+			return result;
+		}
+	}
+
+	/**
+	 * Joins two subtrees, every key of the first being lower than every key of the second.
+	 *
+	 * @param low the subtree of lower keys, or null.
+	 * @param high the subtree of higher keys, or null.
+	 * @return the root of the joined tree.
+	 */
+	private Node<K, V> merge(Node<K, V> low, Node<K, V> high) {
+		if (low == null) {
+			return high;
+		} else if (high == null) {
+			return low;
+		} else if (low.priority > high.priority) {
+			Node<K, V> result = writable(low);
+			result.right = merge(result.right, high);
+			return result;
+		} else {
+			Node<K, V> result = writable(high);
+			result.left = merge(low, result.left);
+			return result;
+		}
+	}
+
+	/**
+	 * Copies a node if it is shared with another map, so it can be changed in place.
+	 *
+	 * @param node the node about to be changed.
+	 * @return node if this map owns it, otherwise a copy owned by this map.
+	 */
+	private Node<K, V> writable(Node<K, V> node) {
+		if (node.owner == owner) {
+			return node;
+		}
+		Node<K, V> result = new Node<K, V>(node.key, node.value, node.priority, owner);
+		result.left = node.left;
+		result.right = node.right;
+		return result;
+	}
+
+	/**
+	 * Returns the priority of a key, scrambled from its hash code so the tree is balanced whatever the keys.
+	 *
+	 * @param key the key.
+	 * @return the priority of the key.
+	 */
+	private static int priorityOf(Object key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		return hash ^ (hash >>> 13);
+	}
+
+	/**
+	 * A node of the tree, which is also the entry returned by entriesFrom().
+	 */
+	private static class Node<K, V> implements Map.Entry<K, V> {
+		/**
+		 * The key of the entry.
+		 */
+		private final K key;
+		/**
+		 * The value of the entry.
+		 */
+		private V value;
+		/**
+		 * The priority of the key. No node has a lower priority than its children.
+		 */
+		private final int priority;
+		/**
+		 * The map which may change this node in place.
+		 */
+		private final Object owner;
+		/**
+		 * The subtree of lower keys, or null.
+		 */
+		private Node<K, V> left = null;
+		/**
+		 * The subtree of higher keys, or null.
+		 */
+		private Node<K, V> right = null;
+
+		/**
+		 * Constructor method. Creates a node with no children.
+		 *
+		 * @param key the key of the entry.
+		 * @param value the value of the entry.
+		 * @param priority the priority of the key.
+		 * @param owner the map which may change this node in place.
+		 */
+		Node(K key, V value, int priority, Object owner) {
+			this.key = key;
+			this.value = value;
+			this.priority = priority;
+			this.owner = owner;
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		public V getValue() {
+			return value;
+		}
+
+		public V setValue(V value) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,137 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Tests the class TreapMap.
+ *
+ * @author Gareth Moore.
+ */
+public class TreapMapTest {
+	TreapMap<Integer, String> myMap; //A TreapMap object to be used in testing.
+
+	/**
+	 * Creates an empty map to be used in all tests.
+	 */
+	@Before
+	public void buildUp() {
+		myMap = new TreapMap<Integer, String>();
+	}
+
+	/**
+	 * Tests put() and get().
+	 *
+	 * Should find every key added, replace the value of an existing key and return null for a missing key.
+	 */
+	@Test
+	public void shouldReturnEveryValue() {
+		for (int i = 1; i <= 10000; i++) {
+			myMap.put(i, "Gotham" + i);
+		}
+		assertEquals("Gotham1", myMap.put(1, "Metropolis"));
+		boolean correct = true;
+		for (int i = 2; i <= 10000; i++) {
+			if (!myMap.get(i).equals("Gotham" + i)) {
+				correct = false;
+			}
+		}
+		assertTrue(correct);
+		assertEquals("Metropolis", myMap.get(1));
+		assertNull(myMap.get(10001));
+		assertEquals(10000, myMap.size());
+	}
+
+	/**
+	 * Tests remove() and firstKey().
+	 *
+	 * Removing the lowest keys in turn should leave the next one first, and removing a missing key should change nothing.
+	 */
+	@Test
+	public void shouldRemoveKeys() {
+		for (int i = 1000; i >= 1; i--) {
+			myMap.put(i, "Star City");
+		}
+		assertNull(myMap.remove(5000));
+		for (int i = 1; i <= 500; i++) {
+			assertEquals("Star City", myMap.remove(i));
+		}
+		assertEquals(Integer.valueOf(501), myMap.firstKey());
+		assertNull(myMap.get(1));
+		assertEquals(500, myMap.size());
+	}
+
+	/**
+	 * Tests entriesFrom().
+	 *
+	 * Should visit the keys at or after the given key exactly once, in ascending order.
+	 */
+	@Test
+	public void shouldIterateInKeyOrder() {
+		for (int i = 0; i < 1000; i++) {
+			//Adds the even keys from 0 to 1998 in a scrambled order.
+			myMap.put((i * 617) % 1000 * 2, "Coast City");
+		}
+		Iterator<Map.Entry<Integer, String>> entryIterator = myMap.entriesFrom(501);
+		int expected = 502;
+		boolean correct = true;
+		while (entryIterator.hasNext()) {
+			if (entryIterator.next().getKey() != expected) {
+				correct = false;
+			}
+			expected += 2;
+		}
+		assertTrue(correct);
+		assertEquals(2000, expected);
+		assertEquals(1000, countEntries(myMap));
+		assertNull(new TreapMap<Integer, String>().firstKey());
+	}
+
+	/**
+	 * Tests the copy constructor.
+	 *
+	 * Changes made to the map or its copy should never be seen by the other.
+	 */
+	@Test
+	public void shouldNotShareChangesWithCopy() {
+		for (int i = 1; i <= 1000; i++) {
+			myMap.put(i, "Gotham");
+		}
+		TreapMap<Integer, String> copy = new TreapMap<Integer, String>(myMap);
+		for (int i = 1; i <= 1000; i += 2) {
+			myMap.remove(i);
+			copy.put(i, "Bludhaven");
+		}
+		copy.put(1001, "Bludhaven");
+		boolean correct = true;
+		for (int i = 1; i <= 1000; i++) {
+			boolean odd = (i % 2 == 1);
+			if ((myMap.get(i) == null) != odd || !copy.get(i).equals(odd ? "Bludhaven" : "Gotham")) {
+				correct = false;
+			}
+		}
+		assertTrue(correct);
+		assertNull(myMap.get(1001));
+		assertEquals(500, myMap.size());
+		assertEquals(500, countEntries(myMap));
+		assertEquals(1001, copy.size());
+		assertEquals(1001, countEntries(copy));
+	}
+
+	/**
+	 * Counts the entries visited by entriesFrom(null).
+	 *
+	 * @param map the map to be counted.
+	 * @return the number of entries visited.
+	 */
+	private static int countEntries(TreapMap<Integer, String> map) {
+		int result = 0;
+		Iterator<Map.Entry<Integer, String>> entryIterator = map.entriesFrom(null);
+		while (entryIterator.hasNext()) {
+			entryIterator.next();
+			result++;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,124 @@
+import java.util.Arrays;
+
+/**
+ * An index of contact names by trigram (every run of three characters).
+ *
+ * Each trigram maps to the ids of the contacts whose names contain it.
+ * A name can only contain a query string if it contains every trigram
+ * of the query, so intersecting the query's posting lists gives a small
+ * set of candidates which can then be checked with String.contains().
+ * Matching is case sensitive.
+ *
+ * A copy shares the trigram map and every posting list with the original. Each index
+ * copies the map path leading to a list the first time it adds to that list; see
+ * IdList for how the ids themselves are shared.
+ *
+ * @author Gareth Moore.
+ */
+public class TrigramIndex {
+	/**
+	 * The length of each indexed substring.
+	 * Queries shorter than this cannot be answered from the index.
+	 */
+	public static final int GRAM_LENGTH = 3;
+	/**
+	 * The contact ids of each trigram, held in ascending order.
+	 */
+	private TreapMap<String, IdList> postings = new TreapMap<String, IdList>();
+	/**
+	 * Identifies the posting lists this index may change in place.
+	 * Replaced whenever the index is copied, so lists shared with the copy are no longer owned.
+	 */
+	private Object owner = new Object();
+
+	/**
+	 * Constructor method. Creates an empty index.
+	 */
+	public TrigramIndex() {
+	}
+
+	/**
+	 * Constructor method which copies another index in constant time.
+	 * Everything is shared with other until either index changes it.
+	 *
+	 * @param other the index to be copied.
+	 */
+	public TrigramIndex(TrigramIndex other) {
+		postings = new TreapMap<String, IdList>(other.postings);
+		other.owner = new Object();
+	}
+
+	/**
+	 * Adds every trigram of a contact's name to the index.
+	 *
+	 * @param id the id of the contact.
+	 * @param name the name of the contact.
+	 */
+	public void add(int id, String name) {
+		for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+			String gram = name.substring(i, i + GRAM_LENGTH);
+			IdList ids = postings.get(gram);
+			if (ids == null) {
+				//First name containing this trigram, so a new list is created.
+				ids = new IdList(owner, 2);
+				postings.put(gram, ids);
+			} else {
+				IdList owned = ids.writableBy(owner);
+				if (owned != ids) {
+					//The list is shared with a copy of the index, so this index adds to its own list.
+					ids = owned;
+					postings.put(gram, ids);
+				}
+			}
+			ids.add(id);
+		}
+	}
+
+	/**
+	 * Returns the ids of the contacts whose names contain every trigram of the query.
+	 *
+	 * The candidates are a superset of the actual matches,
+	 * so each one must still be checked with String.contains().
+	 *
+	 * @param query the string to search for.
+	 * @return the candidate ids in ascending order,
+	 * or null if the query is too short to be answered from the index.
+	 */
+	public int[] candidates(String query) {
+		if (query.length() < GRAM_LENGTH) {
+			return null;
+		}
+		int gramCount = query.length() - GRAM_LENGTH + 1;
+		IdList[] lists = new IdList[gramCount];
+		for (int i = 0; i < gramCount; i++) {
+			lists[i] = postings.get(query.substring(i, i + GRAM_LENGTH));
+			if (lists[i] == null) {
+				//No name contains this trigram, so no name can contain the query.
+				return new int[0];
+			}
+		}
+		//Starts from the shortest list so the fewest candidates are tested.
+		IdList shortest = lists[0];
+		for (int i = 1; i < gramCount; i++) {
+			if (lists[i].size() < shortest.size()) {
+				shortest = lists[i];
+			}
+		}
+		int[] result = new int[shortest.size()];
+		int resultSize = 0;
+		for (int i = 0; i < shortest.size(); i++) {
+			int id = shortest.get(i);
+			boolean inAll = true;
+			for (int j = 0; j < gramCount && inAll; j++) {
+				if (lists[j] != shortest) {
+					inAll = lists[j].contains(id);
+				}
+			}
+			if (inAll) {
+				result[resultSize] = id;
+				resultSize++;
+			}
+		}
+		return Arrays.copyOf(result, resultSize);
+	}
+}
@@ -0,0 +1,53 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.Before;
+
+/**
+ * Tests the class TrigramIndex.
+ *
+ * @author Gareth Moore.
+ */
+public class TrigramIndexTest {
+	TrigramIndex myIndex; //A TrigramIndex object to be used in testing.
+
+	/**
+	 * Creates an index of three names to be used in all tests.
+	 */
+	@Before
+	public void buildUp() {
+		myIndex = new TrigramIndex();
+		myIndex.add(1, "Bruce Wayne");
+		myIndex.add(2, "Clark Kent");
+		myIndex.add(3, "Thomas Wayne");
+	}
+
+	/**
+	 * Tests candidates().
+	 *
+	 * Should return every id whose name contains all trigrams of the query.
+	 */
+	@Test
+	public void shouldReturnBothWaynes() {
+		assertArrayEquals(new int[] {1, 3}, myIndex.candidates("Wayne"));
+	}
+
+	/**
+	 * Tests candidates().
+	 *
+	 * Should return no ids when a trigram of the query is not indexed.
+	 */
+	@Test
+	public void shouldReturnEmptyArrayForUnknownTrigram() {
+		assertEquals(0, myIndex.candidates("Prince").length);
+	}
+
+	/**
+	 * Tests candidates().
+	 *
+	 * Should return null when the query is too short to use the index.
+	 */
+	@Test
+	public void shouldReturnNullForShortQuery() {
+		assertNull(myIndex.candidates("Wa"));
+	}
+}